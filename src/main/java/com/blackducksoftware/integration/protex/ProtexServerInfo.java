@@ -23,7 +23,10 @@ package com.blackducksoftware.integration.protex;
 
 import hudson.model.AbstractDescribableImpl;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -32,6 +35,12 @@ import com.google.common.base.Objects;
 
 public class ProtexServerInfo extends AbstractDescribableImpl<ProtexServerInfo> {
 
+    /**
+     * Connect timeout in seconds of the servers that do not set one. A server that does not accept a connection within
+     * that time is down or unreachable, waiting for the read timeout would only delay the failure.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 20;
+
     private String protexPostServerName;
 
     private String protexPostServerUrl;
@@ -40,6 +49,22 @@ public class ProtexServerInfo extends AbstractDescribableImpl<ProtexServerInfo>
 
     private String protexServerId;
 
+    private String protexPostServerMaxConcurrentScans;
+
+    private String protexPostServerConnectTimeOut;
+
+    private String protexPostServerMaxConnections;
+
+    private Boolean protexPostServerKeepAlive;
+
+    private String protexPostServerTlsSessionCacheSize;
+
+    private String protexPostServerOperationTimeOut;
+
+    private String protexPostServerOperationTimeOuts;
+
+    private String protexPostServerCallBudget;
+
     /**
      *
      * @param protexServerId
@@ -57,8 +82,64 @@ public class ProtexServerInfo extends AbstractDescribableImpl<ProtexServerInfo>
      * @param protexServerId
      *            Required UUID to identify the server by. If null one will be randomly generated
      */
-    @DataBoundConstructor
     public ProtexServerInfo(String protexPostServerName, String protexPostServerUrl, String protexPostServerTimeOut, String protexServerId) {
+        this(protexPostServerName, protexPostServerUrl, protexPostServerTimeOut, protexServerId, null);
+    }
+
+    /**
+     *
+     * @param protexPostServerName
+     * @param protexPostServerUrl
+     * @param protexPostServerTimeOut
+     * @param protexServerId
+     *            Required UUID to identify the server by. If null one will be randomly generated
+     * @param protexPostServerMaxConcurrentScans
+     *            Maximum number of scans that can run against this server at the same time, blank for no limit
+     */
+    public ProtexServerInfo(String protexPostServerName, String protexPostServerUrl, String protexPostServerTimeOut, String protexServerId,
+            String protexPostServerMaxConcurrentScans) {
+        this(protexPostServerName, protexPostServerUrl, protexPostServerTimeOut, protexServerId, protexPostServerMaxConcurrentScans, null, null,
+                null, null, null, null, null);
+    }
+
+    /**
+     *
+     * @param protexPostServerName
+     * @param protexPostServerUrl
+     * @param protexPostServerTimeOut
+     *            Read timeout of the SDK calls in seconds
+     * @param protexServerId
+     *            Required UUID to identify the server by. If null one will be randomly generated
+     * @param protexPostServerMaxConcurrentScans
+     *            Maximum number of scans that can run against this server at the same time, blank for no limit
+     * @param protexPostServerConnectTimeOut
+     *            Connect timeout of the SDK calls in seconds, blank to use the read timeout
+     * @param protexPostServerMaxConnections
+     *            Maximum number of SDK calls in flight to this server at the same time, blank for no limit
+     * @param protexPostServerKeepAlive
+     *            Keep the connections to this server open between SDK calls, null for true
+     * @param protexPostServerTlsSessionCacheSize
+     *            Number of TLS sessions kept to resume the connections to this server, blank for the JVM default
+     * @param protexPostServerOperationTimeOut
+     *            Time a whole SDK call may take in seconds, blank for no limit
+     * @param protexPostServerOperationTimeOuts
+     *            Overrides of the operation timeout, one operationName=seconds per line
+     * @param protexPostServerCallBudget
+     *            Total time the SDK calls of one build step may take in seconds, blank for no limit
+     */
+    @DataBoundConstructor
+    public ProtexServerInfo(String protexPostServerName, String protexPostServerUrl, String protexPostServerTimeOut, String protexServerId,
+            String protexPostServerMaxConcurrentScans, String protexPostServerConnectTimeOut, String protexPostServerMaxConnections,
+            Boolean protexPostServerKeepAlive, String protexPostServerTlsSessionCacheSize, String protexPostServerOperationTimeOut,
+            String protexPostServerOperationTimeOuts, String protexPostServerCallBudget) {
+        this.protexPostServerOperationTimeOut = protexPostServerOperationTimeOut;
+        this.protexPostServerOperationTimeOuts = protexPostServerOperationTimeOuts;
+        this.protexPostServerCallBudget = protexPostServerCallBudget;
+        this.protexPostServerConnectTimeOut = protexPostServerConnectTimeOut;
+        this.protexPostServerMaxConnections = protexPostServerMaxConnections;
+        this.protexPostServerKeepAlive = protexPostServerKeepAlive;
+        this.protexPostServerTlsSessionCacheSize = protexPostServerTlsSessionCacheSize;
+        this.protexPostServerMaxConcurrentScans = protexPostServerMaxConcurrentScans;
         this.protexPostServerName = protexPostServerName;
         this.protexPostServerUrl = protexPostServerUrl;
         this.protexPostServerTimeOut = protexPostServerTimeOut;
@@ -97,6 +178,196 @@ public class ProtexServerInfo extends AbstractDescribableImpl<ProtexServerInfo>
         return protexServerId;
     }
 
+    public String getProtexPostServerMaxConcurrentScans() {
+        return protexPostServerMaxConcurrentScans;
+    }
+
+    public void setProtexPostServerMaxConcurrentScans(String protexPostServerMaxConcurrentScans) {
+        this.protexPostServerMaxConcurrentScans = protexPostServerMaxConcurrentScans;
+    }
+
+    /**
+     * @return the maximum number of concurrent scans against this server, 0 if there is no limit
+     */
+    public int getMaxConcurrentScans() {
+        return toPositiveInt(protexPostServerMaxConcurrentScans);
+    }
+
+    public String getProtexPostServerConnectTimeOut() {
+        return protexPostServerConnectTimeOut;
+    }
+
+    public void setProtexPostServerConnectTimeOut(String protexPostServerConnectTimeOut) {
+        this.protexPostServerConnectTimeOut = protexPostServerConnectTimeOut;
+    }
+
+    public String getProtexPostServerMaxConnections() {
+        return protexPostServerMaxConnections;
+    }
+
+    public void setProtexPostServerMaxConnections(String protexPostServerMaxConnections) {
+        this.protexPostServerMaxConnections = protexPostServerMaxConnections;
+    }
+
+    public Boolean getProtexPostServerKeepAlive() {
+        return protexPostServerKeepAlive;
+    }
+
+    public void setProtexPostServerKeepAlive(Boolean protexPostServerKeepAlive) {
+        this.protexPostServerKeepAlive = protexPostServerKeepAlive;
+    }
+
+    public String getProtexPostServerTlsSessionCacheSize() {
+        return protexPostServerTlsSessionCacheSize;
+    }
+
+    public void setProtexPostServerTlsSessionCacheSize(String protexPostServerTlsSessionCacheSize) {
+        this.protexPostServerTlsSessionCacheSize = protexPostServerTlsSessionCacheSize;
+    }
+
+    public String getProtexPostServerOperationTimeOut() {
+        return protexPostServerOperationTimeOut;
+    }
+
+    public void setProtexPostServerOperationTimeOut(String protexPostServerOperationTimeOut) {
+        this.protexPostServerOperationTimeOut = protexPostServerOperationTimeOut;
+    }
+
+    public String getProtexPostServerOperationTimeOuts() {
+        return protexPostServerOperationTimeOuts;
+    }
+
+    public void setProtexPostServerOperationTimeOuts(String protexPostServerOperationTimeOuts) {
+        this.protexPostServerOperationTimeOuts = protexPostServerOperationTimeOuts;
+    }
+
+    public String getProtexPostServerCallBudget() {
+        return protexPostServerCallBudget;
+    }
+
+    public void setProtexPostServerCallBudget(String protexPostServerCallBudget) {
+        this.protexPostServerCallBudget = protexPostServerCallBudget;
+    }
+
+    /**
+     * @param operationName
+     *            local name of the SDK operation, ex: generateProjectReport
+     * @return the time the whole SDK call may take in milliseconds, null if there is no limit
+     */
+    public Long getOperationTimeoutMillis(String operationName) {
+        Map<String, Integer> overrides = null;
+        try {
+            overrides = parseOperationTimeOuts(protexPostServerOperationTimeOuts);
+        } catch (IllegalArgumentException e) {
+            // The form validation reports the invalid line, the default operation timeout applies
+            overrides = new HashMap<String, Integer>();
+        }
+        Integer seconds = null;
+        if (operationName != null) {
+            seconds = overrides.get(operationName.toLowerCase());
+        }
+        if (seconds == null) {
+            seconds = toPositiveInt(protexPostServerOperationTimeOut);
+        }
+        if (seconds == 0) {
+            return null;
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * @return the total time the SDK calls of one build step may take in milliseconds, null if there is no limit
+     */
+    public Long getCallBudgetMillis() {
+        final int seconds = toPositiveInt(protexPostServerCallBudget);
+        if (seconds == 0) {
+            return null;
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * Parses the operation timeout overrides, one operationName=seconds per line. Blank lines are ignored.
+     *
+     * @return the timeouts in seconds keyed by the lower case operation name
+     * @throws IllegalArgumentException
+     *             if a line is not valid
+     */
+    public static Map<String, Integer> parseOperationTimeOuts(String operationTimeOuts) {
+        final Map<String, Integer> timeouts = new HashMap<String, Integer>();
+        if (StringUtils.isBlank(operationTimeOuts)) {
+            return timeouts;
+        }
+        for (String line : operationTimeOuts.split("[\\r\\n]+")) {
+            line = line.trim();
+            if (line.length() == 0) {
+                continue;
+            }
+            final String name = StringUtils.trimToNull(StringUtils.substringBefore(line, "="));
+            final int seconds = toPositiveInt(StringUtils.substringAfter(line, "="));
+            if (name == null || seconds == 0) {
+                throw new IllegalArgumentException(line);
+            }
+            timeouts.put(name.toLowerCase(), seconds);
+        }
+        return timeouts;
+    }
+
+    /**
+     * @return the read timeout of the SDK calls in milliseconds, null if it is not set
+     */
+    public Long getReadTimeoutMillis() {
+        final int seconds = toPositiveInt(protexPostServerTimeOut);
+        if (seconds == 0) {
+            return null;
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * @return the connect timeout of the SDK calls in milliseconds, {@link #DEFAULT_CONNECT_TIMEOUT} seconds if it is
+     *         not set
+     */
+    public Long getConnectTimeoutMillis() {
+        int seconds = toPositiveInt(protexPostServerConnectTimeOut);
+        if (seconds == 0) {
+            seconds = DEFAULT_CONNECT_TIMEOUT;
+        }
+        return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * @return the maximum number of SDK calls in flight to this server, 0 if there is no limit
+     */
+    public int getMaxConnections() {
+        return toPositiveInt(protexPostServerMaxConnections);
+    }
+
+    /**
+     * @return true unless keep-alive was turned off for this server
+     */
+    public boolean isKeepAlive() {
+        return protexPostServerKeepAlive == null || protexPostServerKeepAlive.booleanValue();
+    }
+
+    /**
+     * @return the number of TLS sessions to keep for this server, 0 to use the JVM default
+     */
+    public int getTlsSessionCacheSize() {
+        return toPositiveInt(protexPostServerTlsSessionCacheSize);
+    }
+
+    private static int toPositiveInt(String value) {
+        if (StringUtils.isBlank(value)) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     @Override
     public ProtexServerInfoDescriptor getDescriptor() {
         return (ProtexServerInfoDescriptor) super.getDescriptor();
@@ -109,6 +380,14 @@ public class ProtexServerInfo extends AbstractDescribableImpl<ProtexServerInfo>
                 .add("protexPostServerUrl", protexPostServerUrl)
                 .add("protexServerTimeout", protexPostServerTimeOut)
                 .add("protexServerId", protexServerId)
+                .add("protexPostServerMaxConcurrentScans", protexPostServerMaxConcurrentScans)
+                .add("protexPostServerConnectTimeOut", protexPostServerConnectTimeOut)
+                .add("protexPostServerMaxConnections", protexPostServerMaxConnections)
+                .add("protexPostServerKeepAlive", protexPostServerKeepAlive)
+                .add("protexPostServerTlsSessionCacheSize", protexPostServerTlsSessionCacheSize)
+                .add("protexPostServerOperationTimeOut", protexPostServerOperationTimeOut)
+                .add("protexPostServerOperationTimeOuts", protexPostServerOperationTimeOuts)
+                .add("protexPostServerCallBudget", protexPostServerCallBudget)
                 .toString();
     }
 }
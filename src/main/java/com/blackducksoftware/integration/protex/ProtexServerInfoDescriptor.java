@@ -43,6 +43,7 @@ import org.kohsuke.stapler.QueryParameter;
 
 import com.blackducksoftware.integration.protex.exceptions.ProtexCredentialsValidationException;
 import com.blackducksoftware.integration.protex.jenkins.Messages;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexConduitConfigurer;
 import com.blackducksoftware.integration.protex.jenkins.PostBuildProtexScanDescriptor;
 import com.blackducksoftware.integration.protex.jenkins.ProtexJenkinsLogger;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
@@ -238,6 +239,85 @@ public class ProtexServerInfoDescriptor extends Descriptor<ProtexServerInfo> {
         return FormValidation.ok();
     }
 
+    public FormValidation doCheckProtexPostServerMaxConcurrentScans(@QueryParameter final String value)
+            throws IOException, ServletException {
+        if (StringUtils.isBlank(value)) {
+            // No limit
+            return FormValidation.ok();
+        }
+        Integer i = 0;
+        try {
+            i = Integer.valueOf(value.trim());
+        } catch (final NumberFormatException e) {
+            return FormValidation
+                    .error(Messages.ProtexPostScan_getMaxConcurrentScansMustBeInteger());
+        }
+        if (i < 1) {
+            return FormValidation
+                    .error(Messages.ProtexPostScan_getMaxConcurrentScansGreaterThanZero());
+        }
+        return FormValidation.ok();
+    }
+
+    public FormValidation doCheckProtexPostServerConnectTimeOut(@QueryParameter final String value)
+            throws IOException, ServletException {
+        // Blank uses ProtexServerInfo.DEFAULT_CONNECT_TIMEOUT
+        return checkOptionalPositiveInteger(value);
+    }
+
+    public FormValidation doCheckProtexPostServerMaxConnections(@QueryParameter final String value)
+            throws IOException, ServletException {
+        // Blank means no limit
+        return checkOptionalPositiveInteger(value);
+    }
+
+    public FormValidation doCheckProtexPostServerTlsSessionCacheSize(@QueryParameter final String value)
+            throws IOException, ServletException {
+        // Blank uses the JVM default
+        return checkOptionalPositiveInteger(value);
+    }
+
+    public FormValidation doCheckProtexPostServerOperationTimeOut(@QueryParameter final String value)
+            throws IOException, ServletException {
+        // Blank means no limit
+        return checkOptionalPositiveInteger(value);
+    }
+
+    public FormValidation doCheckProtexPostServerOperationTimeOuts(@QueryParameter final String value)
+            throws IOException, ServletException {
+        try {
+            ProtexServerInfo.parseOperationTimeOuts(value);
+        } catch (final IllegalArgumentException e) {
+            return FormValidation
+                    .error(Messages.ProtexPostScan_getInvalidOperationTimeout(e.getMessage()));
+        }
+        return FormValidation.ok();
+    }
+
+    public FormValidation doCheckProtexPostServerCallBudget(@QueryParameter final String value)
+            throws IOException, ServletException {
+        // Blank means no limit
+        return checkOptionalPositiveInteger(value);
+    }
+
+    private FormValidation checkOptionalPositiveInteger(final String value) {
+        if (StringUtils.isBlank(value)) {
+            return FormValidation.ok();
+        }
+        Integer i = 0;
+        try {
+            i = Integer.valueOf(value.trim());
+        } catch (final NumberFormatException e) {
+            return FormValidation
+                    .error(Messages.ProtexPostScan_getValueMustBeInteger());
+        }
+        if (i < 1) {
+            return FormValidation
+                    .error(Messages.ProtexPostScan_getValueGreaterThanZero());
+        }
+        return FormValidation.ok();
+    }
+
     public FormValidation doCheckProtexTestCredentialsId(@QueryParameter final String protexTestCredentialsId)
             throws IOException, ServletException {
 
@@ -342,6 +422,7 @@ public class ProtexServerInfoDescriptor extends Descriptor<ProtexServerInfo> {
             } else {
                 timeout = Long.valueOf(getDEFAULT_TIMEOUT());
             }
+            ProtexConduitConfigurer.install();
             final ProtexFacade facade = new ProtexFacade(protexServerUrl, credentialUserName,
                     credentialPassword, timeout);
 
@@ -19,24 +19,22 @@
  * specific language governing permissions and limitations
  * under the License.
  *******************************************************************************/
-package com.blackducksoftware.integration.protex.jenkins.remote;
+package com.blackducksoftware.integration.protex.exceptions;
 
-import hudson.remoting.Callable;
-
-import java.io.IOException;
-
-public class GetSystemProperty implements Callable<String, IOException> {
-    private static final long serialVersionUID = 3459269768733083577L;
+public class ProtexTimeoutException extends Exception {
+    public ProtexTimeoutException() {
+    }
 
-    private final String property;
+    public ProtexTimeoutException(String message) {
+        super(message);
+    }
 
-    public GetSystemProperty(String property) {
-        this.property = property;
+    public ProtexTimeoutException(Throwable cause) {
+        super(cause);
     }
 
-    @Override
-    public String call() throws IOException {
-        return System.getProperty(property);
+    public ProtexTimeoutException(String message, Throwable cause) {
+        super(message, cause);
     }
 
 }
@@ -26,19 +26,47 @@ import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
+import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
+
 public class JenkinsProtexLogObserver implements Observer {
 
     private final ProtexJenkinsLogger logger;
 
+    private final LogLevel level;
+
+    // Filled from the end of scan messages, which include the pending identification counts
+    private final ProtexScanStatistics statistics = new ProtexScanStatistics();
+
     public JenkinsProtexLogObserver(ProtexJenkinsLogger logger) {
+        this(logger, LogLevel.INFO);
+    }
+
+    /**
+     * @param level
+     *            LogLevel to log the bdstool output at, INFO or TRACE
+     */
+    public JenkinsProtexLogObserver(ProtexJenkinsLogger logger, LogLevel level) {
         this.logger = logger;
+        this.level = level;
     }
 
     @Override
     public void update(Observable o, Object arg) {
 
         if ((arg instanceof Map) || (arg instanceof String)) {
-            logger.info("	--> " + arg.toString());
+            if (level == LogLevel.TRACE) {
+                logger.trace("	--> %s", arg);
+            } else {
+                logger.info("	--> " + arg.toString());
+            }
+        }
+        if (arg instanceof Map) {
+            statistics.update((Map<?, ?>) arg);
         }
     }
+
+    public ProtexScanStatistics getStatistics() {
+        return statistics;
+    }
 }
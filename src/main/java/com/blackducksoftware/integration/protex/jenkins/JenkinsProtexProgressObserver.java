@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+
+package com.blackducksoftware.integration.protex.jenkins;
+
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanProgressListener;
+
+/**
+ * Observes the bdstool scan progress on the Node. bdstool reports progress many times a second, so instead of logging
+ * every event this keeps the latest values, sends them to the {@link ProtexScanProgressListener} at most once per
+ * update interval, and only logs a line to the console each time the scan passes another milestone.
+ */
+public class JenkinsProtexProgressObserver implements Observer {
+
+    public static final long UPDATE_INTERVAL = TimeUnit.SECONDS.toMillis(Long.getLong(JenkinsProtexProgressObserver.class.getName() + ".updateSeconds", 5));
+
+    // Percentage between two progress lines in the console
+    public static final int MILESTONE_PERCENT = 10;
+
+    private static final Pattern PERCENT_PATTERN = Pattern.compile("(\\d{1,3})(?:\\.\\d+)?\\s*%");
+
+    private static final Pattern FILES_PATTERN = Pattern.compile("(\\d[\\d,]*)\\s*(?:/|of)\\s*(\\d[\\d,]*)");
+
+    private final ProtexJenkinsLogger logger;
+
+    private final ProtexScanProgressListener listener;
+
+    private final long updateIntervalNanos;
+
+    private Integer percentComplete;
+
+    private Long filesScanned;
+
+    private Long totalFiles;
+
+    private int lastMilestone;
+
+    private long lastSent;
+
+    // True if there is progress that has not been sent to the listener yet
+    private boolean pending;
+
+    // Set once the listener fails, the scan goes on without the progress
+    private boolean listenerFailed;
+
+    private int sentCount;
+
+    public JenkinsProtexProgressObserver(ProtexJenkinsLogger logger, ProtexScanProgressListener listener) {
+        this(logger, listener, UPDATE_INTERVAL);
+    }
+
+    JenkinsProtexProgressObserver(ProtexJenkinsLogger logger, ProtexScanProgressListener listener, long updateIntervalMillis) {
+        this.logger = logger;
+        this.listener = listener;
+        updateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(updateIntervalMillis);
+        // So the first progress is sent right away
+        lastSent = System.nanoTime() - updateIntervalNanos;
+    }
+
+    @Override
+    public synchronized void update(Observable o, Object arg) {
+        if (!readProgress(arg)) {
+            if (arg != null) {
+                logger.trace("	--> %s", arg);
+            }
+            return;
+        }
+        if (percentComplete != null && percentComplete >= lastMilestone + MILESTONE_PERCENT) {
+            lastMilestone = percentComplete - (percentComplete % MILESTONE_PERCENT);
+            logger.info("Scan progress : " + getProgressText());
+        }
+        pending = true;
+        if (System.nanoTime() - lastSent >= updateIntervalNanos) {
+            send();
+        }
+    }
+
+    /**
+     * Sends the progress that was held back by the update interval, called once the scan is done.
+     */
+    public synchronized void flush() {
+        if (pending) {
+            send();
+        }
+    }
+
+    public synchronized int getSentCount() {
+        return sentCount;
+    }
+
+    public synchronized Integer getPercentComplete() {
+        return percentComplete;
+    }
+
+    public synchronized Long getFilesScanned() {
+        return filesScanned;
+    }
+
+    public synchronized Long getTotalFiles() {
+        return totalFiles;
+    }
+
+    private void send() {
+        pending = false;
+        lastSent = System.nanoTime();
+        if (listener == null || listenerFailed) {
+            return;
+        }
+        try {
+            listener.progressChanged(percentComplete, filesScanned, totalFiles);
+            sentCount++;
+        } catch (RuntimeException e) {
+            // The channel to the master is not usable, the scan itself is not affected
+            listenerFailed = true;
+            logger.debug("Could not send the scan progress : " + e.getMessage());
+        }
+    }
+
+    private String getProgressText() {
+        final StringBuilder text = new StringBuilder();
+        text.append(percentComplete).append('%');
+        if (filesScanned != null && totalFiles != null) {
+            text.append(" (").append(filesScanned).append(" / ").append(totalFiles).append(" files)");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads the progress out of a bdstool progress event. The events are either a Map, a number or a line of text
+     * depending on the bdstool version, so this accepts all of them.
+     *
+     * @return true if the event contained any progress
+     */
+    private boolean readProgress(Object arg) {
+        Integer percent = null;
+        Long scanned = null;
+        Long total = null;
+        if (arg instanceof Number) {
+            percent = ((Number) arg).intValue();
+        } else if (arg instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) arg).entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                final String key = entry.getKey().toString().toLowerCase();
+                final Long value = parseNumber(entry.getValue().toString());
+                if (key.contains("percent")) {
+                    percent = value == null ? null : value.intValue();
+                } else if (key.contains("total")) {
+                    total = value;
+                } else if (key.contains("scanned") || key.contains("processed") || key.contains("analyzed") || key.contains("analysed")) {
+                    scanned = value;
+                }
+            }
+        } else if (arg instanceof String) {
+            final String line = (String) arg;
+            final Matcher percentMatcher = PERCENT_PATTERN.matcher(line);
+            if (percentMatcher.find()) {
+                percent = parseNumber(percentMatcher.group(1)).intValue();
+            }
+            final Matcher filesMatcher = FILES_PATTERN.matcher(line);
+            if (filesMatcher.find()) {
+                scanned = parseNumber(filesMatcher.group(1));
+                total = parseNumber(filesMatcher.group(2));
+            }
+        }
+        if (percent == null && scanned == null && total == null) {
+            return false;
+        }
+        if (scanned != null) {
+            filesScanned = scanned;
+        }
+        if (total != null && total > 0) {
+            totalFiles = total;
+        }
+        if (percent == null && filesScanned != null && totalFiles != null) {
+            percent = (int) (filesScanned * 100 / totalFiles);
+        }
+        if (percent != null) {
+            percentComplete = Math.max(0, Math.min(100, percent));
+        }
+        return true;
+    }
+
+    private static Long parseNumber(String value) {
+        final String digits = value.replace(",", "").replace("%", "").trim();
+        final int fraction = digits.indexOf('.');
+        try {
+            return Long.valueOf(fraction == -1 ? digits : digits.substring(0, fraction));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
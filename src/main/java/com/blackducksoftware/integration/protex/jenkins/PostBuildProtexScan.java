@@ -30,43 +30,49 @@ import java.net.Proxy;
 import java.net.URL;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.SystemUtils;
-import org.apache.cxf.transports.http.configuration.ProxyServerType;
-import org.json.JSONException;
 import org.kohsuke.stapler.DataBoundConstructor;
-import org.restlet.resource.ResourceException;
 
-import com.blackducksoftware.integration.phone.home.PhoneHomeClient;
-import com.blackducksoftware.integration.phone.home.enums.BlackDuckName;
-import com.blackducksoftware.integration.phone.home.enums.ThirdPartyName;
-import com.blackducksoftware.integration.phone.home.exception.PhoneHomeException;
-import com.blackducksoftware.integration.phone.home.exception.PropertiesLoaderException;
 import com.blackducksoftware.integration.protex.ProtexFacade;
 import com.blackducksoftware.integration.protex.ProtexFacadeException;
 import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.protex.exceptions.ProtexScannerException;
 import com.blackducksoftware.integration.protex.exceptions.ProtexValidationException;
 import com.blackducksoftware.integration.protex.jenkins.action.ProtexFullScanAction;
 import com.blackducksoftware.integration.protex.jenkins.action.ProtexReportAction;
+import com.blackducksoftware.integration.protex.jenkins.action.ProtexScanProgressAction;
+import com.blackducksoftware.integration.protex.jenkins.action.ProtexTimingAction;
+import com.blackducksoftware.integration.protex.jenkins.action.ProtexTimingProjectAction;
 import com.blackducksoftware.integration.protex.jenkins.action.ProtexVariableContributorAction;
+import com.blackducksoftware.integration.protex.jenkins.action.ScanMode;
 import com.blackducksoftware.integration.protex.jenkins.action.ScanRunAction;
-import com.blackducksoftware.integration.protex.jenkins.remote.GetCanonicalPath;
-import com.blackducksoftware.integration.protex.jenkins.remote.GetHostName;
-import com.blackducksoftware.integration.protex.jenkins.remote.GetHostNameFromNetworkInterfaces;
-import com.blackducksoftware.integration.protex.jenkins.remote.GetSystemProperty;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexCallBudget;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadeKey;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadePool;
+import com.blackducksoftware.integration.protex.jenkins.remote.ComputeSourceDigest;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexConsoleLogSink;
+import com.blackducksoftware.integration.protex.jenkins.remote.NodeFacts;
+import com.blackducksoftware.integration.protex.jenkins.remote.NodeFactsCache;
+import com.blackducksoftware.integration.protex.jenkins.remote.NodeProbeResult;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexLogSink;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanProgressListener;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConnectionException;
 import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
 import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
+import com.blackducksoftware.sdk.fault.ErrorCode;
 import com.blackducksoftware.sdk.protex.report.Report;
 import com.blackducksoftware.sdk.protex.report.ReportFormat;
 import com.blackducksoftware.sdk.protex.report.ReportTemplate;
@@ -84,9 +90,11 @@ import hudson.ProxyConfiguration;
 import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.JDK;
 import hudson.model.Result;
+import hudson.remoting.Channel;
 import hudson.remoting.VirtualChannel;
 import hudson.security.ACL;
 import hudson.tasks.BuildStepMonitor;
@@ -95,6 +103,12 @@ import jenkins.model.Jenkins;
 
 public class PostBuildProtexScan extends Recorder {
 
+	public static final int DEFAULT_INCREMENTAL_MAX_CHANGED_PATHS = 5000;
+
+	public static final int DEFAULT_INCREMENTAL_FULL_SCAN_INTERVAL = 20;
+
+	private static final int MAX_PREVIOUS_BUILDS_CHECKED = 100;
+
 	// Init Variables for Protex Plugin
 	private final String protexServerId;
 
@@ -110,18 +124,49 @@ public class PostBuildProtexScan extends Recorder {
 
 	private final String protexReportTemplate;
 
-	private transient Result result;
+	private final Boolean protexIncrementalScan;
+
+	private final Integer protexIncrementalMaxChangedPaths;
+
+	private final Integer protexIncrementalFullScanInterval;
+
+	private final Boolean protexSkipUnchangedSource;
+
+	private final Boolean protexSourceDigestContent;
 
-	private transient String javaName;
+	private final Integer protexCoalesceMinutes;
 
-	private transient String javaPath;
+	private final Integer protexCoalesceBuilds;
+
+	private final String protexLogLevel;
+
+	public PostBuildProtexScan(final String protexServerId, final String protexPostCredentials, final String protexPostProjectName,
+			final String protexPostTemplateProjectName,
+			final String protexPostProjectSourcePath, final Double protexScanMemory, final String protexReportTemplate) {
+		this(protexServerId, protexPostCredentials, protexPostProjectName, protexPostTemplateProjectName, protexPostProjectSourcePath, protexScanMemory,
+				protexReportTemplate, null, null, null, null, null, null, null, null);
+	}
+
+	public PostBuildProtexScan(final String protexServerId, final String protexPostCredentials, final String protexPostProjectName,
+			final String protexPostTemplateProjectName,
+			final String protexPostProjectSourcePath, final Double protexScanMemory, final String protexReportTemplate,
+			final Boolean protexIncrementalScan, final Integer protexIncrementalMaxChangedPaths, final Integer protexIncrementalFullScanInterval,
+			final Boolean protexSkipUnchangedSource, final Boolean protexSourceDigestContent, final Integer protexCoalesceMinutes,
+			final Integer protexCoalesceBuilds) {
+		this(protexServerId, protexPostCredentials, protexPostProjectName, protexPostTemplateProjectName, protexPostProjectSourcePath, protexScanMemory,
+				protexReportTemplate, protexIncrementalScan, protexIncrementalMaxChangedPaths, protexIncrementalFullScanInterval, protexSkipUnchangedSource,
+				protexSourceDigestContent, protexCoalesceMinutes, protexCoalesceBuilds, null);
+	}
 
 	// Fields in config.jelly must match the parameter names in the
 	// "DataBoundConstructor"
 	@DataBoundConstructor
 	public PostBuildProtexScan(final String protexServerId, final String protexPostCredentials, final String protexPostProjectName,
 			final String protexPostTemplateProjectName,
-			final String protexPostProjectSourcePath, final Double protexScanMemory, final String protexReportTemplate) {
+			final String protexPostProjectSourcePath, final Double protexScanMemory, final String protexReportTemplate,
+			final Boolean protexIncrementalScan, final Integer protexIncrementalMaxChangedPaths, final Integer protexIncrementalFullScanInterval,
+			final Boolean protexSkipUnchangedSource, final Boolean protexSourceDigestContent, final Integer protexCoalesceMinutes,
+			final Integer protexCoalesceBuilds, final String protexLogLevel) {
 		// These are the fields for the plugin
 
 		this.protexServerId = protexServerId;
@@ -152,6 +197,15 @@ public class PostBuildProtexScan extends Recorder {
 		} else {
 			this.protexReportTemplate = protexReportTemplate;
 		}
+
+		this.protexIncrementalScan = protexIncrementalScan;
+		this.protexIncrementalMaxChangedPaths = protexIncrementalMaxChangedPaths;
+		this.protexIncrementalFullScanInterval = protexIncrementalFullScanInterval;
+		this.protexSkipUnchangedSource = protexSkipUnchangedSource;
+		this.protexSourceDigestContent = protexSourceDigestContent;
+		this.protexCoalesceMinutes = protexCoalesceMinutes;
+		this.protexCoalesceBuilds = protexCoalesceBuilds;
+		this.protexLogLevel = StringUtils.trimToNull(protexLogLevel);
 	}
 
 	@Override
@@ -192,13 +246,71 @@ public class PostBuildProtexScan extends Recorder {
 		return protexReportTemplate;
 	}
 
+	public boolean isProtexIncrementalScan() {
+		// Jobs configured before the incremental mode existed always run a full scan
+		return protexIncrementalScan != null && protexIncrementalScan;
+	}
+
+	public Integer getProtexIncrementalMaxChangedPaths() {
+		if (protexIncrementalMaxChangedPaths == null || protexIncrementalMaxChangedPaths < 1) {
+			return DEFAULT_INCREMENTAL_MAX_CHANGED_PATHS;
+		}
+		return protexIncrementalMaxChangedPaths;
+	}
+
+	public Integer getProtexIncrementalFullScanInterval() {
+		if (protexIncrementalFullScanInterval == null || protexIncrementalFullScanInterval < 1) {
+			return DEFAULT_INCREMENTAL_FULL_SCAN_INTERVAL;
+		}
+		return protexIncrementalFullScanInterval;
+	}
+
+	public boolean isProtexSkipUnchangedSource() {
+		return protexSkipUnchangedSource != null && protexSkipUnchangedSource;
+	}
+
+	public boolean isProtexSourceDigestContent() {
+		return protexSourceDigestContent != null && protexSourceDigestContent;
+	}
+
+	public Integer getProtexCoalesceMinutes() {
+		if (protexCoalesceMinutes == null || protexCoalesceMinutes < 0) {
+			// Jobs configured before the coalescing existed scan on every build
+			return 0;
+		}
+		return protexCoalesceMinutes;
+	}
+
+	public Integer getProtexCoalesceBuilds() {
+		if (protexCoalesceBuilds == null || protexCoalesceBuilds < 0) {
+			return 0;
+		}
+		return protexCoalesceBuilds;
+	}
+
+	public String getProtexLogLevel() {
+		return protexLogLevel;
+	}
+
+	/**
+	 * @return the log level of this job, or the global log level if the job does not set one
+	 */
+	public LogLevel getLogLevel() {
+		final LogLevel level = PostBuildProtexScanDescriptor.toLogLevel(protexLogLevel);
+		if (level != null) {
+			return level;
+		}
+		return getDescriptor().getLogLevel();
+	}
+
 	@Override
-	public PostBuildProtexScanDescriptor getDescriptor() {
-		return (PostBuildProtexScanDescriptor) super.getDescriptor();
+	public Collection<? extends Action> getProjectActions(final AbstractProject<?, ?> project) {
+		return Collections.singletonList(new ProtexTimingProjectAction(project));
 	}
 
-	private void setResult(final Result result) {
-		this.result = result;
+	@Override
+	public PostBuildProtexScanDescriptor getDescriptor() {
+		return (PostBuildProtexScanDescriptor) super.getDescriptor();
 	}
 
 	/**
@@ -218,15 +330,23 @@ public class PostBuildProtexScan extends Recorder {
 	@Override
 	public boolean perform(final AbstractBuild<?, ?> build, final Launcher launcher,
 			final BuildListener listener) throws IOException, InterruptedException {
-		setResult(build.getResult());
+		// Builds of this job can run at the same time, everything that belongs to this build stays in the context
+		final ProtexScanContext context = new ProtexScanContext(build.getResult());
 		final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(listener);
-		logger.setLogLevel(LogLevel.DEBUG); // TODO make the log level configurable
+		logger.setLogLevel(getLogLevel());
 
-		if (result.equals(Result.SUCCESS)) {
+		if (context.getResult().equals(Result.SUCCESS)) {
 
 			final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+			final ProtexTimingAction timing = ProtexTimingAction.getTimingAction(build);
+			long phaseStart = 0;
 
 			boolean changed = false;
+			ProtexFacade facade = null;
+			ProtexBuildSession session = null;
+			ProtexScanIndex.Lease indexLease = null;
+			ProtexCallBudget callBudget = null;
+			boolean scanned = false;
 			try {
 
 				if (PostBuildProtexScan.class.getClassLoader() != originalClassLoader) {
@@ -247,9 +367,15 @@ public class PostBuildProtexScan extends Recorder {
 						build.setResult(Result.UNSTABLE);
 						return true;
 					}
-					ProtexFacade facade = null;
+					if (currentServer.getCallBudgetMillis() != null) {
+						// Ended in the finally, the build thread may run other steps afterwards
+						callBudget = ProtexCallBudget.start(currentServer.getCallBudgetMillis());
+						logger.debug("The Protex server calls of this step may take " + currentServer.getCallBudgetMillis() + " ms");
+					}
 					try {
+						phaseStart = ProtexTimingAction.start();
 						facade = getProtexFacade(logger);
+						timing.stop(ProtexTimingAction.PHASE_FACADE, phaseStart);
 						if (facade == null) {
 							logger.error("There was a problem creating the ProtexFacade");
 							build.setResult(Result.UNSTABLE);
@@ -269,23 +395,6 @@ public class PostBuildProtexScan extends Recorder {
 					}
 					final EnvVars variables = build.getEnvironment(listener);
 
-					String localHostName = "";
-					try {
-						localHostName = build.getBuiltOn().getChannel().call(new GetHostName());
-					} catch (final IOException e) {
-						// logger.error("Problem getting the Local Host name : " + e.getMessage(), e);
-						// ignore the error, try to get the host name from the network interfaces
-					}
-					if (StringUtils.isBlank(localHostName)) {
-						try {
-							localHostName = build.getBuiltOn().getChannel().call(new GetHostNameFromNetworkInterfaces());
-						} catch (final IOException e) {
-							logger.error("Problem getting the Local Host name : " + e.getMessage(), e);
-						}
-					}
-
-					setJava(logger, build);
-
 					// These lines resolve any variables that the User may have used in the
 					// project names or in the source path
 					// Works for variables defined as $VARIABLE or as ${VARIABLE}
@@ -294,7 +403,31 @@ public class PostBuildProtexScan extends Recorder {
 					final String projectName = handleVariableReplacement(build, logger, variables, getProtexPostProjectName());
 					final String templateName = handleVariableReplacement(build, logger, variables, getProtexPostTemplateProjectName());
 					String sourcePath = handleVariableReplacement(build, logger, variables, getProtexPostProjectSourcePath());
-					printConfiguration(build, localHostName, currentServer, projectName, getProtexScanMemory(), sourcePath, protexFullScanAction, logger);
+
+					// Collects the host name, the Java and the workspace paths of the Node in a single round trip
+					final VirtualChannel channel = build.getBuiltOn().getChannel();
+					phaseStart = ProtexTimingAction.start();
+					final NodeProbeResult nodeProbe = NodeFactsCache.probe(channel, getWorkspace(build, channel).getRemote(), sourcePath);
+					final NodeFacts nodeFacts = nodeProbe.getNodeFacts();
+					timing.stop(ProtexTimingAction.PHASE_NODE_PROBE, phaseStart);
+
+					String localHostName = ProtexNodeProperty.getHostName(build.getBuiltOn());
+					if (localHostName != null) {
+						logger.debug("Using the host name configured for the Node : %s", localHostName);
+					} else {
+						localHostName = nodeFacts.getHostName();
+						logger.debug("The Node resolved its host name in %d ms", nodeFacts.getHostNameMillis());
+					}
+					if (StringUtils.isBlank(localHostName)) {
+						logger.error("Problem getting the Local Host name.");
+						localHostName = "";
+					}
+
+					phaseStart = ProtexTimingAction.start();
+					setJava(logger, build, nodeFacts, context);
+					timing.stop(ProtexTimingAction.PHASE_JAVA, phaseStart);
+
+					printConfiguration(build, localHostName, currentServer, projectName, getProtexScanMemory(), sourcePath, protexFullScanAction, context, logger);
 
 					build.addAction(new ProtexVariableContributorAction(currentServer.getProtexPostServerUrl(), projectName, templateName, sourcePath));
 
@@ -302,24 +435,31 @@ public class PostBuildProtexScan extends Recorder {
 						return true;
 					}
 
-					// Creates the Project during the build
-					if (!facade.checkProjectExists(projectName)) {
-						facade.createProtexProject(projectName, templateName);
-					} else {
-						logger.warn("The Project : " + projectName + ", already exists! The scan will use the already exisiting Project.");
-					}
+					// Creates the Project during the build, the Id of an existing Project is cached across builds
+					phaseStart = ProtexTimingAction.start();
+					final String projectId = ProtexProjectCache.getInstance().createOrGetProject(facade, projectName, templateName, logger);
+					timing.stop(ProtexTimingAction.PHASE_PROJECT, phaseStart);
 
 					// Check if the sourcepath is empty, if it is scan the whole workspace
 					// otherwise the path provided should be a sub directory in the workspace
 					try {
-						sourcePath = validateSourcePath(build, build.getBuiltOn().getChannel(), logger, sourcePath);
+						sourcePath = validateSourcePath(build, channel, logger, nodeProbe);
 					} catch (final ProtexValidationException e) {
 						e.printSmallStackTrace(logger);
 						build.setResult(Result.UNSTABLE);
 						return true;
 					}
 
+					phaseStart = ProtexTimingAction.start();
+					ScanRunAction scanRun = planScan(build, logger, projectName, nodeProbe.getWorkspacePath(), sourcePath, fullScanRequired);
+					scanRun = checkCoalescing(build, logger, projectName, fullScanRequired, scanRun);
+					scanRun = checkSourceDigest(logger, channel, currentServer.getProtexPostServerUrl(), projectId, projectName, sourcePath, fullScanRequired,
+							scanRun);
+					scanRun.setSourcePath(ProtexChangeSet.getRelativePath(nodeProbe.getWorkspacePath(), sourcePath));
+					timing.stop(ProtexTimingAction.PHASE_PLAN, phaseStart);
+
 					// Phone-Home
+					phaseStart = ProtexTimingAction.start();
 					try {
 						String protexHostName = null;
 						try {
@@ -328,20 +468,73 @@ public class PostBuildProtexScan extends Recorder {
 						} catch (final Exception e) {
 							logger.debug("Could not get the Protex Host name.");
 						}
-						final String protexVersion = facade.getProtexVersion();
-						bdPhoneHome(protexHostName, protexVersion);
+						if (StringUtils.isNotBlank(protexHostName)) {
+							// Only ask the server for its version when the cached one has expired
+							String protexVersion = ProtexPhoneHome.getInstance().getProtexVersion(protexHostName);
+							if (protexVersion == null) {
+								protexVersion = facade.getProtexVersion();
+								ProtexPhoneHome.getInstance().setProtexVersion(protexHostName, protexVersion);
+							}
+							bdPhoneHome(protexHostName, protexVersion);
+						}
 					} catch (final Exception e) {
 						logger.debug("Unable to phone-home", e);
 					}
+					timing.stop(ProtexTimingAction.PHASE_PHONE_HOME, phaseStart);
 
-					logger.info("Starting Protex Scan...");
-					final String projectId = facade.getProtexProjectId(projectName);
 					if (projectId == null) {
 						logger.error("The project Id was returned as null");
 						build.setResult(Result.UNSTABLE);
 						return true;
 					}
-					facade.protexPrepScanProject(projectId, localHostName, sourcePath);
+
+					// The failure conditions reuse the facade and the project, the session gives the facade back to
+					// the pool once the build completes
+					session = new ProtexBuildSession(facade, currentServer, projectName, projectId);
+					build.addAction(session);
+
+					if (scanRun.getScanMode() == ScanMode.COALESCED) {
+						// A recent scan of the project covers this build, its report and results are used
+						logger.info("Skipping the Protex Scan, the scan of build #" + scanRun.getCoveringBuildNumber() + " covers this build.");
+						build.addAction(scanRun);
+						logger.info("Finished running Protex Post Build Step.");
+						build.setResult(context.getResult());
+						return true;
+					}
+					if (!scanRun.getScanMode().isScanSkipped()) {
+						// Other jobs may have scanned, or be scanning, the same revision into the same project
+						// A scan of an unknown revision is recorded too, it changes the results of the project
+						final String revision = ProtexScanIndex.getRevision(variables, nodeProbe.getWorkspacePath(), sourcePath, scanRun.getSourceDigest());
+						indexLease = ProtexScanIndex.getInstance().begin(currentServer.getProtexPostServerUrl(), projectId, revision,
+								scanRun.getSourceDigest(), build.getFullDisplayName(), logger);
+						if (indexLease.isCovered()) {
+							logger.info("Skipping the Protex Scan, " + indexLease.getCoveringScan().getOwner()
+									+ " already scanned the same revision into the project.");
+							final ScanRunAction duplicate = new ScanRunAction(ScanMode.DUPLICATE, 0, 0);
+							duplicate.setProjectName(projectName);
+							duplicate.setSourcePath(scanRun.getSourcePath());
+							duplicate.setSourceDigest(scanRun.getSourceDigest());
+							scanRun = duplicate;
+						}
+					}
+
+					if (scanRun.getScanMode().isScanSkipped()) {
+						if (scanRun.getScanMode() != ScanMode.DUPLICATE) {
+							// Nothing under the source path changed, the results on the server are still current
+							logger.info("Skipping the Protex Scan, no changes under the source path : " + sourcePath);
+						}
+						build.addAction(scanRun);
+						phaseStart = ProtexTimingAction.start();
+						final boolean reportGenerated = generateProtexReport(build, logger, facade, projectId, getProtexReportTemplate());
+						timing.stop(ProtexTimingAction.PHASE_REPORT, phaseStart);
+						if (!reportGenerated) {
+							build.setResult(Result.UNSTABLE);
+							return true;
+						}
+						logger.info("Finished running Protex Post Build Step.");
+						build.setResult(context.getResult());
+						return true;
+					}
 
 					String bdsToolJavaOptions = null;
 
@@ -356,16 +549,68 @@ public class PostBuildProtexScan extends Recorder {
 						bdsToolJavaOptions = System.getenv("BDSTOOLJAVAOPTIONS");
 					}
 
-					final ProtexScanner scanner = createProtexScanner(javaPath, facade.getServerUrl(), projectId, projectName, sourcePath, bdsToolJavaOptions, logger);
+					final ProtexScanner scanner = createProtexScanner(context.getJavaPath(), facade.getServerUrl(), projectId, projectName, sourcePath, bdsToolJavaOptions, logger);
 
 					scanner.setForceScan(fullScanRequired);
 
-					final File logDirectory = new File(build.getWorkspace().getRemote(), "BDSToolLog");
+					final File logDirectory = new File(getWorkspace(build, channel).getRemote(), "BDSToolLog");
 					scanner.setLogDirectory(logDirectory);
 					scanner.setProtexScanMemory(getProtexScanMemory());
 
-					// Will run scan on master or remote node
-					if (build.getBuiltOn().getChannel().call(scanner)) {
+					// Limits the number of scans running against the server at the same time
+					phaseStart = ProtexTimingAction.start();
+					final ProtexScanLimiter.Permit permit = ProtexScanLimiter.getInstance().acquire(currentServer, build.getFullDisplayName(), logger);
+					timing.stop(ProtexTimingAction.PHASE_SCAN_QUEUE, phaseStart);
+					try {
+						logger.info("Starting Protex Scan...");
+						phaseStart = ProtexTimingAction.start();
+						// Preparing the project is only needed when the analysis host or the source path changed
+						final ProtexPrepScanCache prepScanCache = ProtexPrepScanCache.getInstance();
+						if (fullScanRequired) {
+							prepScanCache.invalidate(facade, projectId);
+						}
+						if (prepScanCache.isPrepared(facade, projectId, localHostName, sourcePath)) {
+							logger.debug("The Project is already prepared for %s : %s", localHostName, sourcePath);
+						} else {
+							facade.protexPrepScanProject(projectId, localHostName, sourcePath);
+							prepScanCache.setPrepared(facade, projectId, localHostName, sourcePath);
+						}
+						timing.stop(ProtexTimingAction.PHASE_PREP_SCAN, phaseStart);
+
+						// The Node reports the progress to this action instead of logging every progress event
+						final ProtexScanProgressAction progress = new ProtexScanProgressAction(build);
+						build.addAction(progress);
+						scanner.setProgressListener(channel.export(ProtexScanProgressListener.class, progress));
+						if (channel instanceof Channel) {
+							// The scan runs on a remote Node, send its log lines in compressed chunks
+							scanner.setLogSink(channel.export(ProtexLogSink.class, new ProtexConsoleLogSink(listener.getLogger())));
+						}
+
+						// Will run scan on master or remote node
+						phaseStart = ProtexTimingAction.start();
+						ProtexScanStatistics statistics = null;
+						try {
+							statistics = channel.call(scanner);
+						} catch (final ProtexScannerException e) {
+							if (context.isJavaCached()) {
+								// The JDK may have been moved or removed on the Node, the next build resolves it again
+								logger.debug("Dropping the Java cached for this Node : %s", context.getJavaPath());
+								ProtexJavaCache.getInstance().invalidate(channel);
+							}
+							throw e;
+						} finally {
+							progress.finish(statistics != null);
+						}
+						timing.stop(ProtexTimingAction.PHASE_SCAN, phaseStart);
+						scanned = statistics != null;
+						if (statistics != null) {
+							logger.debug("Scan statistics : %s", statistics);
+							scanRun.setScanStatistics(statistics);
+						}
+					} finally {
+						permit.release();
+					}
+					if (scanned) {
 						// check the build result if successful reset the full scan action to
 						// prevent running a full scan.
 						if (protexFullScanAction != null && fullScanRequired == true) {
@@ -373,9 +618,12 @@ public class PostBuildProtexScan extends Recorder {
 							protexFullScanAction.setFullScanRequired(false);
 						}
 						logger.debug("Completed Protex Scan");
-						build.addAction(new ScanRunAction());
+						build.addAction(scanRun);
 
-						if (!generateProtexReport(build, logger, facade, projectId, getProtexReportTemplate())) {
+						phaseStart = ProtexTimingAction.start();
+						final boolean reportGenerated = generateProtexReport(build, logger, facade, projectId, getProtexReportTemplate());
+						timing.stop(ProtexTimingAction.PHASE_REPORT, phaseStart);
+						if (!reportGenerated) {
 							build.setResult(Result.UNSTABLE);
 							return true;
 						}
@@ -388,10 +636,21 @@ public class PostBuildProtexScan extends Recorder {
 					return true;
 				}
 			} catch (final ServerConnectionException e) {
+				// Do not hand this facade out again
+				if (session != null) {
+					session.invalidate();
+				} else {
+					ProtexFacadePool.getInstance().invalidate(facade);
+				}
 				logger.error(e.getMessage(), e);
 				build.setResult(Result.UNSTABLE);
 				return true;
 			} catch (final ProtexFacadeException e) {
+				if (e.getSdkFaultErrorCode() == ErrorCode.PROJECT_NOT_FOUND && facade != null) {
+					// A cached project Id may belong to a project that was deleted or renamed on the server
+					ProtexProjectCache.getInstance().invalidateServer(facade);
+					ProtexPrepScanCache.getInstance().invalidateServer(facade);
+				}
 				if (e.getSdkFaultErrorCode() != null) {
 					logger.error("SdkFault ErrorCode : " + e.getSdkFaultErrorCode().toString());
 				}
@@ -405,11 +664,30 @@ public class PostBuildProtexScan extends Recorder {
 				logger.error(e.getMessage(), e);
 				build.setResult(Result.UNSTABLE);
 				return true;
+			} catch (final InterruptedException e) {
+				// The build was aborted, maybe while waiting for a scan slot
+				logger.error("The Protex scan was interrupted.");
+				throw e;
 			} catch (final Exception e) {
 				logger.error(e.getMessage(), e);
 				build.setResult(Result.UNSTABLE);
 				return true;
 			} finally {
+				if (indexLease != null) {
+					// Lets the builds waiting for this revision go on
+					indexLease.complete(scanned);
+				}
+				if (session == null) {
+					ProtexFacadePool.getInstance().release(facade);
+				}
+				if (callBudget != null) {
+					ProtexCallBudget.end();
+					if (callBudget.isExhausted()) {
+						logger.error("The Protex server calls of this step used up their time budget of " + callBudget.getBudget() + " ms");
+					} else {
+						logger.debug("The Protex server calls of this step took " + callBudget.getSpent() + " ms");
+					}
+				}
 				if (changed) {
 					Thread.currentThread().setContextClassLoader(
 							originalClassLoader);
@@ -420,12 +698,13 @@ public class PostBuildProtexScan extends Recorder {
 		}
 
 		logger.info("Finished running Protex Post Build Step.");
-		build.setResult(result);
+		build.setResult(context.getResult());
 		return true;
 	}
 
 	public void printConfiguration(final AbstractBuild<?, ?> build, final String localHost, final ProtexServerInfo currentServer,
-			final String projectName, final Double scanMemory, final String sourcePath, final ProtexFullScanAction protexFullScanAction, final ProtexJenkinsLogger logger)
+			final String projectName, final Double scanMemory, final String sourcePath, final ProtexFullScanAction protexFullScanAction, final ProtexScanContext context,
+			final ProtexJenkinsLogger logger)
 					throws IOException,
 					InterruptedException {
 		logger.info(
@@ -459,7 +738,7 @@ public class PostBuildProtexScan extends Recorder {
 				"-> Using Protex Scan Memory  : " + scanMemory);
 
 		logger.info(
-				"-> Using JDK : " + javaName + " at : " + javaPath);
+				"-> Using JDK : " + context.getJavaName() + " at : " + context.getJavaPath());
 
 		if (protexFullScanAction != null) {
 
@@ -477,6 +756,173 @@ public class PostBuildProtexScan extends Recorder {
 		}
 	}
 
+	/**
+	 * Decides how the scan of this build runs. In incremental mode the analysis is skipped when the SCM change set has
+	 * no changes under the source path. A full scan runs when incremental mode is off, when a full scan was requested,
+	 * when the change set is missing or too large, when the previous build did not scan the same project and source
+	 * path, or every {@link #getProtexIncrementalFullScanInterval()} builds. The changes of the builds coalesced since
+	 * the previous scan are checked with the changes of this build.
+	 *
+	 * The change set only decides whether the scan runs: FULL and INCREMENTAL both analyze the whole source path, they
+	 * only differ in the run counter. bdstool only analyzes files that changed since its last run, so a full scan of an
+	 * unchanged tree is cheap on the client side, the change set is what lets us skip the run and the server round trips
+	 * entirely.
+	 */
+	public ScanRunAction planScan(final AbstractBuild<?, ?> build, final IntLogger logger, final String projectName, final String workspacePath,
+			final String targetPath, final boolean fullScanRequired) {
+		if (!isProtexIncrementalScan()) {
+			return new ScanRunAction(ScanMode.FULL, 0, 0);
+		}
+		if (fullScanRequired) {
+			logger.info("Incremental scan : a full scan was requested.");
+			return new ScanRunAction(ScanMode.FULL, 0, 0);
+		}
+		final List<AbstractBuild<?, ?>> builds = new ArrayList<AbstractBuild<?, ?>>();
+		builds.add(build);
+		final ScanRunAction previousScan = getPreviousScanRunAction(build, builds);
+		if (previousScan == null) {
+			logger.info("Incremental scan : the previous build did not run a Protex scan, running a full scan.");
+			return new ScanRunAction(ScanMode.FULL, 0, 0);
+		}
+		if (!StringUtils.equals(projectName, previousScan.getProjectName())) {
+			// ex: the project name comes from $BRANCH_NAME, the changes since the previous build say nothing about this project
+			logger.info("Incremental scan : the previous build scanned another project, running a full scan.");
+			return new ScanRunAction(ScanMode.FULL, 0, 0);
+		}
+		if (!StringUtils.equals(ProtexChangeSet.getRelativePath(workspacePath, targetPath), previousScan.getSourcePath())) {
+			logger.info("Incremental scan : the previous build scanned another source path, running a full scan.");
+			return new ScanRunAction(ScanMode.FULL, 0, 0);
+		}
+		final int incrementalRunCount = previousScan.getIncrementalRunCount() + 1;
+		if (incrementalRunCount >= getProtexIncrementalFullScanInterval()) {
+			logger.info("Incremental scan : " + previousScan.getIncrementalRunCount() + " incremental runs since the last full scan, running a full scan.");
+			return new ScanRunAction(ScanMode.FULL, 0, 0);
+		}
+		if (builds.size() > 1) {
+			logger.info("Incremental scan : including the changes of the " + (builds.size() - 1) + " build(s) coalesced since the last scan.");
+		}
+		final ProtexChangeSet changeSet = ProtexChangeSet.fromBuilds(builds);
+		if (changeSet == null) {
+			logger.info("Incremental scan : no change set for this build, running a full scan.");
+			return new ScanRunAction(ScanMode.FULL, 0, 0);
+		}
+		if (changeSet.getChangedPaths().size() > getProtexIncrementalMaxChangedPaths()) {
+			logger.info("Incremental scan : " + changeSet.getChangedPaths().size() + " changed paths is more than the maximum of "
+					+ getProtexIncrementalMaxChangedPaths() + ", running a full scan.");
+			return new ScanRunAction(ScanMode.FULL, 0, changeSet.getChangedPaths().size());
+		}
+		final List<String> changedPaths = changeSet.getChangedPathsUnder(workspacePath, targetPath);
+		logger.info("Incremental scan : " + changedPaths.size() + " of " + changeSet.getChangedPaths().size() + " changed paths ("
+				+ changeSet.getDeletedPathCount() + " deleted) are under the source path.");
+		if (!changedPaths.isEmpty()) {
+			logger.info("Incremental scan : analyzing the whole source path.");
+		}
+		if (changedPaths.isEmpty()) {
+			return new ScanRunAction(ScanMode.SKIPPED, incrementalRunCount, 0);
+		}
+		if (LogLevel.isLoggable(logger.getLogLevel(), LogLevel.DEBUG)) {
+			// Can be thousands of paths, only go through them when they are logged
+			for (final String path : changedPaths) {
+				logger.debug("Changed : " + path);
+			}
+		}
+		return new ScanRunAction(ScanMode.INCREMENTAL, incrementalRunCount, changedPaths.size());
+	}
+
+	/**
+	 * Finds the scan the incremental scan goes on from, passing over the coalesced builds. Coalesced builds did not look
+	 * at their changes, so they are added to the builds whose changes have to be checked.
+	 */
+	private ScanRunAction getPreviousScanRunAction(final AbstractBuild<?, ?> build, final List<AbstractBuild<?, ?>> builds) {
+		AbstractBuild<?, ?> previousBuild = build.getPreviousBuild();
+		while (previousBuild != null && builds.size() <= MAX_PREVIOUS_BUILDS_CHECKED) {
+			final ScanRunAction previousScan = previousBuild.getAction(ScanRunAction.class);
+			if (previousScan == null || previousScan.getScanMode() != ScanMode.COALESCED) {
+				return previousScan;
+			}
+			builds.add(previousBuild);
+			previousBuild = previousBuild.getPreviousBuild();
+		}
+		return null;
+	}
+
+	/**
+	 * Coalesces the scans of a busy job. When the job scans at most every {@link #getProtexCoalesceMinutes()} minutes
+	 * or every {@link #getProtexCoalesceBuilds()} builds, and the last scan of the same Protex project is recent enough,
+	 * this build does not scan and points to the build that did instead.
+	 */
+	public ScanRunAction checkCoalescing(final AbstractBuild<?, ?> build, final IntLogger logger, final String projectName, final boolean fullScanRequired,
+			final ScanRunAction scanRun) {
+		final int coalesceMinutes = getProtexCoalesceMinutes();
+		final int coalesceBuilds = getProtexCoalesceBuilds();
+		if ((coalesceMinutes == 0 && coalesceBuilds <= 1) || fullScanRequired || scanRun.getScanMode().isScanSkipped()) {
+			return scanRun;
+		}
+		AbstractBuild<?, ?> previousBuild = build.getPreviousBuild();
+		int coalescedBuilds = 0;
+		int checked = 0;
+		while (previousBuild != null && checked < MAX_PREVIOUS_BUILDS_CHECKED) {
+			final ScanRunAction previousScan = previousBuild.getAction(ScanRunAction.class);
+			if (previousScan != null) {
+				if (!StringUtils.equals(projectName, previousScan.getProjectName())) {
+					return scanRun;
+				}
+				if (previousScan.getScanMode() != ScanMode.COALESCED) {
+					// The covering scan, all of the builds since then were coalesced into it
+					final long minutesSinceScan = TimeUnit.MILLISECONDS.toMinutes(build.getTimeInMillis() - previousBuild.getTimeInMillis());
+					final boolean withinWindow = coalesceMinutes > 0 && minutesSinceScan < coalesceMinutes;
+					final boolean withinBuilds = coalesceBuilds > 1 && coalescedBuilds + 1 < coalesceBuilds;
+					if (!withinWindow && !withinBuilds) {
+						return scanRun;
+					}
+					logger.info("Coalescing the Protex scan : the project was scanned by build #" + previousBuild.getNumber() + ", " + minutesSinceScan
+							+ " minute(s) and " + (coalescedBuilds + 1) + " build(s) ago.");
+					final ScanRunAction coalesced = new ScanRunAction(ScanMode.COALESCED, 0, 0);
+					coalesced.setProjectName(projectName);
+					coalesced.setCoveringBuildNumber(previousBuild.getNumber());
+					return coalesced;
+				}
+				coalescedBuilds++;
+			}
+			previousBuild = previousBuild.getPreviousBuild();
+			checked++;
+		}
+		return scanRun;
+	}
+
+	/**
+	 * When the skip if unchanged option is set, computes the digest of the source path on the Node and compares it to
+	 * the digest of the last scan of the same Protex project, by any job, see
+	 * {@link ProtexScanIndex#getSourceDigest(String, String)}. If they match the scan is skipped. The scan runs if the
+	 * digest can not be computed.
+	 */
+	private ScanRunAction checkSourceDigest(final IntLogger logger, final VirtualChannel channel, final String serverUrl, final String projectId,
+			final String projectName, final String sourcePath, final boolean fullScanRequired, final ScanRunAction scanRun) throws InterruptedException {
+		scanRun.setProjectName(projectName);
+		if (!isProtexSkipUnchangedSource() || scanRun.getScanMode().isScanSkipped()) {
+			return scanRun;
+		}
+		final long start = System.currentTimeMillis();
+		String sourceDigest = null;
+		try {
+			sourceDigest = channel.call(new ComputeSourceDigest(sourcePath, isProtexSourceDigestContent()));
+			logger.debug("Computed the source digest in " + (System.currentTimeMillis() - start) + " ms : " + sourceDigest);
+		} catch (final IOException e) {
+			// Only an optimization, it must not keep the source from being scanned
+			logger.warn("Could not compute the digest of the source path, scanning it : " + e.getMessage());
+		}
+
+		ScanRunAction checkedScanRun = scanRun;
+		if (!fullScanRequired && sourceDigest != null && projectId != null
+				&& sourceDigest.equals(ProtexScanIndex.getInstance().getSourceDigest(serverUrl, projectId))) {
+			logger.info("The source path has not changed since the last Protex scan of the project : " + projectName);
+			checkedScanRun = new ScanRunAction(ScanMode.UNCHANGED, 0, 0);
+			checkedScanRun.setProjectName(projectName);
+		}
+		checkedScanRun.setSourceDigest(sourceDigest);
+		return checkedScanRun;
+	}
+
 	/**
 	 * Generates the Protex Report for the given Project using the specified Report Template. Once the report is
 	 * generated it will attach the report to the Build.
@@ -507,9 +953,9 @@ public class PostBuildProtexScan extends Recorder {
 			final Report report = facade.createReportFromTemplate(projectId, template.getReportTemplateId(), ReportFormat.HTML, true);
 			final InputStream reportInputStream = report.getFileContent().getInputStream();
 
-			final String htmlContent = IOUtils.toString(reportInputStream);
-
-			final ProtexReportAction reportAction = new ProtexReportAction(build, htmlContent);
+			// Stream the report to the build directory, it can be tens of MB so it should not be kept in memory
+			final ProtexReportAction reportAction = ProtexReportAction.create(build, reportInputStream);
+			logger.debug("Stored the Protex Report, " + reportAction.getReportSize() + " bytes, SHA-256 : " + reportAction.getReportDigest());
 			build.addAction(reportAction);
 		} catch (final ProtexFacadeException e) {
 			logger.error(e.getMessage());
@@ -564,40 +1010,34 @@ public class PostBuildProtexScan extends Recorder {
 		}
 	}
 
+	/**
+	 * Borrows a ProtexFacade for the configured server and credentials from the {@link ProtexFacadePool}. The caller
+	 * must give it back with {@link ProtexFacadePool#release(ProtexFacade)} once it is done with it.
+	 *
+	 */
 	public ProtexFacade getProtexFacade(final IntLogger logger) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException,
 	IllegalBlockSizeException, BadPaddingException, IOException, ServerConfigException {
 
-		final ProtexServerInfo currentServer = getProtexServerInfo(getProtexServerId());
-		if (currentServer == null) {
+		final ProtexFacadeKey key = getProtexFacadeKey();
+		if (key == null) {
 			logger.error("Can not find the defined Protex Server with the Id : " + protexServerId);
 			return null;
 		}
+		return ProtexFacadePool.getInstance().borrow(key, logger);
+	}
 
-		final ProtexFacade facade = new ProtexFacade(currentServer.getProtexPostServerUrl(), getProtexUsernamePassword().getUsername(),
-				getProtexUsernamePassword().getPassword().getPlainText(), Long.valueOf(currentServer.getProtexPostServerTimeOut()));
-		facade.setLogger(logger);
-		// facade.setAutoContextLoading(true);
-
-		final Jenkins jenkins = Jenkins.getInstance();
-		if (jenkins != null && jenkins.proxy != null) {
-			final URL url = new URL(currentServer.getProtexPostServerUrl());
-			final Proxy proxy = ProxyConfiguration.createProxy(url.getHost(), jenkins.proxy.name, jenkins.proxy.port,
-					jenkins.proxy.noProxyHost);
-			if (proxy.address() != null) {
-				final InetSocketAddress proxyAddress = (InetSocketAddress) proxy.address();
-				if (!StringUtils.isEmpty(proxyAddress.getHostName()) && proxyAddress.getPort() != 0) {
-					if (StringUtils.isNotBlank(jenkins.proxy.getUserName()) && StringUtils.isNotBlank(jenkins.proxy.getPassword())) {
-						facade.setProxySettings(proxyAddress.getHostName(), proxyAddress.getPort(), ProxyServerType.HTTP, true, jenkins.proxy.getUserName(),
-								jenkins.proxy.getPassword());
-					} else {
-						facade.setProxySettings(proxyAddress.getHostName(), proxyAddress.getPort(), ProxyServerType.HTTP, true);
-					}
-				}
-
-			}
+	/**
+	 * @return the {@link ProtexFacadeKey} of the configured server and credentials, null if the server can not be found
+	 */
+	public ProtexFacadeKey getProtexFacadeKey() throws MalformedURLException {
+		final ProtexServerInfo currentServer = getProtexServerInfo(getProtexServerId());
+		if (currentServer == null) {
+			return null;
 		}
 
-		return facade;
+		final UsernamePasswordCredentialsImpl credentials = getProtexUsernamePassword();
+		return ProtexFacadeKey.create(currentServer, getProtexPostCredentials(), credentials.getUsername(),
+				credentials.getPassword().getPlainText());
 	}
 
 	public ProtexScanner createProtexScanner(final String javaPath, final String protexUrl, final String projectId, final String projectName, final String sourcePath,
@@ -652,60 +1092,63 @@ public class PostBuildProtexScan extends Recorder {
 	 *
 	 * @param build
 	 *            AbstractBuild<?, ?>
-	 * @param listener
-	 *            BuildListener
+	 * @param nodeFacts
+	 *            NodeFacts of the Node the build is running on
+	 * @param context
+	 *            ProtexScanContext of this build, receives the Java name and path
 	 * @throws IOException
 	 * @throws InterruptedException
 	 * @throws ProtexValidationException
-	 * @throws HubConfigurationException
 	 */
-	private void setJava(final ProtexJenkinsLogger logger, final AbstractBuild<?, ?> build) throws IOException, InterruptedException, ProtexValidationException {
-		final EnvVars envVars = build.getEnvironment(logger.getJenkinsListener());
-		JDK javaHomeTemp = null;
-		if (StringUtils.isEmpty(build.getBuiltOn().getNodeName())) {
-			logger.info("Getting Jdk on master  : " + build.getBuiltOn().getNodeName());
+	private void setJava(final ProtexJenkinsLogger logger, final AbstractBuild<?, ?> build, final NodeFacts nodeFacts, final ProtexScanContext context) throws IOException, InterruptedException,
+	ProtexValidationException {
+		final VirtualChannel channel = build.getBuiltOn().getChannel();
+		final boolean onMaster = StringUtils.isEmpty(build.getBuiltOn().getNodeName());
+		if (onMaster) {
 			// Empty node name indicates master
-			final String byteCodeVersion = System.getProperty("java.class.version");
-			final Double majorVersion = Double.valueOf(byteCodeVersion);
+			logger.info("Getting Jdk on master  : " + build.getBuiltOn().getNodeName());
+		} else {
+			logger.info("Getting Jdk on node  : " + build.getBuiltOn().getNodeName());
+		}
+		final Double majorVersion = Double.valueOf(nodeFacts.getJavaClassVersion());
 
-			final String arch = SystemUtils.OS_ARCH;
+		final String arch = nodeFacts.getOsArch();
 
-			final boolean unsupportedArch = arch.endsWith("86");
-			if (unsupportedArch) {
-				logger.info("The JRE that is running this Node is a non supported architecture type : " + arch);
-			}
+		final boolean unsupportedArch = arch.endsWith("86");
+		if (unsupportedArch) {
+			logger.info("The JRE that is running this Node is a non supported architecture type : " + arch);
+		}
 
-			if (!unsupportedArch && majorVersion >= 51.0) {
-				// Java 7 bytecode
-				// If the master is running Java 7 or higher we use that Java
-				// instead of the one the User selected in the job configuration
-				final String javaHome = System.getProperty("java.home");
-				javaHomeTemp = new JDK("Java running master agent", javaHome);
+		JDK javaHomeTemp = null;
+		String cacheKey = null;
+		if (!unsupportedArch && majorVersion >= 51.0) {
+			// Java 7 bytecode
+			// If the Node is running Java 7 or higher we use that Java
+			// instead of the one the User selected in the job configuration
+			if (onMaster) {
+				javaHomeTemp = new JDK("Java running master agent", nodeFacts.getJavaHome());
 			} else {
-				javaHomeTemp = build.getProject().getJDK();
+				javaHomeTemp = new JDK("Java running slave agent", nodeFacts.getJavaHome());
 			}
 		} else {
-			logger.info("Getting Jdk on node  : " + build.getBuiltOn().getNodeName());
-			final String byteCodeVersion = build.getBuiltOn().getChannel().call(new
-					GetSystemProperty("java.class.version"));
-			final Double majorVersion = Double.valueOf(byteCodeVersion);
-
-			final String arch = build.getBuiltOn().getChannel().call(new
-					GetSystemProperty("os.arch"));
-
-			final boolean unsupportedArch = arch.endsWith("86");
-			if (unsupportedArch) {
-				logger.info("The JRE that is running this Node is a non supported architecture type : " + arch);
+			final JDK selectedJdk = build.getProject().getJDK();
+			ProtexJavaCache.ResolvedJava cached = null;
+			if (selectedJdk != null) {
+				// Resolving the selected JDK may install it on the Node, only done once per Node connection
+				cacheKey = ProtexJavaCache.getKey(selectedJdk);
+				cached = ProtexJavaCache.getInstance().get(channel, cacheKey);
 			}
-
-			if (!unsupportedArch && majorVersion >= 51.0) {
-				// Java 7 bytecode
-				// If the slave is running Java 7 or higher we use that Java
-				// instead of the one the User selected in the job configuration
-				final String javaHome = build.getBuiltOn().getChannel().call(new GetSystemProperty("java.home"));
-				javaHomeTemp = new JDK("Java running slave agent", javaHome);
+			if (cached != null) {
+				logger.info("JDK : " + cached.getJavaName() + ", using the Java resolved by a previous build : " + cached.getJavaPath());
+				context.setJavaName(cached.getJavaName());
+				context.setJavaPath(cached.getJavaPath());
+				context.setJavaCached(true);
+				return;
+			}
+			if (onMaster || selectedJdk == null) {
+				javaHomeTemp = selectedJdk;
 			} else {
-				javaHomeTemp = build.getProject().getJDK().forNode(build.getBuiltOn(), logger.getJenkinsListener());
+				javaHomeTemp = selectedJdk.forNode(build.getBuiltOn(), logger.getJenkinsListener());
 			}
 		}
 		if (javaHomeTemp != null && javaHomeTemp.getHome() != null) {
@@ -714,20 +1157,34 @@ public class PostBuildProtexScan extends Recorder {
 
 		if (javaHomeTemp == null || StringUtils.isEmpty(javaHomeTemp.getHome())) {
 			logger.info("Could not find the specified Java installation, checking the JAVA_HOME variable.");
+			final EnvVars envVars = build.getEnvironment(logger.getJenkinsListener());
 			if (envVars.get("JAVA_HOME") == null || envVars.get("JAVA_HOME") == "") {
 				throw new ProtexValidationException("Need to define a JAVA_HOME or select an installed JDK.");
 			}
 			// In case the user did not select a java installation, set to the environment variable JAVA_HOME
 			javaHomeTemp = new JDK("Default Java", envVars.get("JAVA_HOME"));
+			// The JAVA_HOME of each build may differ, only the selected JDK is cached
+			cacheKey = null;
 		}
-		setJavaName(javaHomeTemp.getName());
+		context.setJavaName(javaHomeTemp.getName());
 
-		final String osName = build.getBuiltOn().getChannel().call(new GetSystemProperty("os.name"));
+		if (javaHomeTemp.getHome().equals(nodeFacts.getJavaHome())) {
+			// The probe already checked the Java running the Node
+			if (!nodeFacts.isJavaExecutableExists()) {
+				throw new ProtexValidationException("Could not find the specified Java installation at: " +
+						nodeFacts.getJavaExecutable());
+			}
+			context.setJavaPath(nodeFacts.getJavaExecutable());
+			if (cacheKey != null) {
+				ProtexJavaCache.getInstance().put(channel, cacheKey, new ProtexJavaCache.ResolvedJava(context.getJavaName(), context.getJavaPath()));
+			}
+			return;
+		}
 
-		final FilePath javaHome = new FilePath(build.getBuiltOn().getChannel(), javaHomeTemp.getHome());
+		final FilePath javaHome = new FilePath(channel, javaHomeTemp.getHome());
 		FilePath javaExec = new FilePath(javaHome, "bin");
 
-		if (osName.toLowerCase().contains("windows")) {
+		if (nodeFacts.isWindows()) {
 			javaExec = new FilePath(javaExec, "java.exe");
 		} else {
 			javaExec = new FilePath(javaExec, "java");
@@ -736,19 +1193,10 @@ public class PostBuildProtexScan extends Recorder {
 			throw new ProtexValidationException("Could not find the specified Java installation at: " +
 					javaExec.getRemote());
 		}
-		javaPath = javaExec.getRemote();
-	}
-
-	public String getJavaPath() {
-		return javaPath;
-	}
-
-	public String getJavaName() {
-		return javaName;
-	}
-
-	public void setJavaName(final String javaName) {
-		this.javaName = javaName;
+		context.setJavaPath(javaExec.getRemote());
+		if (cacheKey != null) {
+			ProtexJavaCache.getInstance().put(channel, cacheKey, new ProtexJavaCache.ResolvedJava(context.getJavaName(), context.getJavaPath()));
+		}
 	}
 
 	protected UsernamePasswordCredentialsImpl getProtexUsernamePassword() {
@@ -777,43 +1225,21 @@ public class PostBuildProtexScan extends Recorder {
 	 *            AbstractBuild<?, ?>
 	 * @param channel
 	 *            VirtualChannel
-	 * @param sourcePath
-	 *            String
+	 * @param nodeProbe
+	 *            NodeProbeResult with the canonical workspace and source paths
 	 *
 	 * @throws IOException
 	 * @throws InterruptedException
 	 * @throws ProtexValidationException
 	 */
 	public String validateSourcePath(final AbstractBuild<?, ?> build, final VirtualChannel channel, final ProtexJenkinsLogger logger,
-			final String sourcePath) throws IOException, InterruptedException, ProtexValidationException {
-		FilePath workspace = null;
-		String target = "";
-		if (build.getWorkspace() == null) {
-			// May have a custom workspace set
-			workspace = new FilePath(channel, build.getProject().getCustomWorkspace());
+			final NodeProbeResult nodeProbe) throws IOException, InterruptedException, ProtexValidationException {
+		final String workspacePath = nodeProbe.getWorkspacePath();
+		final String target = nodeProbe.getTargetPath();
 
-		} else {
-			workspace = build.getWorkspace();
-		}
-
-		final String workspacePath = channel.call(new GetCanonicalPath(new File(workspace.getRemote())));
-
-		if (StringUtils.isBlank(sourcePath) || sourcePath.equals(workspacePath)) {
-			// The User either included the path to the workspace or they include the $WORKSPACE variable in the
-			// path
-			target = workspacePath;
-		} else if (sourcePath.startsWith(workspacePath)) {
-			// The User either included the path to the workspace or they include the $WORKSPACE variable in the
-			// path
-			target = channel.call(new GetCanonicalPath(new File(sourcePath)));
-		} else {
-			target = channel.call(new GetCanonicalPath(new File(workspacePath
-					+ File.separator + sourcePath)));
-		}
-
-		if (target.equals(workspacePath)) {
+		if (target.equals(workspacePath) && !nodeProbe.isBdsIgnoreExists()) {
 			// Scanning the workspace so we want to put .bdsignore in the workspace so it ignores the logs
-			final FilePath bdsIgnore = new FilePath(workspace, ".bdsignore");
+			final FilePath bdsIgnore = new FilePath(getWorkspace(build, channel), ".bdsignore");
 			if (!bdsIgnore.exists()) {
 				// This will cause bdstool to ignore the directory that we are putting the bdstool logs in
 				bdsIgnore.write(".*BDSToolLog.*", "UTF-8");
@@ -824,8 +1250,7 @@ public class PostBuildProtexScan extends Recorder {
 			throw new ProtexValidationException("Can not specify a source path outside of the workspace.");
 		}
 
-		final FilePath workspaceTarget = new FilePath(channel, target);
-		if (!workspaceTarget.exists()) {
+		if (!nodeProbe.isTargetExists()) {
 			throw new ProtexValidationException("Source path could not be found : " + target);
 		} else {
 			logger.debug(
@@ -834,6 +1259,14 @@ public class PostBuildProtexScan extends Recorder {
 		return target;
 	}
 
+	private FilePath getWorkspace(final AbstractBuild<?, ?> build, final VirtualChannel channel) {
+		if (build.getWorkspace() == null) {
+			// May have a custom workspace set
+			return new FilePath(channel, build.getProject().getCustomWorkspace());
+		}
+		return build.getWorkspace();
+	}
+
 	public boolean isPluginConfigured() {
 		boolean serverIdConfigured = false;
 		boolean credentialsIdConfigured = false;
@@ -861,19 +1294,14 @@ public class PostBuildProtexScan extends Recorder {
 	 *            Host name of the protex instance that this plugin uses
 	 *
 	 *            This method "phones-home" to the internal BlackDuck
-	 *            Integrations server. Every time a build is kicked off,
+	 *            Integrations server. The call is made in the background by {@link ProtexPhoneHome}, at most once a day
+	 *            for each Protex host, Protex version and plugin version.
 	 */
-	public void bdPhoneHome(final String protexHostName, final String protexVersion)
-			throws IOException, PhoneHomeException, PropertiesLoaderException, ResourceException, JSONException {
+	public void bdPhoneHome(final String protexHostName, final String protexVersion) {
 		if (StringUtils.isNotBlank(protexHostName)) {
 			final String thirdPartyVersion = Jenkins.getVersion().toString();
 			final String pluginVersion = getDescriptor().getPluginVersion();
-			if (StringUtils.isNotBlank(thirdPartyVersion) && StringUtils.isNotBlank(pluginVersion)) {
-				final PhoneHomeClient phClient = new PhoneHomeClient();
-				phClient.callHomeIntegrations(null, protexHostName, BlackDuckName.PROTEX, protexVersion,
-						ThirdPartyName.JENKINS,
-						thirdPartyVersion, pluginVersion);
-			}
+			ProtexPhoneHome.getInstance().phoneHome(protexHostName, protexVersion, thirdPartyVersion, pluginVersion);
 		}
 	}
 
@@ -57,7 +57,6 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.cxf.transports.http.configuration.ProxyServerType;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -72,8 +71,10 @@ import org.xml.sax.SAXException;
 import com.blackducksoftware.integration.protex.ProtexFacade;
 import com.blackducksoftware.integration.protex.ProtexFacadeException;
 import com.blackducksoftware.integration.protex.ProtexServerInfo;
-import com.blackducksoftware.integration.protex.ProtexServerInfoDescriptor;
 import com.blackducksoftware.integration.protex.exceptions.ProtexCredentialsValidationException;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexConduitConfigurer;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadeKey;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadePool;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConnectionException;
 import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
@@ -127,12 +128,36 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 
 	private static final String SERVER_ID = "protexServerId";
 
+	private static final String FORM_MAX_CONCURRENT_SCANS = "protexPostServerMaxConcurrentScans";
+
+	private static final String FORM_CONNECT_TIMEOUT = "protexPostServerConnectTimeOut";
+
+	private static final String FORM_MAX_CONNECTIONS = "protexPostServerMaxConnections";
+
+	private static final String FORM_KEEP_ALIVE = "protexPostServerKeepAlive";
+
+	private static final String FORM_TLS_SESSION_CACHE_SIZE = "protexPostServerTlsSessionCacheSize";
+
+	private static final String FORM_OPERATION_TIMEOUT = "protexPostServerOperationTimeOut";
+
+	private static final String FORM_OPERATION_TIMEOUTS = "protexPostServerOperationTimeOuts";
+
+	private static final String FORM_CALL_BUDGET = "protexPostServerCallBudget";
+
+	private static final String FORM_LOG_LEVEL = "protexLogLevel";
+
+	// The levels that can be chosen, from the least to the most output
+	private static final LogLevel[] LOG_LEVELS = { LogLevel.ERROR, LogLevel.WARN, LogLevel.INFO, LogLevel.DEBUG, LogLevel.TRACE };
+
 	public static final String DEFAULT_TIMEOUT = "300";
 
 	public static final Double DEFAULT_MEMORY = 2.0;
 
 	private List<ProtexServerInfo> protexServers = new ArrayList<ProtexServerInfo>();
 
+	// Name of the LogLevel of the Protex build steps, null for INFO
+	private String protexLogLevel;
+
 	/**
 	 * In order to load the persisted global configuration, you have to call
 	 * load() in the constructor.
@@ -178,6 +203,14 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 		return DEFAULT_MEMORY;
 	}
 
+	public int getDefaultIncrementalMaxChangedPaths() {
+		return PostBuildProtexScan.DEFAULT_INCREMENTAL_MAX_CHANGED_PATHS;
+	}
+
+	public int getDefaultIncrementalFullScanInterval() {
+		return PostBuildProtexScan.DEFAULT_INCREMENTAL_FULL_SCAN_INTERVAL;
+	}
+
 	/**
 	 * Code from https://github.com/jenkinsci/jenkins/blob/master/core/src/main/java/hudson/model/AbstractItem.java#L602
 	 *
@@ -288,9 +321,19 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 									protexServerId = protexServerId.trim();
 								}
 							}
+							final String maxConcurrentScans = getElementValue(serverInfoElement, FORM_MAX_CONCURRENT_SCANS);
+							final String connectTimeout = getElementValue(serverInfoElement, FORM_CONNECT_TIMEOUT);
+							final String maxConnections = getElementValue(serverInfoElement, FORM_MAX_CONNECTIONS);
+							final String keepAlive = getElementValue(serverInfoElement, FORM_KEEP_ALIVE);
+							final String tlsSessionCacheSize = getElementValue(serverInfoElement, FORM_TLS_SESSION_CACHE_SIZE);
+							final String operationTimeout = getElementValue(serverInfoElement, FORM_OPERATION_TIMEOUT);
+							final String operationTimeouts = getElementValue(serverInfoElement, FORM_OPERATION_TIMEOUTS);
+							final String callBudget = getElementValue(serverInfoElement, FORM_CALL_BUDGET);
 							if (!StringUtils.isEmpty(serverName) && !StringUtils.isEmpty(serverUrl)) {
 								final ProtexServerInfo server = new ProtexServerInfo(serverName, serverUrl,
-										serverTimeout, protexServerId);
+										serverTimeout, protexServerId, maxConcurrentScans, connectTimeout, maxConnections,
+										keepAlive == null ? null : Boolean.valueOf(keepAlive), tlsSessionCacheSize, operationTimeout,
+										operationTimeouts, callBudget);
 								if (!isServerPresent(protexServers, server)) {
 									protexServers.add(server);
 								}
@@ -301,6 +344,12 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 			}
 		}
 
+		final Node protexLogLevelNode = doc.getElementsByTagName(FORM_LOG_LEVEL).item(0);
+		protexLogLevel = null;
+		if (protexLogLevelNode != null && protexLogLevelNode.getChildNodes() != null && protexLogLevelNode.getChildNodes().item(0) != null) {
+			protexLogLevel = StringUtils.trimToNull(protexLogLevelNode.getChildNodes().item(0).getNodeValue());
+		}
+
 		save();
 	}
 
@@ -312,80 +361,92 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 		// To persist global configuration information,
 		// set that to properties and call save().
 
+		final List<ProtexServerInfo> oldServers = protexServers;
 		protexServers = new ArrayList<ProtexServerInfo>();
 		final Object servers = formData.get(FORM_SERVERS);
 		if (servers != null) {
 			if (servers instanceof JSONObject) {
 				// Only one server defined
-				final JSONObject jsonObject = (JSONObject) servers;
-				String protexPostServerName = (String) jsonObject.get(FORM_SERVER_NAME);
-				if (protexPostServerName != null) {
-					protexPostServerName = protexPostServerName.trim();
-				}
 				// Name is unique because this is the only defined server
-				final String protexPostServerUrl = fixServerUrl((String) jsonObject.get(FORM_SERVER_URL));
-
-				String protexPostServerTimeOut = (String) jsonObject.get(FORM_TIMEOUT);
-				if (protexPostServerTimeOut != null) {
-					protexPostServerTimeOut = protexPostServerTimeOut.trim();
-				}
-				if (protexPostServerTimeOut == null || protexPostServerTimeOut.equals("") || protexPostServerTimeOut.equals("0")) {
-					protexPostServerTimeOut = DEFAULT_TIMEOUT;
-				}
-
-				String protexServerId = (String) jsonObject.get(SERVER_ID);
-				if (protexServerId != null) {
-					protexServerId = protexServerId.trim();
-				}
-				if ((!StringUtils.isEmpty(protexPostServerName) || !StringUtils.isEmpty(protexPostServerUrl)) && !StringUtils.isEmpty(protexPostServerUrl)) {
-					final ProtexServerInfo server = new ProtexServerInfo(protexPostServerName, protexPostServerUrl,
-							protexPostServerTimeOut, protexServerId);
-					if (!isServerPresent(protexServers, server)) {
-						protexServers.add(server);
-					}
-				}
+				addServer((JSONObject) servers);
 			}
 			if (servers instanceof JSONArray) {
 				// Multiple servers defined
 				final JSONArray jsonArray = (JSONArray) servers;
 				for (final Object o : jsonArray) {
-					final JSONObject jsonObject = (JSONObject) o;
-					String protexPostServerName = (String) jsonObject.get(FORM_SERVER_NAME);
-					if (protexPostServerName != null) {
-						protexPostServerName = protexPostServerName.trim();
-					}
-					final String protexPostServerUrl = fixServerUrl((String) jsonObject.get(FORM_SERVER_URL));
-
-					String protexPostServerTimeOut = (String) jsonObject.get(FORM_TIMEOUT);
-					if (protexPostServerTimeOut != null) {
-						protexPostServerTimeOut = protexPostServerTimeOut.trim();
-					}
-					if (protexPostServerTimeOut == null || protexPostServerTimeOut.equals("") || protexPostServerTimeOut.equals("0")) {
-						protexPostServerTimeOut = DEFAULT_TIMEOUT;
-					}
-					String protexServerId = (String) jsonObject.get(SERVER_ID);
-					if (protexServerId != null) {
-						protexServerId = protexServerId.trim();
-					}
-					if ((!StringUtils.isEmpty(protexPostServerName) || !StringUtils.isEmpty(protexPostServerUrl)) && !StringUtils.isEmpty(protexPostServerUrl)) {
-						final ProtexServerInfo server = new ProtexServerInfo(protexPostServerName, protexPostServerUrl,
-								protexPostServerTimeOut, protexServerId);
-						if (!isServerPresent(protexServers, server)) {
-							protexServers.add(server);
-						}
-					}
-
+					addServer((JSONObject) o);
 				}
 			}
 		}
 
+		protexLogLevel = StringUtils.trimToNull((String) formData.get(FORM_LOG_LEVEL));
+
 		// ^Can also use req.bindJSON(this, formData);
 		// (easier when there are many fields; need set* methods for this,
 		// like setUseFrench)
 		save();
+		if (oldServers != null) {
+			// The pooled facades were set up with the old server settings
+			for (final ProtexServerInfo oldServer : oldServers) {
+				ProtexFacadePool.getInstance().invalidateServer(oldServer.getProtexServerId());
+			}
+		}
+		ProtexConduitConfigurer.getInstance().refresh(protexServers);
 		return super.configure(req, formData);
 	}
 
+	private void addServer(final JSONObject jsonObject) {
+		String protexPostServerName = (String) jsonObject.get(FORM_SERVER_NAME);
+		if (protexPostServerName != null) {
+			protexPostServerName = protexPostServerName.trim();
+		}
+		final String protexPostServerUrl = fixServerUrl((String) jsonObject.get(FORM_SERVER_URL));
+
+		String protexPostServerTimeOut = (String) jsonObject.get(FORM_TIMEOUT);
+		if (protexPostServerTimeOut != null) {
+			protexPostServerTimeOut = protexPostServerTimeOut.trim();
+		}
+		if (protexPostServerTimeOut == null || protexPostServerTimeOut.equals("") || protexPostServerTimeOut.equals("0")) {
+			protexPostServerTimeOut = DEFAULT_TIMEOUT;
+		}
+		String protexServerId = (String) jsonObject.get(SERVER_ID);
+		if (protexServerId != null) {
+			protexServerId = protexServerId.trim();
+		}
+		final String protexPostServerMaxConcurrentScans = StringUtils.trimToNull((String) jsonObject.get(FORM_MAX_CONCURRENT_SCANS));
+		final String protexPostServerConnectTimeOut = StringUtils.trimToNull((String) jsonObject.get(FORM_CONNECT_TIMEOUT));
+		final String protexPostServerMaxConnections = StringUtils.trimToNull((String) jsonObject.get(FORM_MAX_CONNECTIONS));
+		Boolean protexPostServerKeepAlive = null;
+		if (jsonObject.has(FORM_KEEP_ALIVE)) {
+			protexPostServerKeepAlive = jsonObject.getBoolean(FORM_KEEP_ALIVE);
+		}
+		final String protexPostServerTlsSessionCacheSize = StringUtils.trimToNull((String) jsonObject.get(FORM_TLS_SESSION_CACHE_SIZE));
+		final String protexPostServerOperationTimeOut = StringUtils.trimToNull((String) jsonObject.get(FORM_OPERATION_TIMEOUT));
+		final String protexPostServerOperationTimeOuts = StringUtils.trimToNull((String) jsonObject.get(FORM_OPERATION_TIMEOUTS));
+		final String protexPostServerCallBudget = StringUtils.trimToNull((String) jsonObject.get(FORM_CALL_BUDGET));
+
+		if ((!StringUtils.isEmpty(protexPostServerName) || !StringUtils.isEmpty(protexPostServerUrl)) && !StringUtils.isEmpty(protexPostServerUrl)) {
+			final ProtexServerInfo server = new ProtexServerInfo(protexPostServerName, protexPostServerUrl,
+					protexPostServerTimeOut, protexServerId, protexPostServerMaxConcurrentScans, protexPostServerConnectTimeOut,
+					protexPostServerMaxConnections, protexPostServerKeepAlive, protexPostServerTlsSessionCacheSize, protexPostServerOperationTimeOut,
+					protexPostServerOperationTimeOuts, protexPostServerCallBudget);
+			if (!isServerPresent(protexServers, server)) {
+				protexServers.add(server);
+			}
+		}
+	}
+
+	/**
+	 * @return the trimmed text of the first child element with this tag name, null if there is none
+	 */
+	private String getElementValue(final Element element, final String tagName) {
+		final Node node = element.getElementsByTagName(tagName).item(0);
+		if (node == null || node.getChildNodes() == null || node.getChildNodes().item(0) == null) {
+			return null;
+		}
+		return StringUtils.trimToNull(node.getChildNodes().item(0).getNodeValue());
+	}
+
 	private String fixServerUrl(final String serverUrl) {
 		String newServerUrl = StringUtils.trimToNull(serverUrl);
 		if (newServerUrl != null) {
@@ -443,6 +504,48 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 		return protexServers;
 	}
 
+	public String getProtexLogLevel() {
+		return protexLogLevel;
+	}
+
+	/**
+	 * @return the global log level of the Protex build steps, INFO if it is not set
+	 */
+	public LogLevel getLogLevel() {
+		final LogLevel level = toLogLevel(protexLogLevel);
+		if (level == null) {
+			return LogLevel.INFO;
+		}
+		return level;
+	}
+
+	/**
+	 * @return the LogLevel with this name, null if the name is blank or not a known level
+	 */
+	public static LogLevel toLogLevel(final String name) {
+		if (StringUtils.isBlank(name)) {
+			return null;
+		}
+		for (final LogLevel level : LOG_LEVELS) {
+			if (level.name().equalsIgnoreCase(name.trim())) {
+				return level;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Used by the global configuration and by the job configuration, where the default is the global log level.
+	 */
+	public ListBoxModel doFillProtexLogLevelItems() {
+		final ListBoxModel boxModel = new ListBoxModel();
+		boxModel.add(Messages.ProtexPostScan_getDefaultLogLevel(), "");
+		for (final LogLevel level : LOG_LEVELS) {
+			boxModel.add(level.name(), level.name());
+		}
+		return boxModel;
+	}
+
 	public ListBoxModel doFillProtexServerIdItems() {
 
 		final ListBoxModel boxModel = new ListBoxModel();
@@ -680,44 +783,15 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				return FormValidation.ok();
 			}
 
+			ProtexFacade facade = null;
 			try {
-				Long timeout = null;
-				if (!StringUtils.isEmpty(currentServer.getProtexPostServerTimeOut())) {
-					timeout = Long.valueOf(currentServer.getProtexPostServerTimeOut());
-				} else {
-					timeout = Long.valueOf(ProtexServerInfoDescriptor.DEFAULT_TIMEOUT);
-				}
-				final ProtexFacade facade = new ProtexFacade(currentServer.getProtexPostServerUrl(), credentialUserName,
-						credentialPassword, timeout);
-
-				final Jenkins jenkins = Jenkins.getInstance();
-				if (jenkins != null && jenkins.proxy != null) {
-					final URL url = new URL(currentServer.getProtexPostServerUrl());
-					final Proxy proxy = ProxyConfiguration.createProxy(url.getHost(), jenkins.proxy.name, jenkins.proxy.port,
-							jenkins.proxy.noProxyHost);
-
-					if (proxy.address() != null) {
-						final InetSocketAddress proxyAddress = (InetSocketAddress) proxy.address();
-						if (!StringUtils.isEmpty(proxyAddress.getHostName()) && proxyAddress.getPort() != 0) {
-
-							if (StringUtils.isNotBlank(jenkins.proxy.getUserName()) && StringUtils.isNotBlank(jenkins.proxy.getPassword())) {
-								facade.setProxySettings(proxyAddress.getHostName(), proxyAddress.getPort(), ProxyServerType.HTTP, true,
-										jenkins.proxy.getUserName(),
-										jenkins.proxy.getPassword());
-							} else {
-								facade.setProxySettings(proxyAddress.getHostName(), proxyAddress.getPort(), ProxyServerType.HTTP, true);
-							}
-						}
-
-					}
-				}
-
-				facade.setLogger(new ProtexJenkinsLogger(null));
+				facade = getProtexFacade(currentServer, protexPostCredentials, credentialUserName, credentialPassword);
 
 				facade.validateConnection();
 
 			} catch (final ProtexCredentialsValidationException e) {
 				// IJP-118 Only showing relevant errors to this field
+				ProtexFacadePool.getInstance().invalidate(facade);
 				return FormValidation.error(e.getMessage());
 			} catch (final ServerConfigException e) {
 				// IJP-118
@@ -743,6 +817,8 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				} else {
 					return FormValidation.error(e.toString());
 				}
+			} finally {
+				ProtexFacadePool.getInstance().release(facade);
 			}
 		} finally {
 			if (changed) {
@@ -784,6 +860,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 			// ClassLoader originalClassLoader = Thread.currentThread()
 			// .getContextClassLoader();
 			// boolean changed = false;
+			ProtexFacade protexFacade = null;
 			try {
 
 				// if (PostBuildProtexScanDescriptor.class.getClassLoader() != originalClassLoader) {
@@ -829,8 +906,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 					return FormValidation.ok();
 				}
 
-				final ProtexFacade protexFacade = getProtexFacade(currentServer.getProtexPostServerUrl(), credentialUserName, credentialPassword,
-						Long.valueOf(currentServer.getProtexPostServerTimeOut()), LogLevel.TRACE);
+				protexFacade = getProtexFacade(currentServer, protexPostCredentials, credentialUserName, credentialPassword);
 
 				if (protexFacade.checkProjectExists(protexPostProjectName.trim())) {
 					return FormValidation.okWithMarkup(Messages.ProtexPostScan_getProjectAlreadyExists());
@@ -870,6 +946,8 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				} else {
 					return FormValidation.error(e.toString());
 				}
+			} finally {
+				ProtexFacadePool.getInstance().release(protexFacade);
 			}
 		} finally {
 			if (changed) {
@@ -902,6 +980,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				return FormValidation.warningWithMarkup(Messages.ProtexPostScan_getProjectTemplateNameCreateAtRuntime());
 			}
 
+			ProtexFacade protexFacade = null;
 			try {
 
 				if (StringUtils.isEmpty(protexPostCredentials)) {
@@ -943,8 +1022,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 					return FormValidation.ok();
 				}
 
-				final ProtexFacade protexFacade = getProtexFacade(currentServer.getProtexPostServerUrl(), credentialUserName, credentialPassword,
-						Long.valueOf(currentServer.getProtexPostServerTimeOut()), LogLevel.TRACE);
+				protexFacade = getProtexFacade(currentServer, protexPostCredentials, credentialUserName, credentialPassword);
 
 				if (protexFacade.checkProjectExists(protexPostTemplateProjectName.trim())) {
 					return FormValidation.okWithMarkup(Messages.ProtexPostScan_getProjectAlreadyExists());
@@ -984,6 +1062,8 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				} else {
 					return FormValidation.error(e.toString());
 				}
+			} finally {
+				ProtexFacadePool.getInstance().release(protexFacade);
 			}
 		} finally {
 			if (changed) {
@@ -1001,6 +1081,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 		final ClassLoader originalClassLoader = Thread.currentThread()
 				.getContextClassLoader();
 		boolean changed = false;
+		ProtexFacade protexFacade = null;
 		try {
 
 			if (PostBuildProtexScanDescriptor.class.getClassLoader() != originalClassLoader) {
@@ -1055,10 +1136,11 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				return FormValidation.error(Messages.ProtexPostScan_getPleaseChooseProtexServer());
 			}
 
-			final ProtexFacade protexFacade = getProtexFacade(currentServer.getProtexPostServerUrl(), credentialUserName, credentialPassword,
-					Long.valueOf(currentServer.getProtexPostServerTimeOut()), LogLevel.TRACE);
+			protexFacade = getProtexFacade(currentServer, protexPostCredentials, credentialUserName, credentialPassword);
 
 			protexFacade.createProtexProject(protexPostProjectName.trim(), protexPostTemplateProjectName.trim());
+			// The builds look the new project up again instead of using a cached missing entry
+			ProtexProjectCache.getInstance().invalidate(protexFacade, protexPostProjectName.trim());
 		} catch (final ProtexFacadeException e) {
 			if (e.getSdkFaultErrorCode() == null && e.getSdkFaultMessage() == null && e.getMessage().contains("already exists")) {
 				return FormValidation.ok(e.getMessage());
@@ -1086,6 +1168,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				return FormValidation.error(e.toString());
 			}
 		} finally {
+			ProtexFacadePool.getInstance().release(protexFacade);
 			// if (changed) {
 			// Thread.currentThread().setContextClassLoader(
 			// originalClassLoader);
@@ -1131,6 +1214,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 			return FormValidation.ok();
 		}
 
+		ProtexFacade protexFacade = null;
 		try {
 
 			if (StringUtils.isEmpty(protexPostCredentials)) {
@@ -1172,8 +1256,7 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 				return FormValidation.ok();
 			}
 
-			final ProtexFacade protexFacade = getProtexFacade(currentServer.getProtexPostServerUrl(), credentialUserName, credentialPassword,
-					Long.valueOf(currentServer.getProtexPostServerTimeOut()), LogLevel.TRACE);
+			protexFacade = getProtexFacade(currentServer, protexPostCredentials, credentialUserName, credentialPassword);
 
 			protexFacade.getReportTemplate(protexReportTemplate);
 
@@ -1206,38 +1289,21 @@ public class PostBuildProtexScanDescriptor extends BuildStepDescriptor<Publisher
 			} else {
 				return FormValidation.error(e.toString());
 			}
+		} finally {
+			ProtexFacadePool.getInstance().release(protexFacade);
 		}
 	}
 
-	public ProtexFacade getProtexFacade(final String protexUrl, final String userName, final String password, final Long timeout, final LogLevel loggingLevel) throws InvalidKeyException,
-	NoSuchAlgorithmException, NoSuchPaddingException, IllegalBlockSizeException, BadPaddingException, IOException, ServerConfigException {
-
-		final ProtexFacade facade = new ProtexFacade(protexUrl, userName,
-				password, timeout);
-		// facade.setAutoContextLoading(true);
-		facade.setLogger(new ProtexJenkinsLogger(null));
-
-		final Jenkins jenkins = Jenkins.getInstance();
-		if (jenkins != null && jenkins.proxy != null) {
-			final URL url = new URL(protexUrl);
-			final Proxy proxy = ProxyConfiguration.createProxy(url.getHost(), jenkins.proxy.name, jenkins.proxy.port,
-					jenkins.proxy.noProxyHost);
-			if (proxy.address() != null) {
-				final InetSocketAddress proxyAddress = (InetSocketAddress) proxy.address();
-				if (!StringUtils.isEmpty(proxyAddress.getHostName()) && proxyAddress.getPort() != 0) {
-
-					if (StringUtils.isNotBlank(jenkins.proxy.getUserName()) && StringUtils.isNotBlank(jenkins.proxy.getPassword())) {
-						facade.setProxySettings(proxyAddress.getHostName(), proxyAddress.getPort(), ProxyServerType.HTTP, true, jenkins.proxy.getUserName(),
-								jenkins.proxy.getPassword());
-					} else {
-						facade.setProxySettings(proxyAddress.getHostName(), proxyAddress.getPort(), ProxyServerType.HTTP, true);
-					}
-				}
-
-			}
-		}
-
-		return facade;
+	/**
+	 * Borrows a ProtexFacade from the {@link ProtexFacadePool} so the form validation does not login to the server for
+	 * every field. The caller must release it once it is done with it.
+	 *
+	 */
+	public ProtexFacade getProtexFacade(final ProtexServerInfo server, final String credentialsId, final String userName, final String password)
+			throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException, IllegalBlockSizeException, BadPaddingException, IOException,
+			ServerConfigException {
+		final ProtexFacadeKey key = ProtexFacadeKey.create(server, credentialsId, userName, password);
+		return ProtexFacadePool.getInstance().borrow(key, new ProtexJenkinsLogger(null));
 	}
 
 }
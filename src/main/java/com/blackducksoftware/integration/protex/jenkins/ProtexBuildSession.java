@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadePool;
+
+import hudson.model.InvisibleAction;
+
+/**
+ * Protex session of a build, attached by the {@link PostBuildProtexScan} so the {@link ProtexFailureStep} can reuse
+ * the logged in facade and the resolved project instead of looking them up again. The session owns the facade it
+ * holds, it gives it back to the {@link ProtexFacadePool} when the build completes, see
+ * {@link ProtexBuildSessionListener}.
+ *
+ * Nothing in the session is persisted with the build.
+ *
+ */
+public class ProtexBuildSession extends InvisibleAction {
+
+	private transient ProtexFacade facade;
+
+	private transient ProtexServerInfo server;
+
+	private transient String projectName;
+
+	private transient String projectId;
+
+	public ProtexBuildSession(final ProtexFacade facade, final ProtexServerInfo server, final String projectName, final String projectId) {
+		this.facade = facade;
+		this.server = server;
+		this.projectName = projectName;
+		this.projectId = projectId;
+	}
+
+	/**
+	 * @return true if the session still holds a usable facade, false once it is closed or after the build was reloaded
+	 */
+	public synchronized boolean isOpen() {
+		return facade != null;
+	}
+
+	public synchronized ProtexFacade getFacade() {
+		return facade;
+	}
+
+	public ProtexServerInfo getServer() {
+		return server;
+	}
+
+	public String getProjectName() {
+		return projectName;
+	}
+
+	public String getProjectId() {
+		return projectId;
+	}
+
+	/**
+	 * Gives the facade back to the pool.
+	 */
+	public synchronized void close() {
+		ProtexFacadePool.getInstance().release(facade);
+		facade = null;
+	}
+
+	/**
+	 * Drops the facade without giving it back to the pool, ex: after it failed to connect to the server.
+	 */
+	public synchronized void invalidate() {
+		ProtexFacadePool.getInstance().invalidate(facade);
+		facade = null;
+	}
+
+}
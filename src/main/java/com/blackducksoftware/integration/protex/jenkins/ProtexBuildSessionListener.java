@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Closes the {@link ProtexBuildSession} of a build once it completes, and removes it from the build.
+ *
+ */
+@Extension
+public class ProtexBuildSessionListener extends RunListener<AbstractBuild<?, ?>> {
+
+	@Override
+	public void onCompleted(final AbstractBuild<?, ?> build, final TaskListener listener) {
+		final ProtexBuildSession session = build.getAction(ProtexBuildSession.class);
+		if (session != null) {
+			session.close();
+			build.getActions().remove(session);
+		}
+	}
+
+}
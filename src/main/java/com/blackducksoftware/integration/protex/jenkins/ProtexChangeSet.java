@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import hudson.model.AbstractBuild;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.AffectedFile;
+import hudson.scm.EditType;
+import hudson.scm.NullSCM;
+
+/**
+ * Reads the paths changed by a build from its SCM change set, used by the incremental Protex scan to decide if the
+ * source path has to be analyzed again.
+ *
+ */
+public class ProtexChangeSet {
+
+	private final List<String> changedPaths;
+
+	private final int deletedPathCount;
+
+	ProtexChangeSet(final List<String> changedPaths, final int deletedPathCount) {
+		this.changedPaths = changedPaths;
+		this.deletedPathCount = deletedPathCount;
+	}
+
+	/**
+	 * Returns the change set of the build, or null if the build has no usable change set. ex: the job has no SCM, or
+	 * this is the first build so there is nothing to compare to.
+	 *
+	 * @param build
+	 *            AbstractBuild<?, ?>
+	 */
+	public static ProtexChangeSet fromBuild(final AbstractBuild<?, ?> build) {
+		if (build.getProject().getScm() == null || build.getProject().getScm() instanceof NullSCM) {
+			return null;
+		}
+		final ChangeLogSet<? extends ChangeLogSet.Entry> changeSet = build.getChangeSet();
+		if (changeSet == null || changeSet.isEmptySet()) {
+			return null;
+		}
+		final List<String> changedPaths = new ArrayList<String>();
+		int deletedPathCount = 0;
+		for (final ChangeLogSet.Entry entry : changeSet) {
+			for (final AffectedFile file : entry.getAffectedFiles()) {
+				if (StringUtils.isBlank(file.getPath())) {
+					continue;
+				}
+				changedPaths.add(normalize(file.getPath()));
+				if (file.getEditType() == EditType.DELETE) {
+					deletedPathCount++;
+				}
+			}
+		}
+		return new ProtexChangeSet(changedPaths, deletedPathCount);
+	}
+
+	/**
+	 * Returns the changes of all of the builds, or null if one of them has no usable change set.
+	 *
+	 * @param builds
+	 *            List<AbstractBuild<?, ?>>
+	 */
+	public static ProtexChangeSet fromBuilds(final List<AbstractBuild<?, ?>> builds) {
+		final List<String> changedPaths = new ArrayList<String>();
+		int deletedPathCount = 0;
+		for (final AbstractBuild<?, ?> build : builds) {
+			final ProtexChangeSet changeSet = fromBuild(build);
+			if (changeSet == null) {
+				return null;
+			}
+			changedPaths.addAll(changeSet.getChangedPaths());
+			deletedPathCount += changeSet.getDeletedPathCount();
+		}
+		return new ProtexChangeSet(changedPaths, deletedPathCount);
+	}
+
+	/**
+	 * @return the changed paths, including the deleted ones, with '/' as the separator
+	 */
+	public List<String> getChangedPaths() {
+		return changedPaths;
+	}
+
+	public int getDeletedPathCount() {
+		return deletedPathCount;
+	}
+
+	/**
+	 * Returns the changed paths that are under the source path. The SCM paths are relative to the repository root,
+	 * which is not always the workspace (ex: Subversion paths include the branch), so a path matches if the source
+	 * path appears anywhere in it as a directory.
+	 *
+	 * @param workspacePath
+	 *            String canonical path of the workspace
+	 * @param targetPath
+	 *            String canonical path of the Protex source path
+	 */
+	public List<String> getChangedPathsUnder(final String workspacePath, final String targetPath) {
+		final String relativeSourcePath = getRelativePath(workspacePath, targetPath);
+		if (StringUtils.isEmpty(relativeSourcePath)) {
+			// Scanning the whole workspace, every change counts
+			return changedPaths;
+		}
+		final List<String> matchingPaths = new ArrayList<String>();
+		for (final String path : changedPaths) {
+			final String rootedPath = "/" + StringUtils.removeStart(path, "/");
+			if (rootedPath.contains("/" + relativeSourcePath + "/") || rootedPath.endsWith("/" + relativeSourcePath)) {
+				matchingPaths.add(path);
+			}
+		}
+		return matchingPaths;
+	}
+
+	static String getRelativePath(final String workspacePath, final String targetPath) {
+		if (!targetPath.startsWith(workspacePath)) {
+			return null;
+		}
+		String relativePath = normalize(targetPath.substring(workspacePath.length()));
+		relativePath = StringUtils.removeStart(relativePath, "/");
+		return StringUtils.removeEnd(relativePath, "/");
+	}
+
+	private static String normalize(final String path) {
+		return path.replace(File.separatorChar, '/').replace('\\', '/');
+	}
+
+}
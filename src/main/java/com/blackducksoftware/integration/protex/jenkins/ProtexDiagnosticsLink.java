@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexConduitConfigurer;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadePool;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadeWarmup;
+
+/**
+ * Management page showing the runtime state of the plugin, ex: the Protex facade pool statistics.
+ *
+ */
+@Extension
+public class ProtexDiagnosticsLink extends ManagementLink {
+
+	@Override
+	public String getIconFileName() {
+		return "/plugin/protex-jenkins/images/blackduck.png";
+	}
+
+	@Override
+	public String getDisplayName() {
+		return Messages.ProtexDiagnosticsLink_getDisplayName();
+	}
+
+	@Override
+	public String getDescription() {
+		return Messages.ProtexDiagnosticsLink_getDescription();
+	}
+
+	@Override
+	public String getUrlName() {
+		return "protexdiagnostics";
+	}
+
+	public ProtexFacadePool getFacadePool() {
+		return ProtexFacadePool.getInstance();
+	}
+
+	public ProtexConduitConfigurer getConduitConfigurer() {
+		return ProtexConduitConfigurer.getInstance();
+	}
+
+	public ProtexFacadeWarmup getFacadeWarmup() {
+		return ProtexFacadeWarmup.getInstance();
+	}
+
+	public ProtexScanLimiter getScanLimiter() {
+		return ProtexScanLimiter.getInstance();
+	}
+
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.ProtexFacadeException;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
+import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
+import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConnectionException;
+
+/**
+ * The checks the {@link ProtexFailureStep} can run against the results of a scan. Each condition is one query against
+ * the Protex server, so the enabled conditions can be checked independently of each other.
+ */
+public enum ProtexFailureCondition {
+	PENDING_IDS("File(s) Pending Id") {
+		@Override
+		public long getCount(final ProtexFacade facade, final String projectId) throws ServerConnectionException, ProtexFacadeException,
+				ServerConfigException {
+			return facade.getPendingIds(projectId);
+		}
+
+		@Override
+		public Long getScanCount(final ProtexScanStatistics statistics) {
+			return statistics.getPendingIds();
+		}
+	},
+	LICENSE_VIOLATIONS("License Violation(s)") {
+		@Override
+		public long getCount(final ProtexFacade facade, final String projectId) throws ServerConnectionException, ProtexFacadeException,
+				ServerConfigException {
+			return facade.getViolationCount(projectId);
+		}
+	};
+
+	private final String description;
+
+	private ProtexFailureCondition(final String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Queries the Protex server for the number of items that violate this condition. The build fails on this condition
+	 * if the count is greater than zero.
+	 */
+	public abstract long getCount(ProtexFacade facade, String projectId) throws ServerConnectionException, ProtexFacadeException,
+			ServerConfigException;
+
+	/**
+	 * @return the count bdstool reported at the end of the scan for this condition, or null if the server has to be
+	 *         queried
+	 */
+	public Long getScanCount(final ProtexScanStatistics statistics) {
+		return null;
+	}
+
+	public String getFailureMessage(final long count) {
+		return "Failing the Build because there are  : " + count + ", " + description;
+	}
+
+}
@@ -30,34 +30,93 @@ import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Recorder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import com.blackducksoftware.integration.protex.ProtexFacade;
 import com.blackducksoftware.integration.protex.ProtexFacadeException;
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.protex.exceptions.ProtexTimeoutException;
+import com.blackducksoftware.integration.protex.jenkins.action.ProtexTimingAction;
+import com.blackducksoftware.integration.protex.jenkins.action.ScanMode;
 import com.blackducksoftware.integration.protex.jenkins.action.ScanRunAction;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexCallBudget;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadeKey;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadePool;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConnectionException;
-import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
 
 public class ProtexFailureStep extends Recorder {
 
+    /**
+     * The maximum number of Failure Condition queries that run at the same time, across all of the builds.
+     */
+    public static final int CHECK_THREADS = Integer.getInteger(ProtexFailureStep.class.getName() + ".checkThreads", 4);
+
+    /**
+     * How long all of the Failure Condition queries of one build may take together, including the time spent waiting for
+     * a free thread.
+     */
+    public static final long CHECK_TIMEOUT = TimeUnit.MINUTES.toMillis(Long.getLong(ProtexFailureStep.class.getName()
+            + ".checkTimeoutMinutes", 10));
+
+    /**
+     * How old the statistics of the scan of this build may be for the Failure Conditions to use them instead of asking
+     * the server.
+     */
+    public static final long STATISTICS_MAX_AGE = TimeUnit.MINUTES.toMillis(Long.getLong(ProtexFailureStep.class.getName()
+            + ".statisticsMaxAgeMinutes", 60));
+
+    private static final ThreadPoolExecutor CHECK_EXECUTOR = new ThreadPoolExecutor(CHECK_THREADS, CHECK_THREADS, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Protex failure condition check");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        CHECK_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     // Init Variables for Protex Plugin
 
     private final Boolean buildFailOnPendingIDPost;
 
     private final Boolean buildFailOnLicenseViolationPost;
 
-    private transient Result result;
+    private final Boolean buildFailFast;
+
+    public ProtexFailureStep(boolean buildFailOnPendingIDPost, boolean buildFailOnLicenseViolationPost) {
+        this(buildFailOnPendingIDPost, buildFailOnLicenseViolationPost, false);
+    }
 
     // Fields in config.jelly must match the parameter names in the
     // "DataBoundConstructor"
     @DataBoundConstructor
-    public ProtexFailureStep(boolean buildFailOnPendingIDPost, boolean buildFailOnLicenseViolationPost) {
+    public ProtexFailureStep(boolean buildFailOnPendingIDPost, boolean buildFailOnLicenseViolationPost, boolean buildFailFast) {
         // These are the fields for the plugin
 
         this.buildFailOnPendingIDPost = buildFailOnPendingIDPost;
         this.buildFailOnLicenseViolationPost = buildFailOnLicenseViolationPost;
+        this.buildFailFast = buildFailFast;
 
     }
 
@@ -74,15 +133,30 @@ public class ProtexFailureStep extends Recorder {
         return buildFailOnLicenseViolationPost;
     }
 
+    public boolean getBuildFailFast() {
+        // Jobs configured before this option existed have no value for it
+        return buildFailFast != null && buildFailFast;
+    }
+
+    /**
+     * @return the Failure Conditions the User has turned on for this job
+     */
+    public List<ProtexFailureCondition> getFailureConditions() {
+        List<ProtexFailureCondition> conditions = new ArrayList<ProtexFailureCondition>();
+        if (getBuildFailOnPendingIDPost()) {
+            conditions.add(ProtexFailureCondition.PENDING_IDS);
+        }
+        if (getBuildFailOnLicenseViolationPost()) {
+            conditions.add(ProtexFailureCondition.LICENSE_VIOLATIONS);
+        }
+        return conditions;
+    }
+
     @Override
     public ProtexFailureStepDescriptor getDescriptor() {
         return (ProtexFailureStepDescriptor) super.getDescriptor();
     }
 
-    private void setResult(Result result) {
-        this.result = result;
-    }
-
     /**
      * Overrides the Recorder perform method. This is the method that gets called by Jenkins to run as a Post Build
      * Action
@@ -100,9 +174,9 @@ public class ProtexFailureStep extends Recorder {
     @Override
     public boolean perform(AbstractBuild build, Launcher launcher,
             BuildListener listener) throws IOException, InterruptedException {
-        setResult(build.getResult());
+        // Builds of this job can run at the same time, so the result of this build is kept locally
+        final Result result = build.getResult();
         ProtexJenkinsLogger logger = new ProtexJenkinsLogger(listener);
-        logger.setLogLevel(LogLevel.DEBUG);
         if (result.equals(Result.SUCCESS)) {
 
             PostBuildProtexScan protexScan = (PostBuildProtexScan) build.getProject().getPublishersList().get(PostBuildProtexScan.class);
@@ -113,6 +187,8 @@ public class ProtexFailureStep extends Recorder {
                 build.setResult(Result.UNSTABLE);
                 return true;
             }
+            // Same log level as the scan of this job
+            logger.setLogLevel(protexScan.getLogLevel());
 
             ScanRunAction scanAction = build.getAction(ScanRunAction.class);
 
@@ -137,10 +213,32 @@ public class ProtexFailureStep extends Recorder {
                 return true;
             }
 
+            if (scanAction.getScanMode() == ScanMode.COALESCED) {
+                // The scan was coalesced into the scan of an earlier build, use the results of that build if it has them
+                Boolean passedChecks = checkCoveringScanConditions(build, logger, scanAction);
+                if (passedChecks != null) {
+                    if (!passedChecks) {
+                        build.setResult(Result.FAILURE);
+                        return true;
+                    }
+                    logger.info("Finished running Protex Failure Conditions.");
+                    build.setResult(result);
+                    return true;
+                }
+            }
+
             ClassLoader originalClassLoader = Thread.currentThread()
                     .getContextClassLoader();
 
             boolean changed = false;
+            ProtexFacade facade = null;
+            ProtexCallBudget callBudget = null;
+            ProtexTimingAction timing = ProtexTimingAction.getTimingAction(build);
+            long phaseStart = ProtexTimingAction.start();
+            ProtexBuildSession session = build.getAction(ProtexBuildSession.class);
+            if (session != null && !session.isOpen()) {
+                session = null;
+            }
             try {
 
                 if (PostBuildProtexScan.class.getClassLoader() != originalClassLoader) {
@@ -148,41 +246,72 @@ public class ProtexFailureStep extends Recorder {
                     Thread.currentThread().setContextClassLoader(PostBuildProtexScan.class.getClassLoader());
                 }
 
-                ProtexFacade facade = null;
-                try {
-                    facade = protexScan.getProtexFacade(logger);
-                    if (facade == null) {
-                        logger.error("There was a problem creating the ProtexFacade");
+                ProtexServerInfo server = protexScan.getProtexServerInfo(protexScan.getProtexServerId());
+                if (server != null && server.getCallBudgetMillis() != null) {
+                    // The scan step ended its own budget, this step gets a budget of its own
+                    callBudget = ProtexCallBudget.start(server.getCallBudgetMillis());
+                    logger.debug("The Protex server calls of this step may take " + server.getCallBudgetMillis() + " ms");
+                }
+
+                String projectId = null;
+                if (session != null) {
+                    // Reuse the facade and the project of the scan
+                    facade = session.getFacade();
+                    facade.setLogger(logger);
+                    projectId = session.getProjectId();
+                    logger.debug("Using the Protex session of the scan for the project : %s", session.getProjectName());
+                } else {
+                    try {
+                        facade = protexScan.getProtexFacade(logger);
+                        if (facade == null) {
+                            logger.error("There was a problem creating the ProtexFacade");
+                            build.setResult(Result.UNSTABLE);
+                            return true;
+                        }
+                    } catch (Exception e1) {
+                        // Catch all errors and print stack trace of any errors that
+                        // happened in creation of the ProtexFacade
+                        logger.error(e1);
                         build.setResult(Result.UNSTABLE);
                         return true;
                     }
-                } catch (Exception e1) {
-                    // Catch all errors and print stack trace of any errors that
-                    // happened in creation of the ProtexFacade
-                    logger.error(e1);
-                    build.setResult(Result.UNSTABLE);
-                    return true;
-                }
 
-                EnvVars variables = build.getEnvironment(listener);
+                    EnvVars variables = build.getEnvironment(listener);
 
-                String projectName = protexScan.handleVariableReplacement(build, logger, variables, protexScan.getProtexPostProjectName());
-                if (!build.getResult().equals(Result.SUCCESS)) {
-                    return true;
-                }
+                    String projectName = protexScan.handleVariableReplacement(build, logger, variables, protexScan.getProtexPostProjectName());
+                    if (!build.getResult().equals(Result.SUCCESS)) {
+                        return true;
+                    }
 
-                String projectId = facade.getProtexProjectId(projectName);
-                if (projectId == null) {
-                    logger.error("The project Id was returned as null");
-                    build.setResult(Result.UNSTABLE);
-                    return true;
+                    projectId = ProtexProjectCache.getInstance().getProjectId(facade, projectName);
+                    if (projectId == null) {
+                        logger.error("The project Id was returned as null");
+                        build.setResult(Result.UNSTABLE);
+                        return true;
+                    }
                 }
+                timing.stop(ProtexTimingAction.PHASE_FAILURE_SETUP, phaseStart);
                 logger.info("Checking the scan results against the Failure Conditions");
-                if (!checkProtexFailConditions(facade, logger, projectId)) {
+                phaseStart = ProtexTimingAction.start();
+                ProtexFacadeKey facadeKey = null;
+                try {
+                    facadeKey = protexScan.getProtexFacadeKey();
+                } catch (Exception e) {
+                    logger.debug("Could not get the ProtexFacadeKey, checking the Failure Conditions one after the other", e);
+                }
+                boolean passedChecks = checkProtexFailConditions(facade, facadeKey, logger, projectId, scanAction);
+                timing.stop(ProtexTimingAction.PHASE_FAILURE_CONDITIONS, phaseStart);
+                if (!passedChecks) {
                     build.setResult(Result.FAILURE);
                     return true;
                 }
             } catch (ServerConnectionException e) {
+                // Do not hand this facade out again
+                if (session != null) {
+                    session.invalidate();
+                } else {
+                    ProtexFacadePool.getInstance().invalidate(facade);
+                }
                 logger.error(e.getMessage(), e);
                 build.setResult(Result.UNSTABLE);
                 return true;
@@ -200,11 +329,29 @@ public class ProtexFailureStep extends Recorder {
                 logger.error(e.getMessage(), e);
                 build.setResult(Result.UNSTABLE);
                 return true;
+            } catch (ProtexTimeoutException e) {
+                logger.error(e.getMessage());
+                build.setResult(Result.UNSTABLE);
+                return true;
+            } catch (InterruptedException e) {
+                // The build was aborted, let Jenkins handle it
+                throw e;
             } catch (Exception e) {
                 logger.error(e.getMessage(), e);
                 build.setResult(Result.UNSTABLE);
                 return true;
             } finally {
+                if (session == null) {
+                    ProtexFacadePool.getInstance().release(facade);
+                }
+                if (callBudget != null) {
+                    ProtexCallBudget.end();
+                    if (callBudget.isExhausted()) {
+                        logger.error("The Protex server calls of this step used up their time budget of " + callBudget.getBudget() + " ms");
+                    } else {
+                        logger.debug("The Protex server calls of this step took " + callBudget.getSpent() + " ms");
+                    }
+                }
                 if (changed) {
                     Thread.currentThread().setContextClassLoader(
                             originalClassLoader);
@@ -222,32 +369,284 @@ public class ProtexFailureStep extends Recorder {
     /**
      * Check the results of the Protex Scan against the Failure Conditions that the User has set.
      *
+     * The enabled conditions are queried at the same time and their results are handled in the order they complete. If
+     * the build should fail fast, the remaining queries are cancelled as soon as one condition fails. All of the queries
+     * together have to finish within {@link #CHECK_TIMEOUT}.
+     *
      * @return true if passed the checks, false otherwise
      * @throws ServerConfigException
      * @throws ProtexFacadeException
      * @throws ServerConnectionException
+     * @throws ProtexTimeoutException
+     *             if the queries did not finish in time
+     * @throws InterruptedException
      */
     public Boolean checkProtexFailConditions(ProtexFacade facade, ProtexJenkinsLogger logger, String projectId) throws ServerConnectionException,
             ProtexFacadeException,
-            ServerConfigException {
+            ServerConfigException, ProtexTimeoutException, InterruptedException {
+        return checkProtexFailConditions(facade, logger, projectId, null);
+    }
+
+    /**
+     * Same as {@link #checkProtexFailConditions(ProtexFacade, ProtexJenkinsLogger, String)}, also records the count
+     * of each condition that was checked in the scanAction so builds coalesced into this scan can reuse them. The
+     * conditions that bdstool reported on at the end of the scan are taken from the statistics of the scanAction while
+     * they are less than {@link #STATISTICS_MAX_AGE} old.
+     */
+    public Boolean checkProtexFailConditions(ProtexFacade facade, ProtexJenkinsLogger logger, String projectId, ScanRunAction scanAction)
+            throws ServerConnectionException, ProtexFacadeException, ServerConfigException, ProtexTimeoutException, InterruptedException {
+        return checkProtexFailConditions(facade, null, logger, projectId, scanAction);
+    }
+
+    /**
+     * Same as {@link #checkProtexFailConditions(ProtexFacade, ProtexJenkinsLogger, String, ScanRunAction)}.
+     *
+     * A facade is only used by one query at a time. The other queries run on facades borrowed from the
+     * {@link ProtexFacadePool} with the facadeKey, without a key the queries run one after the other. A facade whose
+     * query was cancelled, or did not finish in time, may still be waiting on the server so it is invalidated instead of
+     * being handed out again.
+     */
+    public Boolean checkProtexFailConditions(ProtexFacade facade, ProtexFacadeKey facadeKey, ProtexJenkinsLogger logger, String projectId,
+            ScanRunAction scanAction) throws ServerConnectionException, ProtexFacadeException, ServerConfigException, ProtexTimeoutException,
+            InterruptedException {
         boolean passedChecks = true;
-        if (getBuildFailOnPendingIDPost() || getBuildFailOnLicenseViolationPost()) {
-            if (getBuildFailOnPendingIDPost()) {
-                long pendingIds = facade.getPendingIds(projectId);
-                if (pendingIds > 0) {
-                    logger.error("Failing the Build because there are  : " + pendingIds + ", File(s) Pending Id");
+        // Conditions bdstool already reported on do not need a query
+        ProtexScanStatistics statistics = getFreshStatistics(scanAction);
+        LinkedList<ProtexFailureCondition> conditions = new LinkedList<ProtexFailureCondition>();
+        for (ProtexFailureCondition condition : getFailureConditions()) {
+            Long count = null;
+            if (statistics != null) {
+                count = condition.getScanCount(statistics);
+            }
+            if (count == null) {
+                conditions.add(condition);
+                continue;
+            }
+            logger.debug("Using the %s reported by the scan : %d", condition.getDescription(), count);
+            scanAction.setConditionCount(condition, count);
+            if (count > 0) {
+                logger.error(condition.getFailureMessage(count));
+                passedChecks = false;
+                if (getBuildFailFast()) {
+                    return false;
+                }
+            }
+        }
+        if (conditions.isEmpty()) {
+            return passedChecks;
+        }
+        CompletionService<ConditionResult> completionService = new ExecutorCompletionService<ConditionResult>(CHECK_EXECUTOR);
+        // The facade each running query uses
+        Map<Future<ConditionResult>, ProtexFacade> running = new HashMap<Future<ConditionResult>, ProtexFacade>();
+        List<ProtexFacade> borrowedFacades = new ArrayList<ProtexFacade>();
+        boolean completed = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CHECK_TIMEOUT);
+        try {
+            running.put(completionService.submit(new ConditionCheck(conditions.removeFirst(), facade, projectId)), facade);
+            while (!conditions.isEmpty() && facadeKey != null) {
+                ProtexFacade borrowedFacade = borrowFacade(facadeKey, logger);
+                if (borrowedFacade == null) {
+                    break;
+                }
+                borrowedFacades.add(borrowedFacade);
+                running.put(completionService.submit(new ConditionCheck(conditions.removeFirst(), borrowedFacade, projectId)), borrowedFacade);
+            }
+            while (!running.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                Future<ConditionResult> done = null;
+                if (remaining > 0) {
+                    done = completionService.poll(remaining, TimeUnit.NANOSECONDS);
+                }
+                if (done == null) {
+                    throw new ProtexTimeoutException("The Failure Conditions were not checked within " + TimeUnit.MILLISECONDS.toSeconds(CHECK_TIMEOUT)
+                            + " seconds.");
+                }
+                ProtexFacade doneFacade = running.remove(done);
+                ConditionResult conditionResult = getConditionResult(done);
+                logger.debug("Checking %s took %d ms", conditionResult.getCondition().getDescription(), conditionResult.getDuration());
+                if (scanAction != null) {
+                    scanAction.setConditionCount(conditionResult.getCondition(), conditionResult.getCount());
+                }
+                if (conditionResult.getCount() > 0) {
+                    logger.error(conditionResult.getCondition().getFailureMessage(conditionResult.getCount()));
                     passedChecks = false;
+                    if (getBuildFailFast()) {
+                        break;
+                    }
+                }
+                if (!conditions.isEmpty()) {
+                    // The facade is free again
+                    running.put(completionService.submit(new ConditionCheck(conditions.removeFirst(), doneFacade, projectId)), doneFacade);
+                }
+            }
+            completed = true;
+        } finally {
+            // Stop whatever is still running, the result has been decided. Cancelling does not stop a call that is
+            // blocked on the server, so these facades must not be used again.
+            for (Map.Entry<Future<ConditionResult>, ProtexFacade> entry : running.entrySet()) {
+                entry.getKey().cancel(true);
+                ProtexFacadePool.getInstance().invalidate(entry.getValue());
+            }
+            for (ProtexFacade borrowedFacade : borrowedFacades) {
+                if (completed) {
+                    // Ignored by the pool if it was invalidated above
+                    ProtexFacadePool.getInstance().release(borrowedFacade);
+                } else {
+                    ProtexFacadePool.getInstance().invalidate(borrowedFacade);
                 }
             }
+        }
+        return passedChecks;
+    }
 
-            if (getBuildFailOnLicenseViolationPost()) {
-                long licenseViolations = facade.getViolationCount(projectId);
-                if (licenseViolations > 0) {
-                    logger.error("Failing the Build because there are  : " + licenseViolations + ", License Violation(s)");
-                    passedChecks = false;
+    /**
+     * Borrows another facade for the Failure Condition queries.
+     *
+     * @return the facade, or null if none could be borrowed and the queries have to share the facades they have
+     */
+    protected ProtexFacade borrowFacade(ProtexFacadeKey facadeKey, ProtexJenkinsLogger logger) {
+        try {
+            return ProtexFacadePool.getInstance().borrow(facadeKey, logger);
+        } catch (Exception e) {
+            logger.debug("Could not borrow another ProtexFacade, checking the Failure Conditions one after the other", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the statistics of the scan of this build if they are recent enough to be used, null otherwise
+     */
+    private ProtexScanStatistics getFreshStatistics(ScanRunAction scanAction) {
+        if (scanAction == null || scanAction.getScanStatistics() == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - scanAction.getStatisticsTimestamp() >= STATISTICS_MAX_AGE) {
+            return null;
+        }
+        return scanAction.getScanStatistics();
+    }
+
+    /**
+     * Checks the Failure Conditions against the results recorded by the build whose scan covers this coalesced build.
+     *
+     * @return true if passed the checks, false otherwise, null if the covering build does not have the results of every
+     *         condition and the server has to be asked
+     */
+    public Boolean checkCoveringScanConditions(AbstractBuild<?, ?> build, ProtexJenkinsLogger logger, ScanRunAction scanAction) {
+        Integer coveringBuildNumber = scanAction.getCoveringBuildNumber();
+        if (coveringBuildNumber == null) {
+            return null;
+        }
+        AbstractBuild<?, ?> coveringBuild = build.getProject().getBuildByNumber(coveringBuildNumber);
+        ScanRunAction coveringScan = null;
+        if (coveringBuild != null) {
+            coveringScan = coveringBuild.getAction(ScanRunAction.class);
+        }
+        List<ProtexFailureCondition> conditions = getFailureConditions();
+        for (ProtexFailureCondition condition : conditions) {
+            if (coveringScan == null || coveringScan.getConditionCount(condition) == null) {
+                logger.debug("Build #%d has no results for %s, checking against the server.", coveringBuildNumber, condition.getDescription());
+                return null;
+            }
+        }
+        logger.info("Checking the results of the Protex scan of build #" + coveringBuildNumber + " against the Failure Conditions");
+        boolean passedChecks = true;
+        for (ProtexFailureCondition condition : conditions) {
+            long count = coveringScan.getConditionCount(condition);
+            if (count > 0) {
+                logger.error(condition.getFailureMessage(count));
+                passedChecks = false;
+                if (getBuildFailFast()) {
+                    break;
                 }
             }
         }
         return passedChecks;
     }
+
+    private ConditionResult getConditionResult(Future<ConditionResult> future) throws ServerConnectionException, ProtexFacadeException,
+            ServerConfigException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ServerConnectionException) {
+                throw (ServerConnectionException) cause;
+            } else if (cause instanceof ProtexFacadeException) {
+                throw (ProtexFacadeException) cause;
+            } else if (cause instanceof ServerConfigException) {
+                throw (ServerConfigException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Runs the query of one Failure Condition on the shared executor, charged to the budget of the thread that created
+     * it.
+     */
+    private static class ConditionCheck implements Callable<ConditionResult> {
+        private final ProtexFailureCondition condition;
+
+        private final ProtexFacade facade;
+
+        private final String projectId;
+
+        private final ProtexCallBudget callBudget;
+
+        public ConditionCheck(ProtexFailureCondition condition, ProtexFacade facade, String projectId) {
+            this.condition = condition;
+            this.facade = facade;
+            this.projectId = projectId;
+            callBudget = ProtexCallBudget.current();
+        }
+
+        @Override
+        public ConditionResult call() throws Exception {
+            Thread thread = Thread.currentThread();
+            ClassLoader originalClassLoader = thread.getContextClassLoader();
+            // The Protex SDK needs the plugin classes, same as in perform
+            thread.setContextClassLoader(PostBuildProtexScan.class.getClassLoader());
+            // The executor threads are shared by the builds, the budget only applies to this query
+            ProtexCallBudget.set(callBudget);
+            try {
+                long start = System.nanoTime();
+                long count = condition.getCount(facade, projectId);
+                return new ConditionResult(condition, count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } finally {
+                ProtexCallBudget.end();
+                thread.setContextClassLoader(originalClassLoader);
+            }
+        }
+    }
+
+    private static class ConditionResult {
+        private final ProtexFailureCondition condition;
+
+        private final long count;
+
+        private final long duration;
+
+        public ConditionResult(ProtexFailureCondition condition, long count, long duration) {
+            this.condition = condition;
+            this.count = count;
+            this.duration = duration;
+        }
+
+        public ProtexFailureCondition getCondition() {
+            return condition;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+    }
 }
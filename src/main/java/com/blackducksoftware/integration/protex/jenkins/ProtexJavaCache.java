@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.JDK;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import hudson.remoting.VirtualChannel;
+import hudson.tools.ToolDescriptor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Plugin wide cache of the Java executable the scan runs with, per Node channel and JDK selection. Finding the Java
+ * of a JDK can install the tool on the Node and checks the executable exists on the Node, this only has to happen
+ * once per Node connection.
+ *
+ * When a Node reconnects it gets a new channel, so the Java is resolved again and the old entries go away with the old
+ * channel. All of the entries are dropped when the tool installations or the global configuration are saved.
+ *
+ */
+public class ProtexJavaCache {
+
+	private static final ProtexJavaCache INSTANCE = new ProtexJavaCache();
+
+	private final Map<VirtualChannel, Map<String, ResolvedJava>> javas = new WeakHashMap<VirtualChannel, Map<String, ResolvedJava>>();
+
+	public static ProtexJavaCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param jdk
+	 *            JDK selected in the job, may be null
+	 * @return the key of the JDK selection
+	 */
+	public static String getKey(final JDK jdk) {
+		if (jdk == null) {
+			return "";
+		}
+		return jdk.getName() + "|" + jdk.getHome();
+	}
+
+	/**
+	 * @return the Java resolved for this JDK selection on the Node, null if it is not cached
+	 */
+	public ResolvedJava get(final VirtualChannel channel, final String key) {
+		synchronized (javas) {
+			final Map<String, ResolvedJava> nodeJavas = javas.get(channel);
+			if (nodeJavas == null) {
+				return null;
+			}
+			return nodeJavas.get(key);
+		}
+	}
+
+	public void put(final VirtualChannel channel, final String key, final ResolvedJava java) {
+		synchronized (javas) {
+			Map<String, ResolvedJava> nodeJavas = javas.get(channel);
+			if (nodeJavas == null) {
+				nodeJavas = new HashMap<String, ResolvedJava>();
+				javas.put(channel, nodeJavas);
+			}
+			nodeJavas.put(key, java);
+		}
+	}
+
+	/**
+	 * Drops the entries of the Node, ex: when bdstool failed with the cached Java, which may have been moved or removed.
+	 */
+	public void invalidate(final VirtualChannel channel) {
+		synchronized (javas) {
+			javas.remove(channel);
+		}
+	}
+
+	public void clear() {
+		synchronized (javas) {
+			javas.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (javas) {
+			int size = 0;
+			for (final Map<String, ResolvedJava> nodeJavas : javas.values()) {
+				size += nodeJavas.size();
+			}
+			return size;
+		}
+	}
+
+	public static class ResolvedJava {
+		private final String javaName;
+
+		private final String javaPath;
+
+		public ResolvedJava(final String javaName, final String javaPath) {
+			this.javaName = javaName;
+			this.javaPath = javaPath;
+		}
+
+		public String getJavaName() {
+			return javaName;
+		}
+
+		/**
+		 * @return the path of the Java executable on the Node
+		 */
+		public String getJavaPath() {
+			return javaPath;
+		}
+	}
+
+	/**
+	 * Drops the cached Javas when a JDK installation may have changed.
+	 *
+	 */
+	@Extension
+	public static class ToolChangeListener extends SaveableListener {
+
+		@Override
+		public void onChange(final Saveable o, final XmlFile file) {
+			if (o instanceof Jenkins || o instanceof ToolDescriptor) {
+				getInstance().clear();
+			}
+		}
+
+	}
+
+}
@@ -23,10 +23,14 @@ package com.blackducksoftware.integration.protex.jenkins;
 
 import hudson.model.BuildListener;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
 
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexBatchingLogStream;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexLogSink;
 import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
 import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
 
@@ -36,6 +40,11 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
 
     private LogLevel level = LogLevel.INFO; // default is INFO
 
+    // Only set on the Node while a scan is running, see startBatching
+    private transient ProtexBatchingLogStream batchingStream;
+
+    private transient PrintStream batchingPrintStream;
+
     public ProtexJenkinsLogger(BuildListener jenkinsLogger) {
         this.jenkinsLogger = jenkinsLogger;
     }
@@ -44,6 +53,57 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         return jenkinsLogger;
     }
 
+    /**
+     * Sends the log lines to the sink in compressed chunks instead of one remoting call per line, until
+     * {@link #stopBatching()} is called. Used on the Node while the scan is running.
+     *
+     * @param sink
+     *            ProtexLogSink exported by the master
+     */
+    public synchronized void startBatching(ProtexLogSink sink) {
+        if (jenkinsLogger == null || sink == null || batchingStream != null) {
+            return;
+        }
+        batchingStream = new ProtexBatchingLogStream(sink, jenkinsLogger.getLogger());
+        batchingPrintStream = new PrintStream(batchingStream, false);
+    }
+
+    /**
+     * Sends the remaining batched lines and goes back to writing each line to the BuildListener.
+     */
+    public synchronized void stopBatching() throws IOException {
+        if (batchingStream == null) {
+            return;
+        }
+        batchingPrintStream.flush();
+        try {
+            batchingStream.close();
+        } finally {
+            batchingStream = null;
+            batchingPrintStream = null;
+        }
+    }
+
+    public synchronized boolean isBatching() {
+        return batchingStream != null;
+    }
+
+    private synchronized PrintStream getStream() {
+        if (batchingPrintStream != null) {
+            return batchingPrintStream;
+        }
+        return jenkinsLogger.getLogger();
+    }
+
+    private synchronized void printError(String txt) {
+        if (batchingPrintStream != null) {
+            // Same format as BuildListener.error
+            batchingPrintStream.println("ERROR: " + txt);
+        } else {
+            jenkinsLogger.error(txt);
+        }
+    }
+
     @Override
     public void setLogLevel(LogLevel level) {
         this.level = level;
@@ -54,12 +114,27 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         return level;
     }
 
+    /**
+     * @return true if messages at the given level are logged, use this before building expensive messages
+     */
+    public boolean isLoggable(LogLevel messageLevel) {
+        return LogLevel.isLoggable(level, messageLevel);
+    }
+
+    public boolean isDebugEnabled() {
+        return isLoggable(LogLevel.DEBUG);
+    }
+
+    public boolean isTraceEnabled() {
+        return isLoggable(LogLevel.TRACE);
+    }
+
     @Override
     public void debug(String txt) {
         if (LogLevel.isLoggable(level, LogLevel.DEBUG)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.getLogger().println("[DEBUG] " + txt);
+                    getStream().println("[DEBUG] " + txt);
                 } else {
                     System.out.println("[DEBUG] " + txt);
                 }
@@ -72,7 +147,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         if (LogLevel.isLoggable(level, LogLevel.DEBUG)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.error("[DEBUG] " + txt);
+                    printError("[DEBUG] " + txt);
                 } else {
                     System.err.println("[DEBUG] " + txt);
                 }
@@ -81,7 +156,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
                 StringWriter sw = new StringWriter();
                 t.printStackTrace(new PrintWriter(sw));
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.error("[DEBUG] " + sw.toString());
+                    printError("[DEBUG] " + sw.toString());
                 } else {
                     System.err.println("[DEBUG] " + sw.toString());
                 }
@@ -96,7 +171,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
                 StringWriter sw = new StringWriter();
                 e.printStackTrace(new PrintWriter(sw));
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.error("[ERROR] " + sw.toString());
+                    printError("[ERROR] " + sw.toString());
                 } else {
                     System.err.println("[ERROR] " + sw.toString());
                 }
@@ -109,7 +184,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         if (LogLevel.isLoggable(level, LogLevel.ERROR)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.error("[ERROR] " + txt);
+                    printError("[ERROR] " + txt);
                 } else {
                     System.err.println("[ERROR] " + txt);
                 }
@@ -123,7 +198,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         if (LogLevel.isLoggable(level, LogLevel.ERROR)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.error("[ERROR] " + txt);
+                    printError("[ERROR] " + txt);
                 } else {
                     System.err.println("[ERROR] " + txt);
                 }
@@ -132,7 +207,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
                 StringWriter sw = new StringWriter();
                 e.printStackTrace(new PrintWriter(sw));
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.error("[ERROR] " + sw.toString());
+                    printError("[ERROR] " + sw.toString());
                 } else {
                     System.err.println("[ERROR] " + sw.toString());
                 }
@@ -145,7 +220,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         if (LogLevel.isLoggable(level, LogLevel.INFO)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.getLogger().println("[INFO] " + txt);
+                    getStream().println("[INFO] " + txt);
                 } else {
                     System.out.println("[INFO] " + txt);
                 }
@@ -158,7 +233,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         if (LogLevel.isLoggable(level, LogLevel.TRACE)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.getLogger().println("[TRACE] " + txt);
+                    getStream().println("[TRACE] " + txt);
                 } else {
                     System.out.println("[TRACE] " + txt);
                 }
@@ -171,7 +246,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         if (LogLevel.isLoggable(level, LogLevel.TRACE)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.getLogger().println("[TRACE] " + txt);
+                    getStream().println("[TRACE] " + txt);
                 } else {
                     System.out.println("[TRACE] " + txt);
                 }
@@ -180,7 +255,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
                 StringWriter sw = new StringWriter();
                 e.printStackTrace(new PrintWriter(sw));
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.getLogger().println("[TRACE] " + sw.toString());
+                    getStream().println("[TRACE] " + sw.toString());
                 } else {
                     System.out.println("[TRACE] " + sw.toString());
                 }
@@ -193,7 +268,7 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         if (LogLevel.isLoggable(level, LogLevel.WARN)) {
             if (txt != null) {
                 if (jenkinsLogger != null) {
-                    jenkinsLogger.getLogger().println("[WARN] " + txt);
+                    getStream().println("[WARN] " + txt);
                 } else {
                     System.out.println("[WARN] " + txt);
                 }
@@ -201,4 +276,61 @@ public class ProtexJenkinsLogger implements IntLogger, Serializable {
         }
     }
 
+    /**
+     * Logs the message at TRACE. The message is only formatted, see {@link String#format(String, Object...)}, if TRACE
+     * is enabled.
+     */
+    public void trace(String format, Object... args) {
+        if (isLoggable(LogLevel.TRACE)) {
+            trace(format(format, args));
+        }
+    }
+
+    /**
+     * Logs the message at DEBUG. The message is only formatted, see {@link String#format(String, Object...)}, if DEBUG
+     * is enabled.
+     */
+    public void debug(String format, Object... args) {
+        if (isLoggable(LogLevel.DEBUG)) {
+            debug(format(format, args));
+        }
+    }
+
+    /**
+     * Logs the message at INFO. The message is only formatted, see {@link String#format(String, Object...)}, if INFO
+     * is enabled.
+     */
+    public void info(String format, Object... args) {
+        if (isLoggable(LogLevel.INFO)) {
+            info(format(format, args));
+        }
+    }
+
+    /**
+     * Logs the message at WARN. The message is only formatted, see {@link String#format(String, Object...)}, if WARN
+     * is enabled.
+     */
+    public void warn(String format, Object... args) {
+        if (isLoggable(LogLevel.WARN)) {
+            warn(format(format, args));
+        }
+    }
+
+    /**
+     * Logs the message at ERROR. The message is only formatted, see {@link String#format(String, Object...)}, if ERROR
+     * is enabled.
+     */
+    public void error(String format, Object... args) {
+        if (isLoggable(LogLevel.ERROR)) {
+            error(format(format, args));
+        }
+    }
+
+    private static String format(String format, Object... args) {
+        if (format == null || args == null || args.length == 0) {
+            return format;
+        }
+        return String.format(format, args);
+    }
+
 }
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import hudson.Extension;
+import hudson.model.Node;
+import hudson.slaves.NodeProperty;
+import hudson.slaves.NodePropertyDescriptor;
+
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Per Node settings of the Protex plugin. The host name is sent to Protex as the analysis host of the scans run on
+ * this Node, instead of the host name the Node resolves itself.
+ *
+ */
+public class ProtexNodeProperty extends NodeProperty<Node> {
+
+	private final String hostName;
+
+	@DataBoundConstructor
+	public ProtexNodeProperty(final String hostName) {
+		this.hostName = StringUtils.trimToNull(hostName);
+	}
+
+	public String getHostName() {
+		return hostName;
+	}
+
+	/**
+	 * @return the host name override of the Node, null if the Node has none
+	 */
+	public static String getHostName(final Node node) {
+		if (node == null) {
+			return null;
+		}
+		final ProtexNodeProperty property = node.getNodeProperties().get(ProtexNodeProperty.class);
+		if (property == null) {
+			return null;
+		}
+		return property.getHostName();
+	}
+
+	@Extension
+	public static final class DescriptorImpl extends NodePropertyDescriptor {
+
+		@Override
+		public String getDisplayName() {
+			return Messages.ProtexNodeProperty_getDisplayName();
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.blackducksoftware.integration.phone.home.PhoneHomeClient;
+import com.blackducksoftware.integration.phone.home.enums.BlackDuckName;
+import com.blackducksoftware.integration.phone.home.enums.ThirdPartyName;
+
+/**
+ * Plugin wide phone-home to the Black Duck Integrations server. The calls run on a single background thread so a slow
+ * or unreachable phone-home server never holds up a build, and each combination of Protex host, Protex version and
+ * plugin version is reported at most once per interval.
+ *
+ * The Protex version of each host is remembered for the same interval, so the builds only have to ask the Protex server
+ * for it when a phone-home may be due.
+ *
+ * The interval can be tuned with the system property
+ * <tt>com.blackducksoftware.integration.protex.jenkins.ProtexPhoneHome.intervalHours</tt>.
+ *
+ */
+public class ProtexPhoneHome {
+
+	private static final Logger LOGGER = Logger.getLogger(ProtexPhoneHome.class.getName());
+
+	public static final long DEFAULT_INTERVAL = TimeUnit.HOURS.toMillis(Long.getLong(ProtexPhoneHome.class.getName() + ".intervalHours", 24));
+
+	/**
+	 * The phone-home calls that may wait for the background thread, any more are dropped.
+	 */
+	private static final int MAX_QUEUED_CALLS = 16;
+
+	private static final ProtexPhoneHome INSTANCE = new ProtexPhoneHome(DEFAULT_INTERVAL);
+
+	private final long interval;
+
+	private final ExecutorService executor;
+
+	/**
+	 * When each Protex host, Protex version and plugin version was last reported.
+	 */
+	private final Map<String, Long> lastCalls = new HashMap<String, Long>();
+
+	private final Map<String, CachedVersion> protexVersions = new HashMap<String, CachedVersion>();
+
+	private final AtomicLong callCount = new AtomicLong();
+
+	private final AtomicLong failureCount = new AtomicLong();
+
+	public ProtexPhoneHome(final long interval) {
+		this.interval = interval;
+		final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(MAX_QUEUED_CALLS), new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r, "Protex phone-home");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}, new ThreadPoolExecutor.AbortPolicy());
+		threadPool.allowCoreThreadTimeOut(true);
+		executor = threadPool;
+	}
+
+	public static ProtexPhoneHome getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param protexHostName
+	 *            Host name of the Protex server
+	 * @return the Protex version of this host if it is still known from a previous build, null otherwise
+	 */
+	public String getProtexVersion(final String protexHostName) {
+		synchronized (protexVersions) {
+			final CachedVersion cached = protexVersions.get(protexHostName);
+			if (cached == null || System.currentTimeMillis() - cached.getTimestamp() >= interval) {
+				return null;
+			}
+			return cached.getVersion();
+		}
+	}
+
+	public void setProtexVersion(final String protexHostName, final String protexVersion) {
+		if (StringUtils.isBlank(protexHostName) || StringUtils.isBlank(protexVersion)) {
+			return;
+		}
+		synchronized (protexVersions) {
+			protexVersions.put(protexHostName, new CachedVersion(protexVersion, System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Queues the phone-home call if this combination has not been reported within the interval. Never blocks, if the
+	 * background thread is too far behind the call is dropped.
+	 *
+	 * @return true if the call was queued
+	 */
+	public boolean phoneHome(final String protexHostName, final String protexVersion, final String thirdPartyVersion,
+			final String pluginVersion) {
+		if (StringUtils.isBlank(protexHostName) || StringUtils.isBlank(thirdPartyVersion) || StringUtils.isBlank(pluginVersion)) {
+			return false;
+		}
+		final String key = protexHostName + "|" + protexVersion + "|" + pluginVersion;
+		final long now = System.currentTimeMillis();
+		synchronized (lastCalls) {
+			final Long lastCall = lastCalls.get(key);
+			if (lastCall != null && now - lastCall < interval) {
+				return false;
+			}
+			// Recorded before the call is queued so two builds do not both queue it, dropped again if it is not queued
+			lastCalls.put(key, now);
+		}
+		try {
+			queueCall(key, protexHostName, protexVersion, thirdPartyVersion, pluginVersion);
+		} catch (final RejectedExecutionException e) {
+			synchronized (lastCalls) {
+				if (Long.valueOf(now).equals(lastCalls.get(key))) {
+					lastCalls.remove(key);
+				}
+			}
+			LOGGER.fine("Dropped the phone-home for " + protexHostName + ", too many calls are waiting");
+			return false;
+		}
+		return true;
+	}
+
+	private void queueCall(final String key, final String protexHostName, final String protexVersion, final String thirdPartyVersion,
+			final String pluginVersion) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final Thread thread = Thread.currentThread();
+				final ClassLoader originalClassLoader = thread.getContextClassLoader();
+				thread.setContextClassLoader(ProtexPhoneHome.class.getClassLoader());
+				try {
+					callCount.incrementAndGet();
+					callHome(protexHostName, protexVersion, thirdPartyVersion, pluginVersion);
+				} catch (final Exception e) {
+					failureCount.incrementAndGet();
+					// A failing call is not retried until the interval has passed since it failed
+					synchronized (lastCalls) {
+						lastCalls.put(key, System.currentTimeMillis());
+					}
+					LOGGER.log(Level.FINE, "Unable to phone-home for " + protexHostName, e);
+				} finally {
+					thread.setContextClassLoader(originalClassLoader);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Makes the actual call, runs on the background thread.
+	 */
+	protected void callHome(final String protexHostName, final String protexVersion, final String thirdPartyVersion,
+			final String pluginVersion) throws Exception {
+		final PhoneHomeClient phClient = new PhoneHomeClient();
+		phClient.callHomeIntegrations(null, protexHostName, BlackDuckName.PROTEX, protexVersion, ThirdPartyName.JENKINS,
+				thirdPartyVersion, pluginVersion);
+	}
+
+	public long getCallCount() {
+		return callCount.get();
+	}
+
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	private static class CachedVersion {
+		private final String version;
+
+		private final long timestamp;
+
+		public CachedVersion(final String version, final long timestamp) {
+			this.version = version;
+			this.timestamp = timestamp;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import hudson.XmlFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+
+/**
+ * Plugin wide record of the analysis host and source path each Protex project was last prepared for with
+ * protexPrepScanProject. Preparing a project updates the project on the server, which is slow, and is only needed
+ * when the host or the path changed since the last scan.
+ *
+ * The record is kept in the Jenkins home directory so it survives a restart. An entry is only used for a limited
+ * time, so a project that was changed on the server is prepared again eventually, this can be tuned with the system
+ * property <tt>com.blackducksoftware.integration.protex.jenkins.ProtexPrepScanCache.maxAgeHours</tt>.
+ *
+ */
+public class ProtexPrepScanCache {
+
+	private static final Logger LOGGER = Logger.getLogger(ProtexPrepScanCache.class.getName());
+
+	public static final long DEFAULT_MAX_AGE = TimeUnit.HOURS.toMillis(Long.getLong(ProtexPrepScanCache.class.getName() + ".maxAgeHours", 24));
+
+	public static final String FILE_NAME = ProtexPrepScanCache.class.getName() + ".xml";
+
+	private static ProtexPrepScanCache instance;
+
+	private final long maxAge;
+
+	// Null if the record is only kept in memory
+	private final XmlFile file;
+
+	/**
+	 * Keyed by the Protex server url and the project Id.
+	 */
+	private final Map<String, PreparedLocation> locations = new HashMap<String, PreparedLocation>();
+
+	/**
+	 * @param file
+	 *            File to keep the record in, null to only keep it in memory
+	 */
+	public ProtexPrepScanCache(final long maxAge, final File file) {
+		this.maxAge = maxAge;
+		if (file != null) {
+			this.file = new XmlFile(Jenkins.XSTREAM, file);
+			load();
+		} else {
+			this.file = null;
+		}
+	}
+
+	public static synchronized ProtexPrepScanCache getInstance() {
+		if (instance == null) {
+			final Jenkins jenkins = Jenkins.getInstance();
+			File file = null;
+			if (jenkins != null) {
+				file = new File(jenkins.getRootDir(), FILE_NAME);
+			}
+			instance = new ProtexPrepScanCache(DEFAULT_MAX_AGE, file);
+		}
+		return instance;
+	}
+
+	/**
+	 * @return true if the project was last prepared for this host and source path, and that is recent enough
+	 */
+	public boolean isPrepared(final ProtexFacade facade, final String projectId, final String hostName, final String sourcePath) {
+		synchronized (locations) {
+			final PreparedLocation location = locations.get(getKey(facade, projectId));
+			if (location == null || System.currentTimeMillis() - location.getTimestamp() >= maxAge) {
+				return false;
+			}
+			return location.matches(hostName, sourcePath);
+		}
+	}
+
+	/**
+	 * Records that the project was prepared for this host and source path.
+	 */
+	public void setPrepared(final ProtexFacade facade, final String projectId, final String hostName, final String sourcePath) {
+		synchronized (locations) {
+			final PreparedLocation previous = locations.put(getKey(facade, projectId), new PreparedLocation(hostName, sourcePath,
+					System.currentTimeMillis()));
+			// Only written when the location changed, the timestamp alone does not have to survive a restart
+			if (previous == null || !previous.matches(hostName, sourcePath)) {
+				save();
+			}
+		}
+	}
+
+	/**
+	 * Forgets the location of the project, the next scan prepares it again.
+	 */
+	public void invalidate(final ProtexFacade facade, final String projectId) {
+		synchronized (locations) {
+			if (locations.remove(getKey(facade, projectId)) != null) {
+				save();
+			}
+		}
+	}
+
+	/**
+	 * Forgets the location of all of the projects of the server of this facade.
+	 */
+	public void invalidateServer(final ProtexFacade facade) {
+		final String prefix = facade.getServerUrl() + "|";
+		synchronized (locations) {
+			boolean removed = false;
+			final Iterator<String> keys = locations.keySet().iterator();
+			while (keys.hasNext()) {
+				if (keys.next().startsWith(prefix)) {
+					keys.remove();
+					removed = true;
+				}
+			}
+			if (removed) {
+				save();
+			}
+		}
+	}
+
+	public int size() {
+		synchronized (locations) {
+			return locations.size();
+		}
+	}
+
+	private String getKey(final ProtexFacade facade, final String projectId) {
+		return facade.getServerUrl() + "|" + projectId;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			final Object stored = file.read();
+			if (stored instanceof Map) {
+				locations.putAll((Map<String, PreparedLocation>) stored);
+			}
+		} catch (final IOException e) {
+			// Every project is prepared again
+			LOGGER.log(Level.WARNING, "Could not read " + file, e);
+		} catch (final RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Could not read " + file, e);
+		}
+	}
+
+	private void save() {
+		if (file == null) {
+			return;
+		}
+		try {
+			file.write(new HashMap<String, PreparedLocation>(locations));
+		} catch (final IOException e) {
+			// Only costs a prep scan after the next restart
+			LOGGER.log(Level.WARNING, "Could not write " + file, e);
+		}
+	}
+
+	public static class PreparedLocation {
+		private final String hostName;
+
+		private final String sourcePath;
+
+		private final long timestamp;
+
+		public PreparedLocation(final String hostName, final String sourcePath, final long timestamp) {
+			this.hostName = hostName;
+			this.sourcePath = sourcePath;
+			this.timestamp = timestamp;
+		}
+
+		public String getHostName() {
+			return hostName;
+		}
+
+		public String getSourcePath() {
+			return sourcePath;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public boolean matches(final String hostName, final String sourcePath) {
+			return hostName != null && hostName.equals(this.hostName) && sourcePath != null && sourcePath.equals(this.sourcePath);
+		}
+	}
+
+}
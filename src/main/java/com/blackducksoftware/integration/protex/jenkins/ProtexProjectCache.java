@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.ProtexFacadeException;
+import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
+import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConnectionException;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+
+/**
+ * Plugin wide cache of the Id of each Protex project name, per Protex server. Looking a project up by name is a search
+ * on the server, and every build needs the Id of its project, often in both Protex build steps.
+ *
+ * Names that do not exist are remembered for a shorter time, so a project created outside of Jenkins is found soon.
+ * The entry of a name is dropped as soon as the plugin creates the project. Builds that need the same project created
+ * at the same time, for example a project named after the branch, create it one at a time.
+ *
+ * The times can be tuned with the system properties
+ * <tt>com.blackducksoftware.integration.protex.jenkins.ProtexProjectCache.ttlMinutes</tt> and
+ * <tt>...missingTtlSeconds</tt>.
+ *
+ */
+public class ProtexProjectCache {
+
+	/**
+	 * How long the Id of a project name is used without asking the server.
+	 */
+	public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(Long.getLong(ProtexProjectCache.class.getName() + ".ttlMinutes", 60));
+
+	/**
+	 * How long a project name that does not exist on the server is remembered.
+	 */
+	public static final long DEFAULT_MISSING_TTL = TimeUnit.SECONDS.toMillis(Long.getLong(ProtexProjectCache.class.getName() + ".missingTtlSeconds", 60));
+
+	private static final ProtexProjectCache INSTANCE = new ProtexProjectCache(DEFAULT_TTL, DEFAULT_MISSING_TTL);
+
+	private final long ttl;
+
+	private final long missingTtl;
+
+	/**
+	 * Keyed by the Protex server url and the project name.
+	 */
+	private final Map<String, CachedProject> projects = new HashMap<String, CachedProject>();
+
+	/**
+	 * The lock of each project name that is being created, keyed like the projects.
+	 */
+	private final Map<String, ProjectLock> projectLocks = new HashMap<String, ProjectLock>();
+
+	private long hitCount;
+
+	private long missCount;
+
+	public ProtexProjectCache(final long ttl, final long missingTtl) {
+		this.ttl = ttl;
+		this.missingTtl = missingTtl;
+	}
+
+	public static ProtexProjectCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets the Id of the project from the cache, or from the server if the name is not cached or the entry expired.
+	 *
+	 * @return the Id of the project, null if the project does not exist on the server
+	 */
+	public String getProjectId(final ProtexFacade facade, final String projectName) throws ServerConnectionException, ProtexFacadeException,
+			ServerConfigException {
+		final String key = getKey(facade, projectName);
+		synchronized (projects) {
+			final CachedProject cached = projects.get(key);
+			if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+				hitCount++;
+				return cached.getProjectId();
+			}
+			missCount++;
+		}
+		// Not holding the lock while the server is searched
+		String projectId = null;
+		if (facade.checkProjectExists(projectName)) {
+			projectId = facade.getProtexProjectId(projectName);
+		}
+		final long now = System.currentTimeMillis();
+		synchronized (projects) {
+			projects.put(key, new CachedProject(projectId, now + (projectId != null ? ttl : missingTtl)));
+		}
+		return projectId;
+	}
+
+	/**
+	 * Gets the Id of the project, creating the project first if it does not exist yet. Only one build of this master
+	 * creates a project name at a time, the others wait and then find the project. If the project was created outside
+	 * of this master in the meantime, the "already exists" fault of the server counts as success.
+	 *
+	 * @param templateName
+	 *            String name of the project to clone the new project from, may be blank
+	 * @return the Id of the project
+	 */
+	public String createOrGetProject(final ProtexFacade facade, final String projectName, final String templateName, final IntLogger logger)
+			throws ServerConnectionException, ProtexFacadeException, ServerConfigException {
+		final String key = getKey(facade, projectName);
+		final ProjectLock lock = lockProject(key);
+		try {
+			synchronized (lock) {
+				String projectId = getProjectId(facade, projectName);
+				if (projectId != null) {
+					logger.warn("The Project : " + projectName + ", already exists! The scan will use the already exisiting Project.");
+					return projectId;
+				}
+				try {
+					facade.createProtexProject(projectName, templateName);
+					logger.info("Created the Project : " + projectName);
+				} catch (final ProtexFacadeException e) {
+					if (!isAlreadyExists(e)) {
+						throw e;
+					}
+					logger.warn("The Project : " + projectName + ", was created by someone else. The scan will use that Project.");
+				}
+				invalidate(facade, projectName);
+				projectId = getProjectId(facade, projectName);
+				if (projectId != null) {
+					// A recreated project has not been prepared for any location yet
+					ProtexPrepScanCache.getInstance().invalidate(facade, projectId);
+				}
+				return projectId;
+			}
+		} finally {
+			unlockProject(key, lock);
+		}
+	}
+
+	/**
+	 * @return true if the fault says the project already exists
+	 */
+	public static boolean isAlreadyExists(final ProtexFacadeException e) {
+		return StringUtils.containsIgnoreCase(e.getMessage(), "already exists") || StringUtils.containsIgnoreCase(e.getSdkFaultMessage(), "already exists");
+	}
+
+	/**
+	 * Drops the entry of the project name, called once the project was created or the cached Id turned out to be
+	 * wrong.
+	 */
+	public void invalidate(final ProtexFacade facade, final String projectName) {
+		synchronized (projects) {
+			projects.remove(getKey(facade, projectName));
+		}
+	}
+
+	/**
+	 * Drops all of the entries of the server of this facade.
+	 */
+	public void invalidateServer(final ProtexFacade facade) {
+		final String prefix = facade.getServerUrl() + "|";
+		synchronized (projects) {
+			final Iterator<String> keys = projects.keySet().iterator();
+			while (keys.hasNext()) {
+				if (keys.next().startsWith(prefix)) {
+					keys.remove();
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (projects) {
+			projects.clear();
+		}
+	}
+
+	public long getHitCount() {
+		synchronized (projects) {
+			return hitCount;
+		}
+	}
+
+	public long getMissCount() {
+		synchronized (projects) {
+			return missCount;
+		}
+	}
+
+	private ProjectLock lockProject(final String key) {
+		synchronized (projectLocks) {
+			ProjectLock lock = projectLocks.get(key);
+			if (lock == null) {
+				lock = new ProjectLock();
+				projectLocks.put(key, lock);
+			}
+			lock.users++;
+			return lock;
+		}
+	}
+
+	private void unlockProject(final String key, final ProjectLock lock) {
+		synchronized (projectLocks) {
+			lock.users--;
+			if (lock.users == 0) {
+				projectLocks.remove(key);
+			}
+		}
+	}
+
+	private String getKey(final ProtexFacade facade, final String projectName) {
+		return facade.getServerUrl() + "|" + projectName;
+	}
+
+	private static class CachedProject {
+		private final String projectId;
+
+		private final long expires;
+
+		public CachedProject(final String projectId, final long expires) {
+			this.projectId = projectId;
+			this.expires = expires;
+		}
+
+		public String getProjectId() {
+			return projectId;
+		}
+
+		public boolean isExpired(final long now) {
+			return now >= expires;
+		}
+	}
+
+	private static class ProjectLock {
+		// The builds holding or waiting for this lock, guarded by projectLocks
+		private int users;
+	}
+
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import hudson.model.Result;
+
+/**
+ * The state of one run of the {@link PostBuildProtexScan}. Jenkins uses the same publisher instance for every build of
+ * the job, including builds that run at the same time, so nothing that belongs to a single build may be kept in the
+ * publisher itself.
+ */
+public class ProtexScanContext {
+
+	/**
+	 * The result of the build when the Protex scan started, the build is set back to it when the scan succeeds.
+	 */
+	private final Result result;
+
+	private String javaName;
+
+	private String javaPath;
+
+	/**
+	 * True if the Java was resolved by an earlier build, see {@link ProtexJavaCache}.
+	 */
+	private boolean javaCached;
+
+	public ProtexScanContext(final Result result) {
+		this.result = result;
+	}
+
+	public Result getResult() {
+		return result;
+	}
+
+	public String getJavaName() {
+		return javaName;
+	}
+
+	public void setJavaName(final String javaName) {
+		this.javaName = javaName;
+	}
+
+	public String getJavaPath() {
+		return javaPath;
+	}
+
+	public void setJavaPath(final String javaPath) {
+		this.javaPath = javaPath;
+	}
+
+	public boolean isJavaCached() {
+		return javaCached;
+	}
+
+	public void setJavaCached(final boolean javaCached) {
+		this.javaCached = javaCached;
+	}
+
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+
+/**
+ * Plugin wide index of the last scan of each Protex project, across all of the jobs. Several jobs often scan the same
+ * SCM revision into the same Protex project, when the last scan of the project was of the same revision, or a scan of
+ * the same revision is still running, the later builds do not have to scan again.
+ *
+ * Only the last revision of each project is kept, a scan of another revision changes the results on the server so a
+ * revision only covers a later build as long as nothing else was scanned into the project since. Scans whose source
+ * can not be identified are recorded too, they make the project unknown until its next scan.
+ *
+ * The index also keeps the digest of the source of the last scan of each project, so a job only skips an unchanged
+ * source path if no other source was scanned into the project since, see {@link #getSourceDigest(String, String)}.
+ *
+ * The limits can be tuned with the system properties
+ * <tt>com.blackducksoftware.integration.protex.jenkins.ProtexScanIndex.maxAgeMinutes</tt> and
+ * <tt>...waitMinutes</tt>.
+ *
+ */
+public class ProtexScanIndex {
+
+	/**
+	 * How long a scan covers later builds of the same revision.
+	 */
+	public static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis(Long.getLong(ProtexScanIndex.class.getName() + ".maxAgeMinutes", 60));
+
+	/**
+	 * How long a build waits for a running scan of the same revision before it scans itself.
+	 */
+	public static final long DEFAULT_WAIT_TIMEOUT = TimeUnit.MINUTES.toMillis(Long.getLong(ProtexScanIndex.class.getName() + ".waitMinutes", 60));
+
+	private static final ProtexScanIndex INSTANCE = new ProtexScanIndex(DEFAULT_MAX_AGE, DEFAULT_WAIT_TIMEOUT);
+
+	private final long maxAge;
+
+	private final long waitTimeout;
+
+	/**
+	 * Keyed by the Protex server url and the project Id.
+	 */
+	private final Map<String, ProjectEntry> projects = new HashMap<String, ProjectEntry>();
+
+	public ProtexScanIndex(final long maxAge, final long waitTimeout) {
+		this.maxAge = maxAge;
+		this.waitTimeout = waitTimeout;
+	}
+
+	public static ProtexScanIndex getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Same as {@link #begin(String, String, String, String, String, IntLogger)} for a scan without a source digest.
+	 */
+	public Lease begin(final String serverUrl, final String projectId, final String revision, final String owner, final IntLogger logger)
+			throws InterruptedException {
+		return begin(serverUrl, projectId, revision, null, owner, logger);
+	}
+
+	/**
+	 * Looks up the scan of the revision in the project. If the same revision is being scanned by another build, waits
+	 * for that scan to finish first.
+	 *
+	 * @param serverUrl
+	 *            Url of the Protex server
+	 * @param projectId
+	 *            Id of the Protex project
+	 * @param revision
+	 *            SCM revision or digest of the source that is going to be scanned, null if the source can not be
+	 *            identified
+	 * @param sourceDigest
+	 *            digest of the source that is going to be scanned, null if it was not computed
+	 * @param owner
+	 *            Name of the build, used in the messages of the other builds
+	 * @param logger
+	 *            IntLogger to report the wait
+	 * @return a Lease that is covered if this build does not have to scan, otherwise the build has to call
+	 *         {@link Lease#complete(boolean)} once its scan is done
+	 */
+	public Lease begin(final String serverUrl, final String projectId, final String revision, final String sourceDigest, final String owner,
+			final IntLogger logger) throws InterruptedException {
+		final String key = getKey(serverUrl, projectId);
+		final long deadline = System.currentTimeMillis() + waitTimeout;
+		boolean waitLogged = false;
+		synchronized (this) {
+			while (true) {
+				ProjectEntry entry = projects.get(key);
+				if (entry == null) {
+					entry = new ProjectEntry();
+					projects.put(key, entry);
+				}
+				final long now = System.currentTimeMillis();
+				if (revision == null) {
+					// Nothing can cover this scan, and it changes the results of the project
+					entry.lastScan = null;
+					entry.lastSourceDigest = null;
+					return new Lease(key, null, sourceDigest, owner, null, false, ++entry.scanCount);
+				}
+				if (entry.inFlight != null && entry.inFlight.getRevision().equals(revision)) {
+					final long remaining = deadline - now;
+					if (remaining <= 0) {
+						logger.warn("Waited too long for the Protex scan of " + entry.inFlight.getOwner() + ", scanning anyway.");
+						entry.lastSourceDigest = null;
+						return new Lease(key, revision, sourceDigest, owner, null, false, ++entry.scanCount);
+					}
+					if (!waitLogged) {
+						logger.info("Waiting for the Protex scan of the same revision by : " + entry.inFlight.getOwner());
+						waitLogged = true;
+					}
+					wait(remaining);
+					continue;
+				}
+				if (entry.inFlight == null && entry.lastScan != null && entry.lastScan.getRevision().equals(revision)
+						&& now - entry.lastScan.getTimestamp() < maxAge) {
+					return new Lease(key, revision, sourceDigest, owner, entry.lastScan, false, entry.scanCount);
+				}
+				if (entry.inFlight == null) {
+					entry.inFlight = new ScanRecord(revision, owner, now);
+					entry.lastSourceDigest = null;
+					return new Lease(key, revision, sourceDigest, owner, null, true, ++entry.scanCount);
+				}
+				// Another revision is being scanned into the project, nothing to wait for
+				entry.lastSourceDigest = null;
+				return new Lease(key, revision, sourceDigest, owner, null, false, ++entry.scanCount);
+			}
+		}
+	}
+
+	/**
+	 * @return the digest of the source of the last scan of the project, null if it is not known or a scan of the
+	 *         project is running
+	 */
+	public synchronized String getSourceDigest(final String serverUrl, final String projectId) {
+		final ProjectEntry entry = projects.get(getKey(serverUrl, projectId));
+		if (entry == null) {
+			return null;
+		}
+		return entry.lastSourceDigest;
+	}
+
+	private static String getKey(final String serverUrl, final String projectId) {
+		return serverUrl + "|" + projectId;
+	}
+
+	private synchronized void complete(final Lease lease, final boolean scanned) {
+		final ProjectEntry entry = projects.get(lease.key);
+		if (entry == null) {
+			return;
+		}
+		if (lease.tracked) {
+			entry.inFlight = null;
+		}
+		if (scanned && lease.scanNumber == entry.scanCount) {
+			if (lease.revision != null) {
+				entry.lastScan = new ScanRecord(lease.revision, lease.owner, System.currentTimeMillis());
+			}
+			entry.lastSourceDigest = lease.sourceDigest;
+		} else {
+			// The failed scan may have changed the results on the server, a scan that started after this one changed
+			// them for sure
+			entry.lastScan = null;
+			entry.lastSourceDigest = null;
+		}
+		// Wakes up the builds waiting for this revision, they scan themselves if this scan failed
+		notifyAll();
+	}
+
+	/**
+	 * The result of {@link ProtexScanIndex#begin(String, String, String, String, String, IntLogger)}.
+	 */
+	public class Lease {
+		private final String key;
+
+		private final String revision;
+
+		private final String sourceDigest;
+
+		private final String owner;
+
+		private final ScanRecord coveringScan;
+
+		/**
+		 * True if this build is the one scanning the revision that the other builds wait for.
+		 */
+		private final boolean tracked;
+
+		/**
+		 * Number of the scan of this build in the project, see {@link ProjectEntry#scanCount}.
+		 */
+		private final int scanNumber;
+
+		private boolean completed = false;
+
+		private Lease(final String key, final String revision, final String sourceDigest, final String owner, final ScanRecord coveringScan,
+				final boolean tracked, final int scanNumber) {
+			this.key = key;
+			this.revision = revision;
+			this.sourceDigest = sourceDigest;
+			this.owner = owner;
+			this.coveringScan = coveringScan;
+			this.tracked = tracked;
+			this.scanNumber = scanNumber;
+		}
+
+		/**
+		 * @return true if the revision was already scanned into the project and this build does not have to scan
+		 */
+		public boolean isCovered() {
+			return coveringScan != null;
+		}
+
+		public ScanRecord getCoveringScan() {
+			return coveringScan;
+		}
+
+		/**
+		 * Records the outcome of the scan of this build. Safe to call more than once, only the first call counts.
+		 *
+		 * @param scanned
+		 *            true if the scan of this build succeeded
+		 */
+		public void complete(final boolean scanned) {
+			synchronized (ProtexScanIndex.this) {
+				if (completed || isCovered()) {
+					return;
+				}
+				completed = true;
+				ProtexScanIndex.this.complete(this, scanned);
+			}
+		}
+	}
+
+	public static class ScanRecord {
+		private final String revision;
+
+		private final String owner;
+
+		private final long timestamp;
+
+		public ScanRecord(final String revision, final String owner, final long timestamp) {
+			this.revision = revision;
+			this.owner = owner;
+			this.timestamp = timestamp;
+		}
+
+		public String getRevision() {
+			return revision;
+		}
+
+		public String getOwner() {
+			return owner;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+	}
+
+	private static class ProjectEntry {
+		private ScanRecord inFlight;
+
+		private ScanRecord lastScan;
+
+		// Number of scans started into the project, only the last one started may record its revision
+		private int scanCount;
+
+		private String lastSourceDigest;
+	}
+
+	/**
+	 * Builds the revision key of a scan from the SCM revision of the build, or from the digest of the source path if
+	 * the build has no SCM revision.
+	 *
+	 * @return the revision key, or null if the scanned source can not be identified
+	 */
+	public static String getRevision(final Map<String, String> variables, final String workspacePath, final String targetPath, final String sourceDigest) {
+		for (final String name : new String[] { "GIT_COMMIT", "SVN_REVISION", "MERCURIAL_REVISION" }) {
+			final String value = variables.get(name);
+			if (StringUtils.isNotBlank(value)) {
+				// Other jobs may scan another directory of the same checkout
+				return name + ":" + value + ":" + StringUtils.defaultString(ProtexChangeSet.getRelativePath(workspacePath, targetPath));
+			}
+		}
+		if (StringUtils.isNotBlank(sourceDigest)) {
+			return "digest:" + sourceDigest;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+
+/**
+ * Plugin wide limit on the number of scans that run against the same Protex server at the same time, configured with
+ * {@link ProtexServerInfo#getMaxConcurrentScans()}. The builds wait for a permit in the order they asked for one.
+ *
+ */
+public class ProtexScanLimiter {
+
+	private static final ProtexScanLimiter INSTANCE = new ProtexScanLimiter();
+
+	/**
+	 * How often a waiting build logs its position in the queue.
+	 */
+	private static final long WAIT_LOG_INTERVAL = TimeUnit.SECONDS.toMillis(60);
+
+	private final Map<String, ServerLimiter> limiters = new HashMap<String, ServerLimiter>();
+
+	public static ProtexScanLimiter getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Waits for a scan permit for the server. The permit must be released once the scan is done, even if it failed.
+	 *
+	 * @param server
+	 *            ProtexServerInfo the scan runs against
+	 * @param owner
+	 *            String describing who holds the permit, ex: the build name
+	 * @param logger
+	 *            IntLogger to report the queue position and the wait time
+	 */
+	public Permit acquire(final ProtexServerInfo server, final String owner, final IntLogger logger) throws InterruptedException {
+		final int maxConcurrentScans = server.getMaxConcurrentScans();
+		if (maxConcurrentScans < 1) {
+			return new Permit(null, null);
+		}
+		final ServerLimiter limiter = getLimiter(server, maxConcurrentScans);
+		final Holder holder = new Holder(owner);
+		// tryAcquire with a timeout respects the fairness of the semaphore, tryAcquire() does not
+		if (limiter.semaphore.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+			limiter.addHolder(holder);
+			return new Permit(limiter, holder);
+		}
+
+		final long start = System.currentTimeMillis();
+		limiter.addWaiter(holder);
+		try {
+			logger.info("Waiting for a Protex scan slot on " + server.getProtexPostServerName() + ", position " + limiter.getPosition(holder)
+					+ " in the queue, " + limiter.getHolderCount() + " of " + maxConcurrentScans + " scans running.");
+			while (!limiter.semaphore.tryAcquire(WAIT_LOG_INTERVAL, TimeUnit.MILLISECONDS)) {
+				logger.info("Still waiting for a Protex scan slot, position " + limiter.getPosition(holder) + " in the queue, waited "
+						+ getSeconds(start) + " s.");
+			}
+		} finally {
+			limiter.removeWaiter(holder);
+		}
+		limiter.addHolder(holder);
+		logger.info("Got a Protex scan slot on " + server.getProtexPostServerName() + " after waiting " + getSeconds(start) + " s.");
+		return new Permit(limiter, holder);
+	}
+
+	/**
+	 * @return the limiters of the servers that have a limit, for the diagnostics page
+	 */
+	public synchronized List<ServerLimiter> getLimiters() {
+		return new ArrayList<ServerLimiter>(limiters.values());
+	}
+
+	private synchronized ServerLimiter getLimiter(final ProtexServerInfo server, final int maxConcurrentScans) {
+		ServerLimiter limiter = limiters.get(server.getProtexServerId());
+		if (limiter == null) {
+			limiter = new ServerLimiter(server.getProtexPostServerName(), maxConcurrentScans);
+			limiters.put(server.getProtexServerId(), limiter);
+		} else if (limiter.getMaxConcurrentScans() != maxConcurrentScans) {
+			// The scans running under the old limit still count against the new one
+			limiter.semaphore.resize(maxConcurrentScans);
+		}
+		return limiter;
+	}
+
+	private static long getSeconds(final long start) {
+		return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start);
+	}
+
+	public static class ServerLimiter {
+		private final String serverName;
+
+		private final ResizableSemaphore semaphore;
+
+		private final LinkedList<Holder> waiters = new LinkedList<Holder>();
+
+		private final List<Holder> holders = new ArrayList<Holder>();
+
+		public ServerLimiter(final String serverName, final int maxConcurrentScans) {
+			this.serverName = serverName;
+			semaphore = new ResizableSemaphore(maxConcurrentScans);
+		}
+
+		public String getServerName() {
+			return serverName;
+		}
+
+		public int getMaxConcurrentScans() {
+			return semaphore.getPermits();
+		}
+
+		public synchronized int getHolderCount() {
+			return holders.size();
+		}
+
+		public synchronized List<Holder> getHolders() {
+			return Collections.unmodifiableList(new ArrayList<Holder>(holders));
+		}
+
+		public synchronized List<Holder> getWaiters() {
+			return Collections.unmodifiableList(new ArrayList<Holder>(waiters));
+		}
+
+		private synchronized int getPosition(final Holder holder) {
+			return waiters.indexOf(holder) + 1;
+		}
+
+		private synchronized void addWaiter(final Holder holder) {
+			waiters.addLast(holder);
+		}
+
+		private synchronized void removeWaiter(final Holder holder) {
+			waiters.remove(holder);
+		}
+
+		private synchronized void addHolder(final Holder holder) {
+			holder.since = System.currentTimeMillis();
+			holders.add(holder);
+		}
+
+		private synchronized boolean removeHolder(final Holder holder) {
+			return holders.remove(holder);
+		}
+	}
+
+	/**
+	 * A build waiting for or holding a permit.
+	 */
+	public static class Holder {
+		private final String owner;
+
+		// When the build started waiting, then when it got the permit
+		private volatile long since = System.currentTimeMillis();
+
+		public Holder(final String owner) {
+			this.owner = owner;
+		}
+
+		public String getOwner() {
+			return owner;
+		}
+
+		public long getSince() {
+			return since;
+		}
+
+		public long getSeconds() {
+			return ProtexScanLimiter.getSeconds(since);
+		}
+	}
+
+	/**
+	 * A scan permit, releasing it more than once has no effect.
+	 */
+	public static class Permit {
+		private final ServerLimiter limiter;
+
+		private final Holder holder;
+
+		private Permit(final ServerLimiter limiter, final Holder holder) {
+			this.limiter = limiter;
+			this.holder = holder;
+		}
+
+		public void release() {
+			if (limiter != null && limiter.removeHolder(holder)) {
+				limiter.semaphore.release();
+			}
+		}
+	}
+
+}
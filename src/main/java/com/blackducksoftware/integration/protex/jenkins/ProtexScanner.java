@@ -35,8 +35,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.cxf.interceptor.Fault;
 
 import com.blackducksoftware.integration.protex.exceptions.ProtexScannerException;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexLogSink;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanProgressListener;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
 import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConnectionException;
+import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
 import com.blackducksoftware.protex.plugin.BlackDuckCommand;
 import com.blackducksoftware.protex.plugin.BlackDuckCommand.State;
 import com.blackducksoftware.protex.plugin.BlackDuckCommandBuilder;
@@ -45,7 +49,10 @@ import com.blackducksoftware.protex.plugin.BuildToolIntegrationException;
 import com.blackducksoftware.protex.plugin.ProtexServer;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
 
-public class ProtexScanner implements Callable<Boolean, Exception> {
+/**
+ * Runs the bdstool analysis on the Node. Returns the statistics bdstool reported at the end of the scan.
+ */
+public class ProtexScanner implements Callable<ProtexScanStatistics, Exception> {
 
     private final String protexUrl;
 
@@ -77,6 +84,10 @@ public class ProtexScanner implements Callable<Boolean, Exception> {
 
     private boolean forceScan;
 
+    private ProtexScanProgressListener progressListener;
+
+    private ProtexLogSink logSink;
+
     public ProtexScanner(String javaPath, String protexUrl, UsernamePasswordCredentialsImpl protexCredentials, String protexProjectName,
             String protexProjectSourcePath, String projectId) {
         this.javaPath = javaPath;
@@ -171,8 +182,32 @@ public class ProtexScanner implements Callable<Boolean, Exception> {
         this.forceScan = forceScan;
     }
 
+    public ProtexScanProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * @param progressListener
+     *            ProtexScanProgressListener exported by the master, receives the coalesced scan progress
+     */
+    public void setProgressListener(ProtexScanProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public ProtexLogSink getLogSink() {
+        return logSink;
+    }
+
+    /**
+     * @param logSink
+     *            ProtexLogSink exported by the master, the log lines of the scan are sent to it in compressed chunks
+     */
+    public void setLogSink(ProtexLogSink logSink) {
+        this.logSink = logSink;
+    }
+
     @Override
-    public Boolean call() throws ServerConnectionException, ServerConfigException, ProtexScannerException, IOException, InterruptedException {
+    public ProtexScanStatistics call() throws ServerConnectionException, ServerConfigException, ProtexScannerException, IOException, InterruptedException {
         ProtexServer protexServer = new ProtexServer(protexCredentials.getPassword().getPlainText());
         protexServer.setServerUrl(protexUrl);
         protexServer.setUsername(protexCredentials.getUsername());
@@ -213,18 +248,27 @@ public class ProtexScanner implements Callable<Boolean, Exception> {
                     );
         }
 
-        runProtexScan(protexServer, getProjectId(), getProtexProjectSourcePath(), true);
-
-        return true;
+        if (logger != null) {
+            logger.startBatching(logSink);
+        }
+        try {
+            return runProtexScan(protexServer, getProjectId(), getProtexProjectSourcePath(), true);
+        } finally {
+            if (logger != null) {
+                logger.stopBatching();
+            }
+        }
     }
 
     /**
      * This runs the Protex scan on the given source path
      *
+     * @return the statistics bdstool reported at the end of the scan
+     *
      * @throws ProtexScannerException
      * @throws ServerConnectionException
      */
-    public void runProtexScan(ProtexServer protexServer, String projectId, String localProtexProjectSourcePath, boolean attachObserver)
+    public ProtexScanStatistics runProtexScan(ProtexServer protexServer, String projectId, String localProtexProjectSourcePath, boolean attachObserver)
             throws ProtexScannerException, ServerConnectionException {
         if (protexServer == null) {
             throw new IllegalArgumentException("Need to provide the ProtexServer that the scan will use to connect to the server.");
@@ -249,6 +293,7 @@ public class ProtexScanner implements Callable<Boolean, Exception> {
             }
 
             JenkinsProtexLogObserver observer = new JenkinsProtexLogObserver(logger);
+            JenkinsProtexProgressObserver progressObserver = new JenkinsProtexProgressObserver(logger, progressListener);
             try {
                 // Preparing BDSTOOL Command to analyze
                 AnalyzeCommandBuilder cmdBuilder = BlackDuckCommandBuilder.analyze();
@@ -263,16 +308,16 @@ public class ProtexScanner implements Callable<Boolean, Exception> {
                 // The Scan Logs do not provide much output
                 cmdBuilder.observingScanLog(observer);
 
-                // This is fairly chatty output on the Scan Progress
-                // if (observer != null) {
-                cmdBuilder.observingProgress(observer);
+                // This is fairly chatty output on the Scan Progress, only the milestones are logged
+                cmdBuilder.observingProgress(progressObserver);
 
                 // This provides the end scan output with number of pending
                 // ID
                 cmdBuilder.observingMessages(observer);
 
-                // This provides the entire command output
-                cmdBuilder.observingOutput(observer);
+                // This provides the entire command output, which is what fills the console on large scans, so it is only
+                // logged at TRACE
+                cmdBuilder.observingOutput(new JenkinsProtexLogObserver(logger, LogLevel.TRACE));
 
                 // Defining Project ID and Server
                 cmdBuilder.projectId(projectId);
@@ -313,10 +358,14 @@ public class ProtexScanner implements Callable<Boolean, Exception> {
                 BlackDuckCommand blackDuckCommand = cmdBuilder.build();
 
                 logger.info("Running Scan analyze command on " + localProtexProjectSourcePath);
-                logger.debug("Command STATE : " + blackDuckCommand.state());
+                logger.debug("Command STATE : %s", blackDuckCommand.state());
 
                 // blackDuckCommand.addObserver(observer);
-                blackDuckCommand.run();
+                try {
+                    blackDuckCommand.run();
+                } finally {
+                    progressObserver.flush();
+                }
 
                 if (blackDuckCommand.state() == State.FAILED) {
                     // please check .bdstool.log file
@@ -343,6 +392,7 @@ public class ProtexScanner implements Callable<Boolean, Exception> {
             }
             // End of Processing
             logger.info("Project files  " + localProtexProjectSourcePath + " Done !");
+            return observer.getStatistics();
         } catch (ServerConnectionException e) {
             throw e;
         } finally {
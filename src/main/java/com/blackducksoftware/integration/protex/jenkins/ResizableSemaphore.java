@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fair semaphore whose number of permits can be changed while some of them are held. When the number goes down, the
+ * permits that are held stay counted, so the next callers wait until enough of them were released.
+ *
+ */
+public class ResizableSemaphore extends Semaphore {
+	private static final long serialVersionUID = -4563209486529348146L;
+
+	private int permits;
+
+	public ResizableSemaphore(final int permits) {
+		super(permits, true);
+		this.permits = permits;
+	}
+
+	/**
+	 * @return the number of permits the semaphore was sized to, held or not
+	 */
+	public synchronized int getPermits() {
+		return permits;
+	}
+
+	public synchronized void resize(final int newPermits) {
+		final int delta = newPermits - permits;
+		permits = newPermits;
+		if (delta > 0) {
+			release(delta);
+		} else if (delta < 0) {
+			reducePermits(-delta);
+		}
+	}
+
+}
@@ -21,30 +21,169 @@
  *******************************************************************************/
 package com.blackducksoftware.integration.protex.jenkins.action;
 
+import hudson.Util;
 import hudson.model.Action;
 import hudson.model.AbstractBuild;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
 import com.blackducksoftware.integration.protex.jenkins.Messages;
 
 public class ProtexReportAction implements Action {
 
+    public static final String REPORT_FILE_NAME = "protex-report.html.gz";
+
     private final AbstractBuild<?, ?> build;
 
-    // All persisted fields must be serializable
-    // Storing the html report as a String , Good or Bad idea? Suggestions?
+    // Only set for builds from older versions of the plugin, the report is now stored in the build directory
+    // so it does not end up in build.xml and is only loaded when someone views it
     private final String reportHtmlContent;
 
-    public ProtexReportAction(AbstractBuild<?, ?> build, String reportHtmlContent) {
+    // Name of the gzipped report, relative to the build directory
+    private final String reportFileName;
+
+    // Size of the uncompressed report in bytes
+    private final long reportSize;
+
+    // SHA-256 of the uncompressed report
+    private final String reportDigest;
+
+    public ProtexReportAction(AbstractBuild<?, ?> build, String reportFileName, long reportSize, String reportDigest) {
         this.build = build;
-        this.reportHtmlContent = reportHtmlContent;
+        this.reportHtmlContent = null;
+        this.reportFileName = reportFileName;
+        this.reportSize = reportSize;
+        this.reportDigest = reportDigest;
+    }
+
+    /**
+     * Streams the report into a gzip file in the build directory and creates the action pointing to it.
+     *
+     * @param build
+     *            AbstractBuild<?, ?>
+     * @param reportContent
+     *            InputStream of the HTML report, closed by this method
+     */
+    public static ProtexReportAction create(AbstractBuild<?, ?> build, InputStream reportContent) throws IOException {
+        MessageDigest digest = null;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        final File reportFile = new File(build.getRootDir(), REPORT_FILE_NAME);
+        final CountingInputStream input = new CountingInputStream(new DigestInputStream(reportContent, digest));
+        final OutputStream output = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(reportFile)));
+        boolean written = false;
+        try {
+            IOUtils.copy(input, output);
+            output.close();
+            written = true;
+        } finally {
+            IOUtils.closeQuietly(output);
+            IOUtils.closeQuietly(input);
+            if (!written) {
+                reportFile.delete();
+            }
+        }
+        return new ProtexReportAction(build, REPORT_FILE_NAME, input.getByteCount(), Util.toHexString(digest.digest()));
     }
 
     public AbstractBuild<?, ?> getBuild() {
         return build;
     }
 
-    public String getReportHtmlContent() {
-        return reportHtmlContent;
+    /**
+     * @return the gzipped report file, null for builds from older versions of the plugin
+     */
+    public File getReportFile() {
+        if (reportFileName == null) {
+            return null;
+        }
+        return new File(build.getRootDir(), reportFileName);
+    }
+
+    public long getReportSize() {
+        if (reportHtmlContent != null) {
+            return reportHtmlContent.length();
+        }
+        return reportSize;
+    }
+
+    public String getReportDigest() {
+        return reportDigest;
+    }
+
+    /**
+     * Reads the whole report from the build directory into memory, the report page streams it with
+     * {@link #doReport(StaplerRequest, StaplerResponse)} instead.
+     */
+    public String getReportHtmlContent() throws IOException {
+        if (reportHtmlContent != null) {
+            return reportHtmlContent;
+        }
+        final File reportFile = getReportFile();
+        if (reportFile == null || !reportFile.isFile()) {
+            return null;
+        }
+        final InputStream input = new GZIPInputStream(new FileInputStream(reportFile));
+        try {
+            return IOUtils.toString(input, "UTF-8");
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Copies the uncompressed report to the output, without holding it in memory.
+     *
+     * @return false if there is no report
+     */
+    public boolean writeReport(OutputStream output) throws IOException {
+        if (reportHtmlContent != null) {
+            IOUtils.write(reportHtmlContent, output, "UTF-8");
+            return true;
+        }
+        final File reportFile = getReportFile();
+        if (reportFile == null || !reportFile.isFile()) {
+            return false;
+        }
+        final InputStream input = new GZIPInputStream(new FileInputStream(reportFile));
+        try {
+            IOUtils.copy(input, output);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+        return true;
+    }
+
+    /**
+     * Serves the report, the report page shows it in a frame.
+     */
+    public void doReport(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        final File reportFile = getReportFile();
+        if (reportHtmlContent == null && (reportFile == null || !reportFile.isFile())) {
+            rsp.setStatus(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        rsp.setContentType("text/html;charset=UTF-8");
+        writeReport(rsp.getOutputStream());
     }
 
     @Override
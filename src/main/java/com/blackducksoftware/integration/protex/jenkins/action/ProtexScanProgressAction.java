@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.action;
+
+import hudson.Util;
+import hudson.model.Action;
+import hudson.model.AbstractBuild;
+
+import com.blackducksoftware.integration.protex.jenkins.Messages;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanProgressListener;
+
+/**
+ * Shows the progress of the bdstool scan of this build while it is running. The Node sends the progress through the
+ * exported {@link ProtexScanProgressListener} at most once per update interval, the rate and the time remaining are
+ * worked out here using the clock of the master.
+ */
+public class ProtexScanProgressAction implements Action, ProtexScanProgressListener {
+
+    // Seconds between the refreshes of the progress page while the scan is running
+    public static final int REFRESH_SECONDS = 5;
+
+    // Only used for the side panel of the progress page, not kept in build.xml
+    private transient AbstractBuild<?, ?> build;
+
+    private final long startTime;
+
+    private Integer percentComplete;
+
+    private Long filesScanned;
+
+    private Long totalFiles;
+
+    private long lastUpdate;
+
+    // 0 while the scan is running
+    private long endTime;
+
+    private boolean completed;
+
+    public ProtexScanProgressAction(AbstractBuild<?, ?> build) {
+        this(build, System.currentTimeMillis());
+    }
+
+    ProtexScanProgressAction(AbstractBuild<?, ?> build, long startTime) {
+        this.build = build;
+        this.startTime = startTime;
+        lastUpdate = startTime;
+    }
+
+    @Override
+    public void progressChanged(Integer percentComplete, Long filesScanned, Long totalFiles) {
+        progressChanged(percentComplete, filesScanned, totalFiles, System.currentTimeMillis());
+    }
+
+    synchronized void progressChanged(Integer percentComplete, Long filesScanned, Long totalFiles, long time) {
+        if (endTime != 0) {
+            // A late update from the Node
+            return;
+        }
+        if (percentComplete != null) {
+            this.percentComplete = percentComplete;
+        }
+        if (filesScanned != null) {
+            this.filesScanned = filesScanned;
+        }
+        if (totalFiles != null) {
+            this.totalFiles = totalFiles;
+        }
+        lastUpdate = time;
+    }
+
+    /**
+     * Called once the scan has ended.
+     *
+     * @param completed
+     *            boolean, true if the scan ran to the end
+     */
+    public void finish(boolean completed) {
+        finish(completed, System.currentTimeMillis());
+    }
+
+    synchronized void finish(boolean completed, long time) {
+        this.completed = completed;
+        endTime = time;
+        if (completed) {
+            percentComplete = 100;
+            if (totalFiles != null) {
+                filesScanned = totalFiles;
+            }
+        }
+    }
+
+    public AbstractBuild<?, ?> getBuild() {
+        return build;
+    }
+
+    public synchronized boolean isRunning() {
+        return endTime == 0;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    public synchronized Integer getPercentComplete() {
+        return percentComplete;
+    }
+
+    public synchronized Long getFilesScanned() {
+        return filesScanned;
+    }
+
+    public synchronized Long getTotalFiles() {
+        return totalFiles;
+    }
+
+    public synchronized long getElapsedMillis() {
+        if (endTime != 0) {
+            return endTime - startTime;
+        }
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * @return the files scanned per second up to the last update, null if bdstool has not reported the files
+     */
+    public synchronized Double getFilesPerSecond() {
+        final long millis = (endTime != 0 ? endTime : lastUpdate) - startTime;
+        if (filesScanned == null || millis <= 0) {
+            return null;
+        }
+        return filesScanned * 1000.0 / millis;
+    }
+
+    /**
+     * @return an estimate of the milliseconds left in the scan, null if there is not enough progress to tell
+     */
+    public synchronized Long getRemainingMillis() {
+        if (endTime != 0) {
+            return null;
+        }
+        final Double filesPerSecond = getFilesPerSecond();
+        if (filesScanned != null && totalFiles != null && filesPerSecond != null && filesPerSecond > 0) {
+            return (long) (Math.max(0, totalFiles - filesScanned) * 1000 / filesPerSecond);
+        }
+        if (percentComplete != null && percentComplete > 0 && percentComplete < 100) {
+            return (lastUpdate - startTime) * (100 - percentComplete) / percentComplete;
+        }
+        return null;
+    }
+
+    public String getElapsedString() {
+        return Util.getTimeSpanString(getElapsedMillis());
+    }
+
+    public String getRemainingString() {
+        final Long remaining = getRemainingMillis();
+        if (remaining == null) {
+            return null;
+        }
+        return Util.getTimeSpanString(remaining);
+    }
+
+    public String getFilesPerSecondString() {
+        final Double filesPerSecond = getFilesPerSecond();
+        if (filesPerSecond == null) {
+            return null;
+        }
+        return String.format("%.1f", filesPerSecond);
+    }
+
+    public int getRefreshSeconds() {
+        return REFRESH_SECONDS;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "/plugin/protex-jenkins/images/blackduck.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.ProtexScanProgressAction_getDisplayName();
+    }
+
+    @Override
+    public String getUrlName() {
+        return "protexProgress";
+    }
+
+}
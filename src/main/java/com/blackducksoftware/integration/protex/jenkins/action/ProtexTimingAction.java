@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.action;
+
+import hudson.model.Action;
+import hudson.model.AbstractBuild;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each phase of the Protex build steps took in this build, in milliseconds. The phases are shown per
+ * job by the {@link ProtexTimingProjectAction} trend graph.
+ *
+ * The durations are measured with {@link System#nanoTime()}, so they are not affected by changes to the system clock.
+ */
+public class ProtexTimingAction implements Action {
+
+    public static final String PHASE_FACADE = "Facade creation";
+
+    public static final String PHASE_NODE_PROBE = "Host name lookup";
+
+    public static final String PHASE_JAVA = "Java setup";
+
+    public static final String PHASE_PROJECT = "Project creation";
+
+    public static final String PHASE_PLAN = "Scan planning";
+
+    public static final String PHASE_PHONE_HOME = "Phone home";
+
+    public static final String PHASE_SCAN_QUEUE = "Waiting for a scan slot";
+
+    public static final String PHASE_PREP_SCAN = "Scan preparation";
+
+    public static final String PHASE_SCAN = "bdstool scan";
+
+    public static final String PHASE_REPORT = "Report generation";
+
+    public static final String PHASE_FAILURE_SETUP = "Failure Conditions setup";
+
+    public static final String PHASE_FAILURE_CONDITIONS = "Failure Conditions";
+
+    // Phase name to duration in milliseconds, in the order the phases ran
+    private final LinkedHashMap<String, Long> phaseDurations = new LinkedHashMap<String, Long>();
+
+    /**
+     * Gets the timing action of the build, adding one if the build does not have one yet. Both Protex build steps
+     * record their phases in the same action.
+     */
+    public static ProtexTimingAction getTimingAction(AbstractBuild<?, ?> build) {
+        synchronized (build) {
+            ProtexTimingAction timing = build.getAction(ProtexTimingAction.class);
+            if (timing == null) {
+                timing = new ProtexTimingAction();
+                build.addAction(timing);
+            }
+            return timing;
+        }
+    }
+
+    /**
+     * @return the current time to pass to {@link #stop(String, long)}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time since start for the phase. A phase that runs more than once adds up.
+     *
+     * @param phase
+     *            the name of the phase
+     * @param start
+     *            the value returned by {@link #start()} when the phase began
+     */
+    public synchronized void stop(String phase, long start) {
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Long previous = phaseDurations.get(phase);
+        if (previous != null) {
+            duration += previous;
+        }
+        phaseDurations.put(phase, duration);
+    }
+
+    /**
+     * @return the duration in milliseconds of each phase, in the order the phases ran
+     */
+    public synchronized Map<String, Long> getPhaseDurations() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(phaseDurations));
+    }
+
+    public synchronized Long getPhaseDuration(String phase) {
+        return phaseDurations.get(phase);
+    }
+
+    public synchronized long getTotalDuration() {
+        long total = 0;
+        for (Long duration : phaseDurations.values()) {
+            total += duration;
+        }
+        return total;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+}
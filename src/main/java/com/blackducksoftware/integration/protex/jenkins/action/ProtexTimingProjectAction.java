@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.action;
+
+import hudson.model.Action;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.ChartUtil.NumberOnlyBuildLabel;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import hudson.util.ShiftedCategoryAxis;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.Map.Entry;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.ui.RectangleInsets;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import com.blackducksoftware.integration.protex.jenkins.Messages;
+
+/**
+ * Shows the trend of the Protex phase durations, recorded by {@link ProtexTimingAction}, over the last builds of the
+ * job.
+ *
+ * The number of builds in the graph can be tuned with the system property
+ * <tt>com.blackducksoftware.integration.protex.jenkins.action.ProtexTimingProjectAction.maxBuilds</tt>.
+ */
+public class ProtexTimingProjectAction implements Action {
+
+    public static final int MAX_BUILDS = Integer.getInteger(ProtexTimingProjectAction.class.getName() + ".maxBuilds", 30);
+
+    private final AbstractProject<?, ?> project;
+
+    public ProtexTimingProjectAction(AbstractProject<?, ?> project) {
+        this.project = project;
+    }
+
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    @Override
+    public String getIconFileName() {
+        // Only shown as the graph on the job page
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.ProtexTimingProjectAction_getDisplayName();
+    }
+
+    @Override
+    public String getUrlName() {
+        return "protexTiming";
+    }
+
+    /**
+     * @return true if at least one of the recent builds has timings to show
+     */
+    public boolean isTrendVisible() {
+        int count = 0;
+        for (AbstractBuild<?, ?> build = project.getLastBuild(); build != null && count < MAX_BUILDS; build = build.getPreviousBuild()) {
+            if (build.getAction(ProtexTimingAction.class) != null) {
+                return true;
+            }
+            count++;
+        }
+        return false;
+    }
+
+    /**
+     * Collects the phase durations of the last {@link #MAX_BUILDS} builds, one row per phase and one column per build
+     * with timings. Like {@link #isTrendVisible()}, the builds without timings count, so a job that stopped scanning
+     * does not walk back through its whole history.
+     */
+    public CategoryDataset buildDataSet() {
+        DataSetBuilder<String, NumberOnlyBuildLabel> dataSet = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+        int count = 0;
+        for (AbstractBuild<?, ?> build = project.getLastBuild(); build != null && count < MAX_BUILDS; build = build.getPreviousBuild()) {
+            count++;
+            ProtexTimingAction timing = build.getAction(ProtexTimingAction.class);
+            if (timing == null) {
+                continue;
+            }
+            NumberOnlyBuildLabel label = new NumberOnlyBuildLabel(build);
+            for (Entry<String, Long> phase : timing.getPhaseDurations().entrySet()) {
+                dataSet.add(phase.getValue(), phase.getKey(), label);
+            }
+        }
+        return dataSet.build();
+    }
+
+    public void doTrend(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        AbstractBuild<?, ?> lastBuild = project.getLastBuild();
+        if (lastBuild == null) {
+            rsp.setStatus(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        new Graph(lastBuild.getTimestamp(), 500, 200) {
+            @Override
+            protected JFreeChart createGraph() {
+                return createChart(buildDataSet());
+            }
+        }.doPng(req, rsp);
+    }
+
+    private JFreeChart createChart(CategoryDataset dataSet) {
+        JFreeChart chart = ChartFactory.createStackedAreaChart(null, null, "ms", dataSet, PlotOrientation.VERTICAL, true, true, false);
+        chart.setBackgroundPaint(Color.WHITE);
+
+        CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setForegroundAlpha(0.8f);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.BLACK);
+
+        CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+        plot.setDomainAxis(domainAxis);
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+
+        NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
+        rangeAxis.setStandardTickUnits(NumberAxis.createIntegerTickUnits());
+
+        plot.setInsets(new RectangleInsets(0, 0, 0, 5.0));
+        return chart;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.action;
+
+/**
+ * How the Protex scan of a build was run.
+ *
+ */
+public enum ScanMode {
+    /**
+     * The whole source path was analyzed, without looking at the change set.
+     */
+    FULL,
+    /**
+     * Incremental mode, the change set had changes under the source path so the whole source path was analyzed. The
+     * analysis is not limited to the changed paths.
+     */
+    INCREMENTAL,
+    /**
+     * Incremental mode, nothing under the source path changed so the analysis was skipped.
+     */
+    SKIPPED,
+    /**
+     * The digest of the source path matched the digest of the last scan so the analysis was skipped.
+     */
+    UNCHANGED,
+    /**
+     * A recent scan of the same project covers this build, see {@link ScanRunAction#getCoveringBuildNumber()}.
+     */
+    COALESCED,
+    /**
+     * Another build, possibly of another job, already scanned the same revision into the same project.
+     */
+    DUPLICATE;
+
+    /**
+     * @return true if bdstool did not run for this build
+     */
+    public boolean isScanSkipped() {
+        return this == SKIPPED || this == UNCHANGED || this == COALESCED || this == DUPLICATE;
+    }
+}
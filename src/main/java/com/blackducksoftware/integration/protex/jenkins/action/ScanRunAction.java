@@ -23,8 +23,131 @@ package com.blackducksoftware.integration.protex.jenkins.action;
 
 import hudson.model.Action;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import com.blackducksoftware.integration.protex.jenkins.ProtexFailureCondition;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
+
 public class ScanRunAction implements Action {
 
+    private final ScanMode scanMode;
+
+    // Number of incremental runs since the last full scan, including this one
+    private final int incrementalRunCount;
+
+    private final int changedPathCount;
+
+    private String projectName;
+
+    // Source path relative to the workspace, '/' separated, empty when the whole workspace is scanned
+    private String sourcePath;
+
+    // Digest of the source path when this scan ran, see ComputeSourceDigest
+    private String sourceDigest;
+
+    // Number of the build whose scan covers this one, only set for coalesced builds
+    private Integer coveringBuildNumber;
+
+    // Statistics bdstool reported at the end of this scan, and when the master received them
+    private ProtexScanStatistics scanStatistics;
+
+    private long statisticsTimestamp;
+
+    // Results of the Failure Conditions checked against this scan, so coalesced builds do not have to ask the server
+    private Map<ProtexFailureCondition, Long> conditionCounts;
+
+    public ScanRunAction() {
+        this(ScanMode.FULL, 0, 0);
+    }
+
+    public ScanRunAction(ScanMode scanMode, int incrementalRunCount, int changedPathCount) {
+        this.scanMode = scanMode;
+        this.incrementalRunCount = incrementalRunCount;
+        this.changedPathCount = changedPathCount;
+    }
+
+    public ScanMode getScanMode() {
+        if (scanMode == null) {
+            // Builds from older versions of the plugin always ran a full scan
+            return ScanMode.FULL;
+        }
+        return scanMode;
+    }
+
+    public int getIncrementalRunCount() {
+        return incrementalRunCount;
+    }
+
+    public int getChangedPathCount() {
+        return changedPathCount;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    /**
+     * @return the source path relative to the workspace, null for builds from older versions of the plugin
+     */
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public void setSourcePath(String sourcePath) {
+        this.sourcePath = sourcePath;
+    }
+
+    public String getSourceDigest() {
+        return sourceDigest;
+    }
+
+    public void setSourceDigest(String sourceDigest) {
+        this.sourceDigest = sourceDigest;
+    }
+
+    public Integer getCoveringBuildNumber() {
+        return coveringBuildNumber;
+    }
+
+    public void setCoveringBuildNumber(Integer coveringBuildNumber) {
+        this.coveringBuildNumber = coveringBuildNumber;
+    }
+
+    public ProtexScanStatistics getScanStatistics() {
+        return scanStatistics;
+    }
+
+    public long getStatisticsTimestamp() {
+        return statisticsTimestamp;
+    }
+
+    public void setScanStatistics(ProtexScanStatistics scanStatistics) {
+        this.scanStatistics = scanStatistics;
+        statisticsTimestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the count the Failure Condition found for this scan, or null if it was not checked
+     */
+    public synchronized Long getConditionCount(ProtexFailureCondition condition) {
+        if (conditionCounts == null) {
+            return null;
+        }
+        return conditionCounts.get(condition);
+    }
+
+    public synchronized void setConditionCount(ProtexFailureCondition condition, long count) {
+        if (conditionCounts == null) {
+            conditionCounts = new HashMap<ProtexFailureCondition, Long>();
+        }
+        conditionCounts.put(condition, count);
+    }
+
     @Override
     public String getIconFileName() {
         return null;
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+/**
+ * Time budget for the Protex SDK calls made by the current thread, ex: the SDK calls of the Protex scan step of a
+ * build. The {@link ProtexConduitConfigurer} charges every SDK call to the budget, and fails the calls once it is
+ * spent, so a server that stopped answering fails the build step instead of making every call wait for its timeout.
+ *
+ * The budget must be ended by the thread that started it, once the step is done.
+ *
+ */
+public class ProtexCallBudget {
+
+	private static final ThreadLocal<ProtexCallBudget> CURRENT = new ThreadLocal<ProtexCallBudget>();
+
+	private final long budget;
+
+	private long spent = 0;
+
+	public ProtexCallBudget(final long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Starts a budget for the SDK calls of the current thread, replacing the previous one.
+	 *
+	 * @param budget
+	 *            long milliseconds the SDK calls may take in total
+	 */
+	public static ProtexCallBudget start(final long budget) {
+		final ProtexCallBudget callBudget = new ProtexCallBudget(budget);
+		CURRENT.set(callBudget);
+		return callBudget;
+	}
+
+	/**
+	 * Charges the SDK calls of the current thread to a budget started by another thread, ex: the worker threads that
+	 * run the queries of a build step. The current thread must end it once it is done with these calls.
+	 *
+	 * @param callBudget
+	 *            ProtexCallBudget to charge, null removes the budget of the current thread
+	 */
+	public static void set(final ProtexCallBudget callBudget) {
+		if (callBudget == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(callBudget);
+		}
+	}
+
+	/**
+	 * @return the budget of the current thread, null if it has none
+	 */
+	public static ProtexCallBudget current() {
+		return CURRENT.get();
+	}
+
+	public static void end() {
+		CURRENT.remove();
+	}
+
+	public synchronized void charge(final long millis) {
+		spent += millis;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public synchronized long getSpent() {
+		return spent;
+	}
+
+	/**
+	 * @return the milliseconds left, 0 once the budget is spent
+	 */
+	public synchronized long getRemaining() {
+		return Math.max(0, budget - spent);
+	}
+
+	public boolean isExhausted() {
+		return getRemaining() == 0;
+	}
+
+}
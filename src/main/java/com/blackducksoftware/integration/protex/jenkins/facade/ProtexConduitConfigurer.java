@@ -0,0 +1,637 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.ClientLifeCycleListener;
+import org.apache.cxf.endpoint.ClientLifeCycleManager;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.MessageSenderInterceptor;
+import org.apache.cxf.interceptor.MessageSenderInterceptor.MessageSenderEndingInterceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.transport.Conduit;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.protex.exceptions.ProtexTimeoutException;
+import com.blackducksoftware.integration.protex.jenkins.PostBuildProtexScanDescriptor;
+import com.blackducksoftware.integration.protex.jenkins.ResizableSemaphore;
+
+/**
+ * Applies the connection settings of the {@link ProtexServerInfo}s to the CXF clients the Protex SDK creates: the
+ * connect and read timeouts, keep-alive, the maximum number of SDK calls in flight and a TLS session cache per server.
+ * It also counts the SDK calls and the new connections of each server, so the Protex Diagnostics page can show how
+ * often the connections are reused.
+ *
+ * A call that takes longer than its operation timeout, or than what is left of the {@link ProtexCallBudget} of the
+ * calling thread, is aborted by closing its connection. Once the budget is spent the calls fail before they are sent.
+ *
+ * Once {@link #install()} ran, CXF calls {@link #clientCreated(Client)} for every client created on the default bus.
+ * The clients of Urls that are not a configured Protex server are left alone.
+ *
+ */
+public class ProtexConduitConfigurer implements ClientLifeCycleListener {
+
+	private static final Logger LOGGER = Logger.getLogger(ProtexConduitConfigurer.class.getName());
+
+	private static final ProtexConduitConfigurer INSTANCE = new ProtexConduitConfigurer();
+
+	private static final String PERMIT = ProtexConduitConfigurer.class.getName() + ".permit";
+
+	private static final String START = ProtexConduitConfigurer.class.getName() + ".start";
+
+	private static final String BUDGET = ProtexConduitConfigurer.class.getName() + ".budget";
+
+	private static final String WATCHDOG = ProtexConduitConfigurer.class.getName() + ".watchdog";
+
+	private static final ScheduledExecutorService WATCHDOG_TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "Protex SDK call watchdog");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * Keyed by the Protex server Id.
+	 */
+	private final Map<String, ServerConnections> connections = new HashMap<String, ServerConnections>();
+
+	private boolean installed = false;
+
+	public static ProtexConduitConfigurer getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the configurer with the CXF default bus, only the first call does anything. Must run before the facade
+	 * is created.
+	 */
+	public static void install() {
+		INSTANCE.register(BusFactory.getDefaultBus());
+	}
+
+	public synchronized void register(final Bus bus) {
+		if (installed) {
+			return;
+		}
+		final ClientLifeCycleManager manager = bus.getExtension(ClientLifeCycleManager.class);
+		if (manager == null) {
+			LOGGER.warning("The CXF bus has no ClientLifeCycleManager, the Protex connection settings are not applied");
+		} else {
+			manager.registerListener(this);
+		}
+		installed = true;
+	}
+
+	@Override
+	public void clientCreated(final Client client) {
+		final String address = client.getEndpoint().getEndpointInfo().getAddress();
+		final ProtexServerInfo server = getServer(address);
+		if (server == null) {
+			return;
+		}
+		final Conduit conduit = client.getConduit();
+		if (!(conduit instanceof HTTPConduit)) {
+			return;
+		}
+		final ServerConnections serverConnections = getConnections(server);
+		configure((HTTPConduit) conduit, address, server, serverConnections);
+		client.getOutInterceptors().add(new AcquireInterceptor(serverConnections));
+		client.getOutInterceptors().add(new DeadlineInterceptor(serverConnections));
+		client.getOutInterceptors().add(new ReleaseInterceptor());
+	}
+
+	@Override
+	public void clientDestroyed(final Client client) {
+	}
+
+	/**
+	 * @return the configured Protex server the address belongs to, null if there is none
+	 */
+	protected ProtexServerInfo getServer(final String address) {
+		final Jenkins jenkins = Jenkins.getInstance();
+		if (jenkins == null || address == null) {
+			return null;
+		}
+		final PostBuildProtexScanDescriptor descriptor = jenkins.getDescriptorByType(PostBuildProtexScanDescriptor.class);
+		if (descriptor == null) {
+			return null;
+		}
+		for (final ProtexServerInfo server : descriptor.getProtexServers()) {
+			if (isServerAddress(server.getProtexPostServerUrl(), address)) {
+				return server;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the address is the server Url or a path under it, ex: https://protex.example.com2 or
+	 *         https://protex:8443 are not addresses of the server https://protex
+	 */
+	static boolean isServerAddress(final String serverUrl, final String address) {
+		final String url = StringUtils.removeEnd(serverUrl, "/");
+		if (StringUtils.isBlank(url) || address == null) {
+			return false;
+		}
+		return address.equalsIgnoreCase(url) || StringUtils.startsWithIgnoreCase(address, url + "/")
+				|| StringUtils.startsWithIgnoreCase(address, url + "?");
+	}
+
+	void configure(final HTTPConduit conduit, final String address, final ProtexServerInfo server, final ServerConnections serverConnections) {
+		HTTPClientPolicy policy = conduit.getClient();
+		if (policy == null) {
+			policy = new HTTPClientPolicy();
+			conduit.setClient(policy);
+		}
+		applyPolicy(policy, server);
+
+		// The connections are only reused when they come from the same socket factory, so every conduit of the server
+		// shares one. If the SDK set its own TLS parameters they are left as they are.
+		if (StringUtils.startsWithIgnoreCase(address, "https") && conduit.getTlsClientParameters() == null) {
+			try {
+				final TLSClientParameters tlsParameters = new TLSClientParameters();
+				tlsParameters.setSSLSocketFactory(serverConnections.getSocketFactory(server.getTlsSessionCacheSize()));
+				tlsParameters.setUseHttpsURLConnectionDefaultHostnameVerifier(true);
+				conduit.setTlsClientParameters(tlsParameters);
+			} catch (final GeneralSecurityException e) {
+				LOGGER.log(Level.WARNING, "Could not set up the TLS session cache for " + server.getProtexPostServerUrl(), e);
+			}
+		}
+	}
+
+	static void applyPolicy(final HTTPClientPolicy policy, final ProtexServerInfo server) {
+		policy.setConnection(server.isKeepAlive() ? ConnectionType.KEEP_ALIVE : ConnectionType.CLOSE);
+		final Long readTimeout = server.getReadTimeoutMillis();
+		if (readTimeout != null) {
+			policy.setReceiveTimeout(readTimeout);
+		}
+		policy.setConnectionTimeout(server.getConnectTimeoutMillis());
+	}
+
+	/**
+	 * @return the time the call may still take in milliseconds, null if there is no limit
+	 */
+	static Long getCallTimeout(final ProtexServerInfo server, final String operationName, final ProtexCallBudget budget) {
+		Long timeout = server.getOperationTimeoutMillis(operationName);
+		if (budget != null && (timeout == null || budget.getRemaining() < timeout)) {
+			timeout = budget.getRemaining();
+		}
+		return timeout;
+	}
+
+	ServerConnections getConnections(final ProtexServerInfo server) {
+		synchronized (connections) {
+			ServerConnections serverConnections = connections.get(server.getProtexServerId());
+			if (serverConnections == null) {
+				serverConnections = new ServerConnections();
+				connections.put(server.getProtexServerId(), serverConnections);
+			}
+			serverConnections.setServer(server);
+			return serverConnections;
+		}
+	}
+
+	/**
+	 * Applies the saved global configuration to the servers the plugin already talked to, the clients created before
+	 * pick up the new limits with their next call.
+	 */
+	public void refresh(final List<ProtexServerInfo> servers) {
+		if (servers == null) {
+			return;
+		}
+		synchronized (connections) {
+			for (final ProtexServerInfo server : servers) {
+				final ServerConnections serverConnections = connections.get(server.getProtexServerId());
+				if (serverConnections != null) {
+					serverConnections.setServer(server);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the connection statistics of the servers the plugin talked to since Jenkins started
+	 */
+	public List<ServerConnections> getServerConnections() {
+		synchronized (connections) {
+			return new ArrayList<ServerConnections>(connections.values());
+		}
+	}
+
+	/**
+	 * Stops the watchdog, gives the permit back and charges the call to the budget, only the first call does anything.
+	 */
+	private static void release(final Exchange exchange) {
+		final ScheduledFuture<?> watchdog = (ScheduledFuture<?>) exchange.remove(WATCHDOG);
+		if (watchdog != null) {
+			watchdog.cancel(false);
+		}
+		final Semaphore permit = (Semaphore) exchange.remove(PERMIT);
+		if (permit != null) {
+			permit.release();
+		}
+		final Long start = (Long) exchange.remove(START);
+		final ProtexCallBudget budget = (ProtexCallBudget) exchange.remove(BUDGET);
+		if (start != null && budget != null) {
+			budget.charge(System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Connection settings and statistics of one Protex server.
+	 *
+	 */
+	public static class ServerConnections {
+
+		private ProtexServerInfo server;
+
+		private String serverName;
+
+		private String serverUrl;
+
+		private int maxConnections = 0;
+
+		private ResizableSemaphore limit;
+
+		private int tlsSessionCacheSize = -1;
+
+		/**
+		 * The JVM default factory the socket factory wraps, null if it has a TLS context of its own.
+		 */
+		private SSLSocketFactory defaultFactory;
+
+		private SSLSocketFactory socketFactory;
+
+		private final AtomicLong requestCount = new AtomicLong();
+
+		private final AtomicLong connectionCount = new AtomicLong();
+
+		private final AtomicLong fullHandshakeCount = new AtomicLong();
+
+		private final AtomicLong resumedHandshakeCount = new AtomicLong();
+
+		private final Map<SSLSession, Boolean> sessions = new WeakHashMap<SSLSession, Boolean>();
+
+		synchronized void setServer(final ProtexServerInfo server) {
+			this.server = server;
+			serverName = server.getProtexPostServerName();
+			serverUrl = server.getProtexPostServerUrl();
+			if (server.getMaxConnections() != maxConnections) {
+				maxConnections = server.getMaxConnections();
+				if (maxConnections <= 0) {
+					// Calls holding a permit give it back to the old limit
+					limit = null;
+				} else if (limit == null) {
+					limit = new ResizableSemaphore(maxConnections);
+				} else {
+					// The calls in flight still count against the new limit
+					limit.resize(maxConnections);
+				}
+			}
+		}
+
+		synchronized ProtexServerInfo getServer() {
+			return server;
+		}
+
+		synchronized ResizableSemaphore getLimit() {
+			return limit;
+		}
+
+		synchronized SSLSocketFactory getSocketFactory(final int cacheSize) throws GeneralSecurityException {
+			if (cacheSize > 0) {
+				if (socketFactory == null || cacheSize != tlsSessionCacheSize || defaultFactory != null) {
+					final SSLContext context = SSLContext.getInstance("TLS");
+					context.init(null, null, null);
+					context.getClientSessionContext().setSessionCacheSize(cacheSize);
+					defaultFactory = null;
+					socketFactory = new CountingSocketFactory(context.getSocketFactory(), this);
+				}
+			} else {
+				// Wraps the factory HttpsURLConnection uses, so the trust and key stores set up in Jenkins still apply
+				final SSLSocketFactory currentDefault = HttpsURLConnection.getDefaultSSLSocketFactory();
+				if (socketFactory == null || currentDefault != defaultFactory) {
+					defaultFactory = currentDefault;
+					socketFactory = new CountingSocketFactory(currentDefault, this);
+				}
+			}
+			tlsSessionCacheSize = cacheSize;
+			return socketFactory;
+		}
+
+		void countRequest() {
+			requestCount.incrementAndGet();
+		}
+
+		void countConnection(final Socket socket) {
+			connectionCount.incrementAndGet();
+			if (socket instanceof SSLSocket) {
+				((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+					@Override
+					public void handshakeCompleted(final HandshakeCompletedEvent event) {
+						countHandshake(event.getSession());
+					}
+				});
+			}
+		}
+
+		void countHandshake(final SSLSession session) {
+			synchronized (sessions) {
+				if (sessions.containsKey(session)) {
+					resumedHandshakeCount.incrementAndGet();
+				} else {
+					sessions.put(session, Boolean.TRUE);
+					fullHandshakeCount.incrementAndGet();
+				}
+			}
+		}
+
+		public synchronized String getServerName() {
+			return serverName;
+		}
+
+		public synchronized String getServerUrl() {
+			return serverUrl;
+		}
+
+		public synchronized int getMaxConnections() {
+			return maxConnections;
+		}
+
+		/**
+		 * @return the number of SDK calls sent to the server
+		 */
+		public long getRequestCount() {
+			return requestCount.get();
+		}
+
+		/**
+		 * @return the number of connections opened to the server, only counted for HTTPS servers
+		 */
+		public long getConnectionCount() {
+			return connectionCount.get();
+		}
+
+		public long getFullHandshakeCount() {
+			return fullHandshakeCount.get();
+		}
+
+		public long getResumedHandshakeCount() {
+			return resumedHandshakeCount.get();
+		}
+
+		/**
+		 * @return the percentage of the SDK calls that reused an open connection, empty if the connections are not
+		 *         counted for this server
+		 */
+		public synchronized String getReusedPercent() {
+			final long requests = getRequestCount();
+			if (socketFactory == null || requests == 0) {
+				return "";
+			}
+			final long reused = Math.max(0, requests - getConnectionCount());
+			return String.format("%.1f", reused * 100.0 / requests);
+		}
+	}
+
+	/**
+	 * Checks the budget, counts the SDK calls and holds a permit of the server limit, if there is one, until the answer
+	 * was read.
+	 *
+	 */
+	private static class AcquireInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		private final ServerConnections serverConnections;
+
+		public AcquireInterceptor(final ServerConnections serverConnections) {
+			super(Phase.PREPARE_SEND);
+			addBefore(MessageSenderInterceptor.class.getName());
+			this.serverConnections = serverConnections;
+		}
+
+		@Override
+		public void handleMessage(final Message message) throws Fault {
+			final ProtexCallBudget budget = ProtexCallBudget.current();
+			if (budget != null && budget.isExhausted()) {
+				throw new Fault(new ProtexTimeoutException("The Protex SDK calls of this build step took longer than the time budget of "
+						+ TimeUnit.MILLISECONDS.toSeconds(budget.getBudget()) + " seconds."));
+			}
+			serverConnections.countRequest();
+
+			// The SDK may have set its own timeouts after the client was created
+			final Conduit conduit = message.getExchange().getConduit(message);
+			if (conduit instanceof HTTPConduit && ((HTTPConduit) conduit).getClient() != null) {
+				applyPolicy(((HTTPConduit) conduit).getClient(), serverConnections.getServer());
+			}
+
+			message.getExchange().put(START, Long.valueOf(System.currentTimeMillis()));
+			if (budget != null) {
+				message.getExchange().put(BUDGET, budget);
+			}
+			final Semaphore limit = serverConnections.getLimit();
+			if (limit == null) {
+				return;
+			}
+			try {
+				limit.acquire();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new Fault(e);
+			}
+			message.getExchange().put(PERMIT, limit);
+		}
+
+		@Override
+		public void handleFault(final Message message) {
+			release(message.getExchange());
+		}
+	}
+
+	/**
+	 * Closes the connection of a call that takes longer than its operation timeout or the rest of the budget. Runs once
+	 * the conduit opened the connection.
+	 *
+	 */
+	private static class DeadlineInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		private final ServerConnections serverConnections;
+
+		public DeadlineInterceptor(final ServerConnections serverConnections) {
+			super(Phase.PREPARE_SEND);
+			addAfter(MessageSenderInterceptor.class.getName());
+			this.serverConnections = serverConnections;
+		}
+
+		@Override
+		public void handleMessage(final Message message) throws Fault {
+			final Exchange exchange = message.getExchange();
+			String operationName = null;
+			if (exchange.getBindingOperationInfo() != null) {
+				operationName = exchange.getBindingOperationInfo().getName().getLocalPart();
+			}
+			final Long timeout = getCallTimeout(serverConnections.getServer(), operationName, (ProtexCallBudget) exchange.get(BUDGET));
+			final Object connection = message.get(HTTPConduit.KEY_HTTP_CONNECTION);
+			if (timeout == null || !(connection instanceof HttpURLConnection)) {
+				return;
+			}
+			final String name = operationName;
+			exchange.put(WATCHDOG, WATCHDOG_TIMER.schedule(new Runnable() {
+				@Override
+				public void run() {
+					LOGGER.warning("Aborting the Protex SDK call " + name + " to " + serverConnections.getServerUrl() + " after " + timeout + " ms");
+					((HttpURLConnection) connection).disconnect();
+				}
+			}, timeout, TimeUnit.MILLISECONDS));
+		}
+
+		@Override
+		public void handleFault(final Message message) {
+			release(message.getExchange());
+		}
+	}
+
+	/**
+	 * Gives the permit back once the message was sent and, for a synchronous call, the answer was read.
+	 *
+	 */
+	private static class ReleaseInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		public ReleaseInterceptor() {
+			super(Phase.PREPARE_SEND_ENDING);
+			addAfter(MessageSenderEndingInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(final Message message) throws Fault {
+			release(message.getExchange());
+		}
+
+		@Override
+		public void handleFault(final Message message) {
+			release(message.getExchange());
+		}
+	}
+
+	/**
+	 * Counts the connections opened through the delegate factory.
+	 *
+	 */
+	static class CountingSocketFactory extends SSLSocketFactory {
+
+		private final SSLSocketFactory delegate;
+
+		private final ServerConnections serverConnections;
+
+		CountingSocketFactory(final SSLSocketFactory delegate, final ServerConnections serverConnections) {
+			this.delegate = delegate;
+			this.serverConnections = serverConnections;
+		}
+
+		private Socket count(final Socket socket) {
+			serverConnections.countConnection(socket);
+			return socket;
+		}
+
+		@Override
+		public String[] getDefaultCipherSuites() {
+			return delegate.getDefaultCipherSuites();
+		}
+
+		@Override
+		public String[] getSupportedCipherSuites() {
+			return delegate.getSupportedCipherSuites();
+		}
+
+		@Override
+		public Socket createSocket() throws IOException {
+			return count(delegate.createSocket());
+		}
+
+		@Override
+		public Socket createSocket(final Socket s, final String host, final int port, final boolean autoClose) throws IOException {
+			return count(delegate.createSocket(s, host, port, autoClose));
+		}
+
+		@Override
+		public Socket createSocket(final String host, final int port) throws IOException {
+			return count(delegate.createSocket(host, port));
+		}
+
+		@Override
+		public Socket createSocket(final String host, final int port, final InetAddress localHost, final int localPort) throws IOException {
+			return count(delegate.createSocket(host, port, localHost, localPort));
+		}
+
+		@Override
+		public Socket createSocket(final InetAddress host, final int port) throws IOException {
+			return count(delegate.createSocket(host, port));
+		}
+
+		@Override
+		public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress, final int localPort) throws IOException {
+			return count(delegate.createSocket(address, port, localAddress, localPort));
+		}
+	}
+
+}
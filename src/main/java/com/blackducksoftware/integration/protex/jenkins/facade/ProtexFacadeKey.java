@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Proxy;
+import java.net.URL;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.protex.jenkins.PostBuildProtexScanDescriptor;
+import com.google.common.base.Objects;
+
+import hudson.ProxyConfiguration;
+import jenkins.model.Jenkins;
+
+/**
+ * Identifies a {@link com.blackducksoftware.integration.protex.ProtexFacade} in the {@link ProtexFacadePool}. Two
+ * keys are equal when they would produce facades that talk to the same server, as the same user, through the same
+ * proxy.
+ *
+ */
+public class ProtexFacadeKey {
+
+	private final String protexServerId;
+
+	private final String protexServerUrl;
+
+	private final Long timeout;
+
+	private final String credentialsId;
+
+	private final String username;
+
+	private final String password;
+
+	private final String proxyHost;
+
+	private final int proxyPort;
+
+	private final String proxyUsername;
+
+	private final String proxyPassword;
+
+	public ProtexFacadeKey(final String protexServerId, final String protexServerUrl, final Long timeout, final String credentialsId,
+			final String username, final String password, final String proxyHost, final int proxyPort, final String proxyUsername,
+			final String proxyPassword) {
+		this.protexServerId = protexServerId;
+		this.protexServerUrl = protexServerUrl;
+		this.timeout = timeout;
+		this.credentialsId = credentialsId;
+		this.username = username;
+		this.password = password;
+		this.proxyHost = proxyHost;
+		this.proxyPort = proxyPort;
+		this.proxyUsername = proxyUsername;
+		this.proxyPassword = proxyPassword;
+	}
+
+	/**
+	 * Builds the key for the given server and credentials, resolving the Jenkins proxy configuration for the server
+	 * Url.
+	 *
+	 * @throws MalformedURLException
+	 *             if the server Url is not valid
+	 */
+	public static ProtexFacadeKey create(final ProtexServerInfo server, final String credentialsId, final String username, final String password)
+			throws MalformedURLException {
+		Long timeout = null;
+		if (StringUtils.isNotBlank(server.getProtexPostServerTimeOut())) {
+			timeout = Long.valueOf(server.getProtexPostServerTimeOut().trim());
+		} else {
+			timeout = Long.valueOf(PostBuildProtexScanDescriptor.DEFAULT_TIMEOUT);
+		}
+
+		String proxyHost = null;
+		int proxyPort = -1;
+		String proxyUsername = null;
+		String proxyPassword = null;
+
+		final Jenkins jenkins = Jenkins.getInstance();
+		if (jenkins != null && jenkins.proxy != null) {
+			final URL url = new URL(server.getProtexPostServerUrl());
+			final Proxy proxy = ProxyConfiguration.createProxy(url.getHost(), jenkins.proxy.name, jenkins.proxy.port,
+					jenkins.proxy.noProxyHost);
+			if (proxy.address() != null) {
+				final InetSocketAddress proxyAddress = (InetSocketAddress) proxy.address();
+				if (!StringUtils.isEmpty(proxyAddress.getHostName()) && proxyAddress.getPort() != 0) {
+					proxyHost = proxyAddress.getHostName();
+					proxyPort = proxyAddress.getPort();
+					if (StringUtils.isNotBlank(jenkins.proxy.getUserName()) && StringUtils.isNotBlank(jenkins.proxy.getPassword())) {
+						proxyUsername = jenkins.proxy.getUserName();
+						proxyPassword = jenkins.proxy.getPassword();
+					}
+				}
+			}
+		}
+		return new ProtexFacadeKey(server.getProtexServerId(), server.getProtexPostServerUrl(), timeout, credentialsId, username, password,
+				proxyHost, proxyPort, proxyUsername, proxyPassword);
+	}
+
+	public String getProtexServerId() {
+		return protexServerId;
+	}
+
+	public String getProtexServerUrl() {
+		return protexServerUrl;
+	}
+
+	public Long getTimeout() {
+		return timeout;
+	}
+
+	public String getCredentialsId() {
+		return credentialsId;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public String getProxyHost() {
+		return proxyHost;
+	}
+
+	public int getProxyPort() {
+		return proxyPort;
+	}
+
+	public String getProxyUsername() {
+		return proxyUsername;
+	}
+
+	public String getProxyPassword() {
+		return proxyPassword;
+	}
+
+	public boolean hasProxy() {
+		return StringUtils.isNotBlank(proxyHost) && proxyPort > 0;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ProtexFacadeKey)) {
+			return false;
+		}
+		final ProtexFacadeKey other = (ProtexFacadeKey) obj;
+		return Objects.equal(protexServerId, other.protexServerId)
+				&& Objects.equal(protexServerUrl, other.protexServerUrl)
+				&& Objects.equal(timeout, other.timeout)
+				&& Objects.equal(credentialsId, other.credentialsId)
+				&& Objects.equal(username, other.username)
+				&& Objects.equal(password, other.password)
+				&& Objects.equal(proxyHost, other.proxyHost)
+				&& proxyPort == other.proxyPort
+				&& Objects.equal(proxyUsername, other.proxyUsername)
+				&& Objects.equal(proxyPassword, other.proxyPassword);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(protexServerId, protexServerUrl, timeout, credentialsId, username, password, proxyHost, proxyPort,
+				proxyUsername, proxyPassword);
+	}
+
+	@Override
+	public String toString() {
+		// Never print the passwords
+		return Objects.toStringHelper(this)
+				.add("protexServerId", protexServerId)
+				.add("protexServerUrl", protexServerUrl)
+				.add("credentialsId", credentialsId)
+				.add("username", username)
+				.add("proxyHost", proxyHost)
+				.add("proxyPort", proxyPort)
+				.toString();
+	}
+}
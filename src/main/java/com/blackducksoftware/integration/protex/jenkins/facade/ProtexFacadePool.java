@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.cxf.transports.http.configuration.ProxyServerType;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.jenkins.ProtexJenkinsLogger;
+import com.blackducksoftware.integration.protex.sdk.exceptions.ServerConfigException;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+
+/**
+ * Plugin wide pool of {@link ProtexFacade}s, keyed by {@link ProtexFacadeKey}. Creating a facade means a new CXF
+ * client, a new login and a new TLS handshake, so the build steps and the form validation borrow the facades from
+ * this pool and give them back when they are done.
+ *
+ * A borrowed facade belongs to the borrower until it is released or invalidated, the pool never hands the same facade
+ * to two callers at the same time. Idle facades are evicted after the idle timeout, the least recently used ones are
+ * evicted when the pool is full, and a facade that has been idle longer than the revalidation interval is checked
+ * against the server before it is handed out again.
+ *
+ * The limits can be tuned with the system properties
+ * <tt>com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadePool.maxSize</tt>,
+ * <tt>...idleTimeoutMinutes</tt> and <tt>...revalidateAfterMinutes</tt>.
+ *
+ */
+public class ProtexFacadePool {
+
+	private static final Logger LOGGER = Logger.getLogger(ProtexFacadePool.class.getName());
+
+	public static final int DEFAULT_MAX_SIZE = Integer.getInteger(ProtexFacadePool.class.getName() + ".maxSize", 32);
+
+	public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(Long.getLong(ProtexFacadePool.class.getName() + ".idleTimeoutMinutes", 30));
+
+	public static final long DEFAULT_REVALIDATE_AFTER = TimeUnit.MINUTES.toMillis(Long.getLong(ProtexFacadePool.class.getName()
+			+ ".revalidateAfterMinutes", 5));
+
+	private static final ProtexFacadePool INSTANCE = new ProtexFacadePool(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT, DEFAULT_REVALIDATE_AFTER);
+
+	private final int maxSize;
+
+	private final long idleTimeout;
+
+	private final long revalidateAfter;
+
+	/**
+	 * Idle facades per key, the most recently released facade is first.
+	 */
+	private final Map<ProtexFacadeKey, LinkedList<PooledFacade>> idleFacades = new HashMap<ProtexFacadeKey, LinkedList<PooledFacade>>();
+
+	private final Map<ProtexFacade, ProtexFacadeKey> borrowedFacades = new IdentityHashMap<ProtexFacade, ProtexFacadeKey>();
+
+	private int idleCount = 0;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private final AtomicLong revalidationFailureCount = new AtomicLong();
+
+	public ProtexFacadePool(final int maxSize, final long idleTimeout, final long revalidateAfter) {
+		this.maxSize = maxSize;
+		this.idleTimeout = idleTimeout;
+		this.revalidateAfter = revalidateAfter;
+	}
+
+	public static ProtexFacadePool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Borrows a facade for the given key, creating a new one if there is no usable idle facade. The facade must be given
+	 * back with {@link #release(ProtexFacade)}, or with {@link #invalidate(ProtexFacade)} if it should not be used again.
+	 *
+	 * @param key
+	 *            ProtexFacadeKey
+	 * @param logger
+	 *            IntLogger the facade should log to while it is borrowed
+	 */
+	public ProtexFacade borrow(final ProtexFacadeKey key, final IntLogger logger) throws InvalidKeyException, NoSuchAlgorithmException,
+	NoSuchPaddingException, IllegalBlockSizeException, BadPaddingException, IOException, ServerConfigException {
+		PooledFacade pooled = takeIdle(key);
+		while (pooled != null) {
+			if (System.currentTimeMillis() - pooled.getLastReleased() < revalidateAfter || revalidate(key, pooled.getFacade())) {
+				hitCount.incrementAndGet();
+				return markBorrowed(key, pooled.getFacade(), logger);
+			}
+			revalidationFailureCount.incrementAndGet();
+			evictionCount.incrementAndGet();
+			pooled = takeIdle(key);
+		}
+		missCount.incrementAndGet();
+		return markBorrowed(key, createFacade(key), logger);
+	}
+
+	/**
+	 * Gives a borrowed facade back to the pool. Facades that were not borrowed from this pool are ignored.
+	 */
+	public void release(final ProtexFacade facade) {
+		if (facade == null) {
+			return;
+		}
+		synchronized (this) {
+			final ProtexFacadeKey key = borrowedFacades.remove(facade);
+			if (key == null) {
+				return;
+			}
+			// Do not keep a reference to the build listener of the last borrower
+			facade.setLogger(new ProtexJenkinsLogger(null));
+
+			LinkedList<PooledFacade> facades = idleFacades.get(key);
+			if (facades == null) {
+				facades = new LinkedList<PooledFacade>();
+				idleFacades.put(key, facades);
+			}
+			facades.addFirst(new PooledFacade(facade, System.currentTimeMillis()));
+			idleCount++;
+			evictIdle();
+			while (idleCount > maxSize) {
+				evictLeastRecentlyReleased();
+			}
+		}
+	}
+
+	/**
+	 * Removes a borrowed facade from the pool, it will not be handed out again. Use this when the facade failed to talk
+	 * to the server.
+	 */
+	public synchronized void invalidate(final ProtexFacade facade) {
+		if (facade != null && borrowedFacades.remove(facade) != null) {
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes all the facades for the given server, ex: after the server configuration has changed. The borrowed ones
+	 * stay with their borrowers, they are dropped instead of going back to the pool when they are released.
+	 */
+	public synchronized void invalidateServer(final String protexServerId) {
+		final Iterator<Map.Entry<ProtexFacadeKey, LinkedList<PooledFacade>>> it = idleFacades.entrySet().iterator();
+		while (it.hasNext()) {
+			final Map.Entry<ProtexFacadeKey, LinkedList<PooledFacade>> entry = it.next();
+			if (StringUtils.equals(entry.getKey().getProtexServerId(), protexServerId)) {
+				idleCount -= entry.getValue().size();
+				evictionCount.addAndGet(entry.getValue().size());
+				it.remove();
+			}
+		}
+		final Iterator<ProtexFacadeKey> borrowed = borrowedFacades.values().iterator();
+		while (borrowed.hasNext()) {
+			if (StringUtils.equals(borrowed.next().getProtexServerId(), protexServerId)) {
+				evictionCount.incrementAndGet();
+				borrowed.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes the facades that have been idle longer than the idle timeout.
+	 */
+	public synchronized void evictIdle() {
+		final long now = System.currentTimeMillis();
+		final Iterator<LinkedList<PooledFacade>> lists = idleFacades.values().iterator();
+		while (lists.hasNext()) {
+			final LinkedList<PooledFacade> facades = lists.next();
+			final Iterator<PooledFacade> it = facades.iterator();
+			while (it.hasNext()) {
+				if (now - it.next().getLastReleased() >= idleTimeout) {
+					it.remove();
+					idleCount--;
+					evictionCount.incrementAndGet();
+				}
+			}
+			if (facades.isEmpty()) {
+				lists.remove();
+			}
+		}
+	}
+
+	protected ProtexFacade createFacade(final ProtexFacadeKey key) throws InvalidKeyException, NoSuchAlgorithmException, NoSuchPaddingException,
+	IllegalBlockSizeException, BadPaddingException, IOException, ServerConfigException {
+		// The connection settings of the server are applied when the SDK creates its CXF clients
+		ProtexConduitConfigurer.install();
+		final ProtexFacade facade = new ProtexFacade(key.getProtexServerUrl(), key.getUsername(), key.getPassword(), key.getTimeout());
+		if (key.hasProxy()) {
+			if (StringUtils.isNotBlank(key.getProxyUsername()) && StringUtils.isNotBlank(key.getProxyPassword())) {
+				facade.setProxySettings(key.getProxyHost(), key.getProxyPort(), ProxyServerType.HTTP, true, key.getProxyUsername(),
+						key.getProxyPassword());
+			} else {
+				facade.setProxySettings(key.getProxyHost(), key.getProxyPort(), ProxyServerType.HTTP, true);
+			}
+		}
+		return facade;
+	}
+
+	/**
+	 * Checks that an idle facade can still talk to the server, ex: the session may have expired or the password may
+	 * have changed.
+	 */
+	protected boolean revalidate(final ProtexFacadeKey key, final ProtexFacade facade) {
+		try {
+			facade.setLogger(new ProtexJenkinsLogger(null));
+			facade.validateConnection();
+			return true;
+		} catch (final Exception e) {
+			LOGGER.log(Level.FINE, "Discarding the pooled Protex facade for " + key, e);
+			return false;
+		}
+	}
+
+	private synchronized PooledFacade takeIdle(final ProtexFacadeKey key) {
+		evictIdle();
+		final LinkedList<PooledFacade> facades = idleFacades.get(key);
+		if (facades == null || facades.isEmpty()) {
+			return null;
+		}
+		final PooledFacade pooled = facades.removeFirst();
+		idleCount--;
+		if (facades.isEmpty()) {
+			idleFacades.remove(key);
+		}
+		return pooled;
+	}
+
+	private synchronized ProtexFacade markBorrowed(final ProtexFacadeKey key, final ProtexFacade facade, final IntLogger logger) {
+		facade.setLogger(logger);
+		borrowedFacades.put(facade, key);
+		return facade;
+	}
+
+	private void evictLeastRecentlyReleased() {
+		ProtexFacadeKey oldestKey = null;
+		PooledFacade oldest = null;
+		for (final Map.Entry<ProtexFacadeKey, LinkedList<PooledFacade>> entry : idleFacades.entrySet()) {
+			final PooledFacade last = entry.getValue().getLast();
+			if (oldest == null || last.getLastReleased() < oldest.getLastReleased()) {
+				oldest = last;
+				oldestKey = entry.getKey();
+			}
+		}
+		if (oldestKey != null) {
+			final LinkedList<PooledFacade> facades = idleFacades.get(oldestKey);
+			facades.removeLast();
+			if (facades.isEmpty()) {
+				idleFacades.remove(oldestKey);
+			}
+			idleCount--;
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized int getIdleCount() {
+		return idleCount;
+	}
+
+	public synchronized int getBorrowedCount() {
+		return borrowedFacades.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public long getRevalidationFailureCount() {
+		return revalidationFailureCount.get();
+	}
+
+	private static class PooledFacade {
+		private final ProtexFacade facade;
+
+		private final long lastReleased;
+
+		public PooledFacade(final ProtexFacade facade, final long lastReleased) {
+			this.facade = facade;
+			this.lastReleased = lastReleased;
+		}
+
+		public ProtexFacade getFacade() {
+			return facade;
+		}
+
+		public long getLastReleased() {
+			return lastReleased;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import hudson.model.AbstractProject;
+import hudson.model.Project;
+import hudson.security.ACL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.jenkins.PostBuildProtexScan;
+import com.blackducksoftware.integration.protex.jenkins.ProtexJenkinsLogger;
+
+/**
+ * Creates and logs in a {@link ProtexFacade} for every Protex server and credentials the jobs use, once Jenkins has
+ * loaded the jobs, and leaves them idle in the {@link ProtexFacadePool}. The first facade pays for starting CXF, the
+ * JAXB contexts and the service proxies, this way it is paid in the background instead of by the first build or the
+ * first form validation after a restart.
+ *
+ * The time each facade took is logged and shown on the Protex Diagnostics page. The warm-up can be turned off with the
+ * system property <tt>com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadeWarmup.disabled</tt>.
+ *
+ */
+public class ProtexFacadeWarmup {
+
+	private static final Logger LOGGER = Logger.getLogger(ProtexFacadeWarmup.class.getName());
+
+	public static final boolean DISABLED = Boolean.getBoolean(ProtexFacadeWarmup.class.getName() + ".disabled");
+
+	private static final ProtexFacadeWarmup INSTANCE = new ProtexFacadeWarmup(ProtexFacadePool.getInstance());
+
+	private final ProtexFacadePool pool;
+
+	private final List<WarmupResult> results = Collections.synchronizedList(new ArrayList<WarmupResult>());
+
+	private volatile boolean running = false;
+
+	private volatile long totalMillis = 0;
+
+	public ProtexFacadeWarmup(final ProtexFacadePool pool) {
+		this.pool = pool;
+	}
+
+	public static ProtexFacadeWarmup getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Starts the warm-up in a background thread, unless it is disabled or already running.
+	 */
+	public synchronized void start() {
+		if (DISABLED || running) {
+			return;
+		}
+		running = true;
+		final Thread thread = new Thread("Protex facade warm-up") {
+			@Override
+			public void run() {
+				final SecurityContext old = ACL.impersonate(ACL.SYSTEM);
+				try {
+					warmUp(collectKeys());
+				} catch (final Throwable e) {
+					LOGGER.log(Level.WARNING, "The Protex facade warm-up failed", e);
+				} finally {
+					SecurityContextHolder.setContext(old);
+					running = false;
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return the keys of the facades the Protex scans of all the jobs use
+	 */
+	public static Set<ProtexFacadeKey> collectKeys() {
+		final Set<ProtexFacadeKey> keys = new LinkedHashSet<ProtexFacadeKey>();
+		final Jenkins jenkins = Jenkins.getInstance();
+		if (jenkins == null) {
+			return keys;
+		}
+		for (final AbstractProject<?, ?> project : jenkins.getAllItems(AbstractProject.class)) {
+			if (!(project instanceof Project<?, ?>)) {
+				continue;
+			}
+			final PostBuildProtexScan protexScan = ((Project<?, ?>) project).getPublishersList().get(PostBuildProtexScan.class);
+			if (protexScan == null || !protexScan.isPluginConfigured()) {
+				continue;
+			}
+			try {
+				final ProtexFacadeKey key = protexScan.getProtexFacadeKey();
+				if (key != null) {
+					keys.add(key);
+				}
+			} catch (final Exception e) {
+				// The build reports the configuration problem
+				LOGGER.log(Level.FINE, "Skipping the Protex facade warm-up of " + project.getFullName(), e);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Creates, logs in and releases a facade for each key, one after the other.
+	 */
+	public void warmUp(final Collection<ProtexFacadeKey> keys) {
+		final long start = System.currentTimeMillis();
+		results.clear();
+		for (final ProtexFacadeKey key : keys) {
+			final long keyStart = System.currentTimeMillis();
+			ProtexFacade facade = null;
+			String error = null;
+			try {
+				facade = pool.borrow(key, new ProtexJenkinsLogger(null));
+				facade.validateConnection();
+				pool.release(facade);
+			} catch (final Exception e) {
+				pool.invalidate(facade);
+				error = e.getMessage();
+			}
+			final WarmupResult result = new WarmupResult(key.getProtexServerUrl(), key.getUsername(), System.currentTimeMillis() - keyStart, error);
+			results.add(result);
+			if (error == null) {
+				LOGGER.info("Warmed up the Protex facade for " + result.getServerUrl() + " in " + result.getMillis() + " ms");
+			} else {
+				LOGGER.warning("Could not warm up the Protex facade for " + result.getServerUrl() + " : " + error);
+			}
+		}
+		totalMillis = System.currentTimeMillis() - start;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public List<WarmupResult> getResults() {
+		synchronized (results) {
+			return new ArrayList<WarmupResult>(results);
+		}
+	}
+
+	/**
+	 * @return how long the last warm-up took for all of the facades, in milliseconds
+	 */
+	public long getTotalMillis() {
+		return totalMillis;
+	}
+
+	public static class WarmupResult {
+		private final String serverUrl;
+
+		private final String username;
+
+		private final long millis;
+
+		private final String error;
+
+		public WarmupResult(final String serverUrl, final String username, final long millis, final String error) {
+			this.serverUrl = serverUrl;
+			this.username = username;
+			this.millis = millis;
+			this.error = error;
+		}
+
+		public String getServerUrl() {
+			return serverUrl;
+		}
+
+		public String getUsername() {
+			return username;
+		}
+
+		/**
+		 * @return how long creating and logging in the facade took, in milliseconds
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * @return the error message, null if the facade was warmed up
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+
+}
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import hudson.Util;
+import hudson.remoting.Callable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Computes a Merkle style digest of the source path: every directory digest covers the names, sizes and modification
+ * times (and optionally the content hashes) of its children, so the root digest changes when anything under the
+ * source path changes. The paths ignored through the .bdsignore file and the BDSToolLog directory are not included.
+ * Linked directories are followed, a link back to one of its own parent directories is only digested by its target.
+ *
+ * The top level entries are digested in parallel.
+ *
+ */
+public class ComputeSourceDigest implements Callable<String, IOException> {
+    private static final long serialVersionUID = 3459269768733083577L;
+
+    private static final String LOG_DIRECTORY_NAME = "BDSToolLog";
+
+    private final String sourcePath;
+
+    private final boolean includeContent;
+
+    /**
+     * @param sourcePath
+     *            String canonical path of the Protex source path
+     * @param includeContent
+     *            boolean, true to hash the content of the files, otherwise only the sizes and modification times are used
+     */
+    public ComputeSourceDigest(String sourcePath, boolean includeContent) {
+        this.sourcePath = sourcePath;
+        this.includeContent = includeContent;
+    }
+
+    @Override
+    public String call() throws IOException {
+        final File root = new File(sourcePath);
+        if (!root.exists()) {
+            return null;
+        }
+        final List<Pattern> ignorePatterns = getIgnorePatterns(root);
+
+        final MessageDigest digest = newDigest();
+        update(digest, includeContent ? "content" : "metadata");
+        final String rootPath = root.getCanonicalPath();
+        if (!root.isDirectory()) {
+            update(digest, digestEntry(root, "/" + root.getName(), rootPath, new ArrayList<String>(), ignorePatterns));
+            return Util.toHexString(digest.digest());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "Protex source digest " + sourcePath);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            final List<Future<String>> entries = new ArrayList<Future<String>>();
+            for (final File child : listSorted(root)) {
+                entries.add(executor.submit(new java.util.concurrent.Callable<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        // Each thread walks its own branch, with its own list of parents
+                        final List<String> parents = new ArrayList<String>();
+                        parents.add(rootPath);
+                        return digestEntry(child, "/" + child.getName(), new File(rootPath, child.getName()).getPath(), parents, ignorePatterns);
+                    }
+                }));
+            }
+            for (Future<String> entry : entries) {
+                update(digest, entry.get());
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while computing the digest of " + sourcePath);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return Util.toHexString(digest.digest());
+    }
+
+    /**
+     * @param realPath
+     *            String canonical path of the entry, as long as no link was passed it is the parent path and the name
+     * @param parents
+     *            List of the canonical paths of the directories being digested above this entry
+     * @return the line describing this entry, empty if the entry is ignored
+     */
+    private String digestEntry(File file, String relativePath, String realPath, List<String> parents, List<Pattern> ignorePatterns)
+            throws IOException {
+        if (isIgnored(relativePath, ignorePatterns)) {
+            return "";
+        }
+        if (file.isDirectory()) {
+            String prefix = "D ";
+            String directoryPath = realPath;
+            if (FileUtils.isSymlink(file)) {
+                // The content of the linked directory is digested, unless the link loops back to one of its parents
+                directoryPath = file.getCanonicalPath();
+                if (parents.contains(directoryPath)) {
+                    return "C " + file.getName() + " " + directoryPath + "\n";
+                }
+                prefix = "L ";
+            }
+            final MessageDigest digest = newDigest();
+            parents.add(directoryPath);
+            try {
+                for (File child : listSorted(file)) {
+                    update(digest, digestEntry(child, relativePath + "/" + child.getName(), new File(directoryPath, child.getName()).getPath(),
+                            parents, ignorePatterns));
+                }
+            } finally {
+                parents.remove(parents.size() - 1);
+            }
+            return prefix + file.getName() + " " + Util.toHexString(digest.digest()) + "\n";
+        }
+        final StringBuilder entry = new StringBuilder();
+        entry.append("F ").append(file.getName()).append(' ').append(file.length()).append(' ').append(file.lastModified());
+        if (includeContent) {
+            entry.append(' ').append(hashContent(file));
+        }
+        return entry.append('\n').toString();
+    }
+
+    private boolean isIgnored(String relativePath, List<Pattern> ignorePatterns) {
+        if (relativePath.equals("/" + LOG_DIRECTORY_NAME)) {
+            return true;
+        }
+        for (Pattern pattern : ignorePatterns) {
+            if (pattern.matcher(relativePath).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Pattern> getIgnorePatterns(File root) throws IOException {
+        final List<Pattern> patterns = new ArrayList<Pattern>();
+        final File bdsIgnore = new File(root, ".bdsignore");
+        if (!bdsIgnore.isFile()) {
+            return patterns;
+        }
+        for (String line : FileUtils.readLines(bdsIgnore, "UTF-8")) {
+            if (StringUtils.isBlank(line) || line.trim().startsWith("#")) {
+                continue;
+            }
+            try {
+                patterns.add(Pattern.compile(line.trim()));
+            } catch (PatternSyntaxException e) {
+                // bdstool would not be able to use it either
+            }
+        }
+        return patterns;
+    }
+
+    private String hashContent(File file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final InputStream input = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+        return Util.toHexString(digest.digest());
+    }
+
+    private List<File> listSorted(File directory) throws IOException {
+        final File[] children = directory.listFiles();
+        if (children == null) {
+            throw new IOException("Could not list the directory : " + directory.getAbsolutePath());
+        }
+        Arrays.sort(children);
+        return Arrays.asList(children);
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) throws IOException {
+        digest.update(value.getBytes("UTF-8"));
+    }
+
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import hudson.remoting.Callable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Resolves the host name of the JVM it runs in. The strategies, {@link GetHostName} and
+ * {@link GetHostNameFromNetworkInterfaces}, run at the same time and the first one that returns a host name wins, so a
+ * Node with a broken reverse DNS does not block the build until the lookup gives up.
+ *
+ * The resolution waits at most <tt>com.blackducksoftware.integration.protex.jenkins.remote.HostIdentityResolver.timeoutMillis</tt>
+ * (5000 by default). The host name of the local JVM is only resolved once, see {@link #resolveLocalHost()}. When it
+ * could not be resolved, it is not tried again for
+ * <tt>com.blackducksoftware.integration.protex.jenkins.remote.HostIdentityResolver.failureTtlMillis</tt> (60000 by
+ * default), so the builds on a Node with a broken DNS do not all wait for the timeout.
+ *
+ */
+public class HostIdentityResolver {
+
+    private static final Logger LOGGER = Logger.getLogger(HostIdentityResolver.class.getName());
+
+    public static final long DEFAULT_TIMEOUT = Long.getLong(HostIdentityResolver.class.getName() + ".timeoutMillis", 5000);
+
+    public static final long FAILURE_TTL = Long.getLong(HostIdentityResolver.class.getName() + ".failureTtlMillis", 60000);
+
+    /**
+     * The maximum number of lookups running at the same time.
+     */
+    public static final int MAX_THREADS = Integer.getInteger(HostIdentityResolver.class.getName() + ".threads", 4);
+
+    // A lookup stuck in the DNS can not be interrupted, it keeps its thread until it gives up. The pool is bounded so
+    // the stuck lookups can not pile up threads, once they hold all of them the strategies are skipped.
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Protex host name resolver");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private static String localHostName;
+
+    private static long localResolutionMillis;
+
+    // When the last resolution of the local host name failed, 0 if it did not
+    private static long localFailureTime;
+
+    private final List<Callable<String, IOException>> strategies;
+
+    private final long timeout;
+
+    private long resolutionMillis;
+
+    @SuppressWarnings("unchecked")
+    public HostIdentityResolver() {
+        this(Arrays.<Callable<String, IOException>> asList(new GetHostName(), new GetHostNameFromNetworkInterfaces()), DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param strategies
+     *            the ways to get the host name, all run at the same time
+     * @param timeout
+     *            long milliseconds to wait for an answer
+     */
+    public HostIdentityResolver(List<Callable<String, IOException>> strategies, long timeout) {
+        this.strategies = strategies;
+        this.timeout = timeout;
+    }
+
+    /**
+     * The host name of this JVM, resolved on the first call and cached for the life of the JVM. A failed resolution is
+     * cached for {@link #FAILURE_TTL} milliseconds.
+     *
+     * @return the host name, null if none of the strategies found one in time
+     */
+    public static String resolveLocalHost() {
+        return resolveLocalHost(new HostIdentityResolver(), FAILURE_TTL);
+    }
+
+    static synchronized String resolveLocalHost(HostIdentityResolver resolver, long failureTtl) {
+        if (localHostName == null && (localFailureTime == 0 || System.currentTimeMillis() - localFailureTime >= failureTtl)) {
+            localHostName = resolver.resolve();
+            localResolutionMillis = resolver.getResolutionMillis();
+            localFailureTime = localHostName == null ? System.currentTimeMillis() : 0;
+        }
+        return localHostName;
+    }
+
+    /**
+     * Forgets the host name of this JVM, or its failure, so the next call resolves it again.
+     */
+    static synchronized void clearLocalHost() {
+        localHostName = null;
+        localResolutionMillis = 0;
+        localFailureTime = 0;
+    }
+
+    /**
+     * @return how long the cached host name of this JVM took to resolve, in milliseconds
+     */
+    public static synchronized long getLocalResolutionMillis() {
+        return localResolutionMillis;
+    }
+
+    /**
+     * Runs all of the strategies and returns the first host name found before the timeout.
+     *
+     * @return the host name, null if none of the strategies found one in time
+     */
+    public String resolve() {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + timeout;
+        final CompletionService<String> completion = new ExecutorCompletionService<String>(EXECUTOR);
+        final List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (final Callable<String, IOException> strategy : strategies) {
+            try {
+                futures.add(completion.submit(new java.util.concurrent.Callable<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        return strategy.call();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                LOGGER.warning("All of the host name resolver threads are stuck in earlier lookups, skipping a strategy");
+            }
+        }
+
+        String hostName = null;
+        try {
+            int remaining = futures.size();
+            while (hostName == null && remaining > 0) {
+                final long wait = deadline - System.currentTimeMillis();
+                final Future<String> done = wait > 0 ? completion.poll(wait, TimeUnit.MILLISECONDS) : null;
+                if (done == null) {
+                    LOGGER.warning("Could not resolve the host name within " + timeout + " ms");
+                    break;
+                }
+                remaining--;
+                try {
+                    final String answer = done.get();
+                    if (StringUtils.isNotBlank(answer)) {
+                        hostName = answer;
+                    }
+                } catch (ExecutionException e) {
+                    // Another strategy may still find it
+                    LOGGER.log(Level.FINE, "Host name strategy failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (final Future<String> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        resolutionMillis = System.currentTimeMillis() - start;
+        LOGGER.fine("Resolved the host name " + hostName + " in " + resolutionMillis + " ms");
+        return hostName;
+    }
+
+    /**
+     * @return how long the last {@link #resolve()} took, in milliseconds
+     */
+    public long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.Serializable;
+
+/**
+ * Facts about the Node that do not change while its channel is connected. Collected by the {@link NodeProbe} and
+ * cached by the {@link NodeFactsCache}.
+ *
+ */
+public class NodeFacts implements Serializable {
+    private static final long serialVersionUID = 3459269768733083577L;
+
+    private final String hostName;
+
+    private final String javaHome;
+
+    private final String javaClassVersion;
+
+    private final String osArch;
+
+    private final String osName;
+
+    private final String javaExecutable;
+
+    private final boolean javaExecutableExists;
+
+    private final long hostNameMillis;
+
+    public NodeFacts(String hostName, String javaHome, String javaClassVersion, String osArch, String osName, String javaExecutable,
+            boolean javaExecutableExists, long hostNameMillis) {
+        this.hostName = hostName;
+        this.javaHome = javaHome;
+        this.javaClassVersion = javaClassVersion;
+        this.osArch = osArch;
+        this.osName = osName;
+        this.javaExecutable = javaExecutable;
+        this.javaExecutableExists = javaExecutableExists;
+        this.hostNameMillis = hostNameMillis;
+    }
+
+    public String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * @return the java.home of the JVM running the Node
+     */
+    public String getJavaHome() {
+        return javaHome;
+    }
+
+    public String getJavaClassVersion() {
+        return javaClassVersion;
+    }
+
+    public String getOsArch() {
+        return osArch;
+    }
+
+    public String getOsName() {
+        return osName;
+    }
+
+    public boolean isWindows() {
+        return osName != null && osName.toLowerCase().contains("windows");
+    }
+
+    /**
+     * @return the java executable in the java.home of the JVM running the Node
+     */
+    public String getJavaExecutable() {
+        return javaExecutable;
+    }
+
+    public boolean isJavaExecutableExists() {
+        return javaExecutableExists;
+    }
+
+    /**
+     * @return how long the Node took to resolve its host name, in milliseconds
+     */
+    public long getHostNameMillis() {
+        return hostNameMillis;
+    }
+
+}
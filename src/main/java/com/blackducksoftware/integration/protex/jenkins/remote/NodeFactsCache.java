@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import hudson.remoting.VirtualChannel;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Caches the {@link NodeFacts} per channel. When a Node reconnects it gets a new channel, so the facts are collected
+ * again and the old entry goes away with the old channel.
+ *
+ */
+public class NodeFactsCache {
+
+    private static final Map<VirtualChannel, NodeFacts> NODE_FACTS = new WeakHashMap<VirtualChannel, NodeFacts>();
+
+    private NodeFactsCache() {
+    }
+
+    /**
+     * Runs a {@link NodeProbe} on the channel, only asking for the NodeFacts if they are not cached yet. The NodeFacts
+     * of a Node that could not resolve its host name are not cached, so the next build asks again. A probe that fails
+     * drops the cached NodeFacts, the Node may have lost its connection or changed.
+     *
+     * @param channel
+     *            VirtualChannel of the Node
+     * @param workspace
+     *            String path of the workspace
+     * @param sourcePath
+     *            String the Protex source path, may be blank
+     * @return the NodeProbeResult, the NodeFacts are always set
+     */
+    public static NodeProbeResult probe(VirtualChannel channel, String workspace, String sourcePath) throws IOException,
+            InterruptedException {
+        final NodeFacts cached = get(channel);
+
+        NodeProbeResult result = null;
+        try {
+            result = channel.call(new NodeProbe(workspace, sourcePath, cached == null));
+        } catch (IOException e) {
+            invalidate(channel);
+            throw e;
+        }
+        if (cached == null) {
+            final NodeFacts nodeFacts = result.getNodeFacts();
+            if (nodeFacts != null && nodeFacts.getHostName() != null) {
+                synchronized (NODE_FACTS) {
+                    NODE_FACTS.put(channel, nodeFacts);
+                }
+            }
+            return result;
+        }
+        return new NodeProbeResult(cached, result.getWorkspacePath(), result.getTargetPath(), result.isTargetExists(),
+                result.isBdsIgnoreExists());
+    }
+
+    public static NodeFacts get(VirtualChannel channel) {
+        synchronized (NODE_FACTS) {
+            return NODE_FACTS.get(channel);
+        }
+    }
+
+    /**
+     * Drops the NodeFacts of the channel, the next probe collects them again. Called when a probe of the channel fails.
+     */
+    public static void invalidate(VirtualChannel channel) {
+        synchronized (NODE_FACTS) {
+            NODE_FACTS.remove(channel);
+        }
+    }
+
+}
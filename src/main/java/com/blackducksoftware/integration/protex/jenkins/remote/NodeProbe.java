@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import hudson.remoting.Callable;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Collects everything the Protex scan needs to know about the Node and the workspace in a single round trip, instead
+ * of one remoting call per system property and path.
+ *
+ */
+public class NodeProbe implements Callable<NodeProbeResult, IOException> {
+    private static final long serialVersionUID = 3459269768733083577L;
+
+    private final String workspace;
+
+    private final String sourcePath;
+
+    private final boolean includeNodeFacts;
+
+    /**
+     * @param workspace
+     *            String path of the workspace
+     * @param sourcePath
+     *            String the Protex source path, absolute or relative to the workspace, may be blank
+     * @param includeNodeFacts
+     *            boolean, false if the caller already has the NodeFacts for this channel
+     */
+    public NodeProbe(String workspace, String sourcePath, boolean includeNodeFacts) {
+        this.workspace = workspace;
+        this.sourcePath = sourcePath;
+        this.includeNodeFacts = includeNodeFacts;
+    }
+
+    @Override
+    public NodeProbeResult call() throws IOException {
+        NodeFacts nodeFacts = null;
+        if (includeNodeFacts) {
+            nodeFacts = getNodeFacts();
+        }
+
+        final String workspacePath = new File(workspace).getCanonicalPath();
+        String target = null;
+        if (StringUtils.isBlank(sourcePath) || sourcePath.equals(workspacePath)) {
+            target = workspacePath;
+        } else if (sourcePath.startsWith(workspacePath)) {
+            // The User either included the path to the workspace or they include the $WORKSPACE variable in the
+            // path
+            target = new File(sourcePath).getCanonicalPath();
+        } else {
+            target = new File(workspacePath + File.separator + sourcePath).getCanonicalPath();
+        }
+
+        return new NodeProbeResult(nodeFacts, workspacePath, target, new File(target).exists(), new File(workspacePath, ".bdsignore").exists());
+    }
+
+    private NodeFacts getNodeFacts() {
+        // Bounded in time and cached for the life of the Node JVM
+        final String hostName = HostIdentityResolver.resolveLocalHost();
+
+        final String javaHome = System.getProperty("java.home");
+        final String osName = System.getProperty("os.name");
+
+        File javaExec = new File(javaHome, "bin");
+        if (osName.toLowerCase().contains("windows")) {
+            javaExec = new File(javaExec, "java.exe");
+        } else {
+            javaExec = new File(javaExec, "java");
+        }
+
+        return new NodeFacts(hostName, javaHome, System.getProperty("java.class.version"), System.getProperty("os.arch"), osName,
+                javaExec.getPath(), javaExec.exists(), HostIdentityResolver.getLocalResolutionMillis());
+    }
+
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.Serializable;
+
+/**
+ * Result of a {@link NodeProbe}.
+ *
+ */
+public class NodeProbeResult implements Serializable {
+    private static final long serialVersionUID = 3459269768733083577L;
+
+    private final NodeFacts nodeFacts;
+
+    private final String workspacePath;
+
+    private final String targetPath;
+
+    private final boolean targetExists;
+
+    private final boolean bdsIgnoreExists;
+
+    public NodeProbeResult(NodeFacts nodeFacts, String workspacePath, String targetPath, boolean targetExists, boolean bdsIgnoreExists) {
+        this.nodeFacts = nodeFacts;
+        this.workspacePath = workspacePath;
+        this.targetPath = targetPath;
+        this.targetExists = targetExists;
+        this.bdsIgnoreExists = bdsIgnoreExists;
+    }
+
+    /**
+     * @return the facts about the Node, null if they were not requested
+     */
+    public NodeFacts getNodeFacts() {
+        return nodeFacts;
+    }
+
+    /**
+     * @return the canonical path of the workspace
+     */
+    public String getWorkspacePath() {
+        return workspacePath;
+    }
+
+    /**
+     * @return the canonical path of the source path that should be scanned
+     */
+    public String getTargetPath() {
+        return targetPath;
+    }
+
+    public boolean isTargetExists() {
+        return targetExists;
+    }
+
+    /**
+     * @return true if there is a .bdsignore file in the workspace
+     */
+    public boolean isBdsIgnoreExists() {
+        return bdsIgnoreExists;
+    }
+
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Buffers the log output of a scan on the Node and sends it to the master's {@link ProtexLogSink} in gzip compressed
+ * chunks. A chunk is sent once the buffer reaches the maximum chunk size, or once the oldest buffered output is older
+ * than the maximum delay, so the chunks arrive in the order the output was written.
+ *
+ * If the sink fails, the unsent output and everything written after it go to the fallback stream, so no lines are
+ * lost.
+ */
+public class ProtexBatchingLogStream extends OutputStream {
+
+    public static final int MAX_CHUNK_BYTES = Integer.getInteger(ProtexBatchingLogStream.class.getName() + ".maxChunkBytes", 64 * 1024);
+
+    public static final long MAX_DELAY = Long.getLong(ProtexBatchingLogStream.class.getName() + ".maxDelayMillis", 1000L);
+
+    private static final ScheduledExecutorService FLUSH_TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Protex log flush");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final ProtexLogSink sink;
+
+    private final OutputStream fallback;
+
+    private final int maxChunkBytes;
+
+    private final long maxDelayNanos;
+
+    private final ByteArrayOutputStream buffer;
+
+    private final ScheduledFuture<?> flushTask;
+
+    // System.nanoTime() of the oldest output in the buffer
+    private long oldestWrite;
+
+    private boolean sinkFailed;
+
+    private boolean closed;
+
+    private long chunkCount;
+
+    public ProtexBatchingLogStream(ProtexLogSink sink, OutputStream fallback) {
+        this(sink, fallback, MAX_CHUNK_BYTES, MAX_DELAY);
+    }
+
+    /**
+     * @param sink
+     *            ProtexLogSink exported by the master
+     * @param fallback
+     *            OutputStream that is used if the sink fails
+     * @param maxChunkBytes
+     *            int size of the uncompressed output that is sent at once
+     * @param maxDelayMillis
+     *            long the longest time output is held back before it is sent
+     */
+    public ProtexBatchingLogStream(ProtexLogSink sink, OutputStream fallback, int maxChunkBytes, long maxDelayMillis) {
+        this.sink = sink;
+        this.fallback = fallback;
+        this.maxChunkBytes = maxChunkBytes;
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        buffer = new ByteArrayOutputStream(maxChunkBytes);
+        // Sends the buffered output when nothing has been written for a while
+        flushTask = FLUSH_TIMER.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushIfDue();
+            }
+        }, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (closed || sinkFailed) {
+            fallback.write(b, off, len);
+            return;
+        }
+        if (buffer.size() == 0) {
+            oldestWrite = System.nanoTime();
+        }
+        buffer.write(b, off, len);
+        if (buffer.size() >= maxChunkBytes || System.nanoTime() - oldestWrite >= maxDelayNanos) {
+            sendBuffer();
+        }
+    }
+
+    /**
+     * Sends the buffered output now.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        sendBuffer();
+        if (closed || sinkFailed) {
+            fallback.flush();
+        }
+    }
+
+    /**
+     * Sends the buffered output and stops the timer. The fallback stream is not closed, output written after this
+     * goes to the fallback stream.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flushTask.cancel(false);
+        try {
+            sendBuffer();
+        } finally {
+            closed = true;
+        }
+    }
+
+    public synchronized long getChunkCount() {
+        return chunkCount;
+    }
+
+    public synchronized boolean isSinkFailed() {
+        return sinkFailed;
+    }
+
+    private synchronized void flushIfDue() {
+        if (buffer.size() != 0 && System.nanoTime() - oldestWrite >= maxDelayNanos) {
+            try {
+                sendBuffer();
+            } catch (IOException e) {
+                // The fallback stream failed too, the next write will try again
+            }
+        }
+    }
+
+    private void sendBuffer() throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        if (!sinkFailed) {
+            try {
+                sink.write(compress(buffer));
+                chunkCount++;
+                buffer.reset();
+                return;
+            } catch (IOException e) {
+                sinkFailed = true;
+            } catch (RuntimeException e) {
+                sinkFailed = true;
+            }
+        }
+        // Keep the order, the unsent output goes to the fallback before anything written after it
+        buffer.writeTo(fallback);
+        buffer.reset();
+        fallback.flush();
+    }
+
+    private static byte[] compress(ByteArrayOutputStream buffer) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(buffer.size() / 4 + 64);
+        final GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        buffer.writeTo(gzip);
+        gzip.close();
+        return compressed.toByteArray();
+    }
+
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes the compressed log chunks sent by a {@link ProtexBatchingLogStream} on the Node to the build console.
+ */
+public class ProtexConsoleLogSink implements ProtexLogSink {
+
+    private final OutputStream console;
+
+    private long chunkCount;
+
+    private long byteCount;
+
+    public ProtexConsoleLogSink(OutputStream console) {
+        this.console = console;
+    }
+
+    @Override
+    public synchronized void write(byte[] chunk) throws IOException {
+        final InputStream input = new GZIPInputStream(new ByteArrayInputStream(chunk));
+        try {
+            byteCount += IOUtils.copy(input, console);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+        console.flush();
+        chunkCount++;
+    }
+
+    public synchronized long getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * @return the number of uncompressed bytes written to the console
+     */
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
+}
@@ -21,23 +21,18 @@
  *******************************************************************************/
 package com.blackducksoftware.integration.protex.jenkins.remote;
 
-import hudson.remoting.Callable;
-
-import java.io.File;
 import java.io.IOException;
 
-public class GetCanonicalPath implements Callable<String, IOException> {
-    private static final long serialVersionUID = 3459269768733083577L;
-
-    private final File file;
-
-    public GetCanonicalPath(File file) {
-        this.file = file;
-    }
+/**
+ * Receives the log output of a scan running on a Node in gzip compressed chunks. The master exports its
+ * implementation over the channel, so each chunk is one remoting call instead of one call per log line.
+ */
+public interface ProtexLogSink {
 
-    @Override
-    public String call() throws IOException {
-        return file.getCanonicalPath();
-    }
+    /**
+     * @param chunk
+     *            byte[] gzip compressed log output, the chunks are written in the order they were sent
+     */
+    void write(byte[] chunk) throws IOException;
 
 }
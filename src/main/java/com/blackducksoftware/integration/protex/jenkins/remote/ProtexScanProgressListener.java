@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+/**
+ * Receives the progress of the bdstool scan. The master exports its implementation over the channel so the Node can
+ * report to it while the scan is running.
+ */
+public interface ProtexScanProgressListener {
+
+    /**
+     * @param percentComplete
+     *            Integer percentage of the scan that is done, null if bdstool has not reported it
+     * @param filesScanned
+     *            Long number of files scanned so far, null if bdstool has not reported it
+     * @param totalFiles
+     *            Long number of files to scan, null if bdstool has not reported it
+     */
+    void progressChanged(Integer percentComplete, Long filesScanned, Long totalFiles);
+
+}
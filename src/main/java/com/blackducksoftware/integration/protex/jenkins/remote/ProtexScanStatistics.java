@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The statistics bdstool reports at the end of a scan. Collected on the Node by the JenkinsProtexLogObserver from the
+ * end of scan messages and sent back to the master with the result of the scan. A statistic that bdstool did not
+ * report is null.
+ *
+ */
+public class ProtexScanStatistics implements Serializable {
+    private static final long serialVersionUID = 3459269768733083577L;
+
+    private static final Pattern COUNT = Pattern.compile("(\\d[\\d,]*)");
+
+    private static final Pattern HOURS_MINUTES_SECONDS = Pattern.compile("(\\d+):(\\d{1,2}):(\\d{1,2})");
+
+    private static final Pattern MINUTES_SECONDS = Pattern.compile("(\\d+):(\\d{1,2})");
+
+    private static final Pattern MILLISECONDS = Pattern.compile("(\\d+)\\s*ms", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SECONDS = Pattern.compile("(\\d+)\\s*(s|sec|secs|seconds?)\\b", Pattern.CASE_INSENSITIVE);
+
+    private Long filesAnalyzed;
+
+    private Long pendingIds;
+
+    // The keys the pending count was read from, more than one means bdstool split it into categories
+    private Set<String> pendingKeys;
+
+    private Long filesSkipped;
+
+    private Long elapsedMillis;
+
+    /**
+     * Picks the statistics out of an end of scan message map. The keys are matched loosely since their wording depends
+     * on the version of bdstool.
+     */
+    public synchronized void update(Map<?, ?> messages) {
+        for (Entry<?, ?> message : messages.entrySet()) {
+            if (message.getKey() == null || message.getValue() == null) {
+                continue;
+            }
+            String key = message.getKey().toString().toLowerCase(Locale.ENGLISH);
+            String value = message.getValue().toString();
+            if (key.contains("pending")) {
+                if (pendingKeys == null) {
+                    pendingKeys = new HashSet<String>();
+                }
+                pendingKeys.add(key);
+                pendingIds = parseCount(value, pendingIds);
+            } else if (key.contains("skipped")) {
+                filesSkipped = parseCount(value, filesSkipped);
+            } else if (key.contains("analyzed") || key.contains("analysed")) {
+                filesAnalyzed = parseCount(value, filesAnalyzed);
+            } else if (key.contains("elapsed")) {
+                elapsedMillis = parseDuration(value, elapsedMillis);
+            }
+        }
+    }
+
+    static Long parseCount(String value, Long previous) {
+        Matcher matcher = COUNT.matcher(value);
+        if (!matcher.find()) {
+            return previous;
+        }
+        try {
+            return Long.valueOf(matcher.group(1).replace(",", ""));
+        } catch (NumberFormatException e) {
+            return previous;
+        }
+    }
+
+    static Long parseDuration(String value, Long previous) {
+        try {
+            Matcher matcher = HOURS_MINUTES_SECONDS.matcher(value);
+            if (matcher.find()) {
+                return ((Long.parseLong(matcher.group(1)) * 60 + Long.parseLong(matcher.group(2))) * 60 + Long.parseLong(matcher.group(3))) * 1000;
+            }
+            matcher = MINUTES_SECONDS.matcher(value);
+            if (matcher.find()) {
+                return (Long.parseLong(matcher.group(1)) * 60 + Long.parseLong(matcher.group(2))) * 1000;
+            }
+            matcher = MILLISECONDS.matcher(value);
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1));
+            }
+            matcher = SECONDS.matcher(value);
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1)) * 1000;
+            }
+        } catch (NumberFormatException e) {
+            // Too large to be a duration
+        }
+        // A bare number does not say which unit it is in
+        return previous;
+    }
+
+    public synchronized Long getFilesAnalyzed() {
+        return filesAnalyzed;
+    }
+
+    /**
+     * @return the number of files pending identification, null if bdstool did not report it or reported several pending
+     *         counts, ex: for code matches and for string searches. The same file can be counted in more than one of
+     *         them, so only the server knows the total.
+     */
+    public synchronized Long getPendingIds() {
+        if (pendingKeys != null && pendingKeys.size() > 1) {
+            return null;
+        }
+        return pendingIds;
+    }
+
+    public synchronized Long getFilesSkipped() {
+        return filesSkipped;
+    }
+
+    public synchronized Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProtexScanStatistics{filesAnalyzed=" + filesAnalyzed + ", pendingIds=" + getPendingIds() + ", filesSkipped=" + filesSkipped
+                + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+
+}
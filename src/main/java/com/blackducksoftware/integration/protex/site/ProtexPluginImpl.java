@@ -56,6 +56,7 @@ import org.acegisecurity.context.SecurityContextHolder;
 import org.jvnet.localizer.Localizable;
 
 import com.blackducksoftware.integration.protex.jenkins.Messages;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadeWarmup;
 
 /**
  * Majority of the code was copied from http://github.com/jenkinsci/cloudbees-plugin-gateway
@@ -280,6 +281,14 @@ public class ProtexPluginImpl extends Plugin {
         }
     }
 
+    /**
+     * The jobs are not loaded yet when {@link #start()} runs, the facades they use are warmed up once they are.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void warmUpProtexFacades() {
+        ProtexFacadeWarmup.getInstance().start();
+    }
+
     @Initializer(requires = "blackDuck-protex-update-center-configured")
     public static void installCorePlugins() {
         LOGGER.log(Level.INFO, "Checking that the Black Duck Protex dependencies have been installed.");
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackducksoftware.integration.protex.helper.TestBuildListener;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanProgressListener;
+
+public class JenkinsProtexProgressObserverTest {
+
+	private ByteArrayOutputStream output;
+
+	private ProtexJenkinsLogger logger;
+
+	private RecordingListener listener;
+
+	@Before
+	public void setUp() {
+		output = new ByteArrayOutputStream();
+		logger = new ProtexJenkinsLogger(new TestBuildListener(new PrintStream(output)));
+		listener = new RecordingListener();
+	}
+
+	@Test
+	public void testUpdatesAreCoalesced() {
+		final JenkinsProtexProgressObserver observer = new JenkinsProtexProgressObserver(logger, listener, 60000L);
+		for (int i = 1; i <= 500; i++) {
+			observer.update(null, i + " of 1000");
+		}
+		// Only the first update is sent within the interval
+		assertEquals(1, listener.updates.size());
+		assertEquals(Long.valueOf(1L), listener.updates.get(0)[1]);
+
+		observer.flush();
+		assertEquals(2, listener.updates.size());
+		assertEquals(Integer.valueOf(50), listener.updates.get(1)[0]);
+		assertEquals(Long.valueOf(500L), listener.updates.get(1)[1]);
+		assertEquals(Long.valueOf(1000L), listener.updates.get(1)[2]);
+
+		// Nothing new to send
+		observer.flush();
+		assertEquals(2, observer.getSentCount());
+	}
+
+	@Test
+	public void testOnlyMilestonesAreLogged() {
+		final JenkinsProtexProgressObserver observer = new JenkinsProtexProgressObserver(logger, listener, 0L);
+		for (int i = 0; i <= 100; i++) {
+			observer.update(null, Integer.valueOf(i));
+		}
+		assertEquals(101, listener.updates.size());
+		final String log = output.toString();
+		int lines = 0;
+		for (String line : log.split("\n")) {
+			if (line.contains("Scan progress")) {
+				lines++;
+			}
+		}
+		assertEquals(100 / JenkinsProtexProgressObserver.MILESTONE_PERCENT, lines);
+		assertTrue(log, log.contains("Scan progress : 50%"));
+	}
+
+	@Test
+	public void testReadsProgressFromAMap() {
+		final JenkinsProtexProgressObserver observer = new JenkinsProtexProgressObserver(logger, listener, 0L);
+		final Map<String, Object> event = new HashMap<String, Object>();
+		event.put("Files Scanned", "1,250");
+		event.put("Total Files", 5000);
+		observer.update(null, event);
+		assertEquals(Integer.valueOf(25), observer.getPercentComplete());
+		assertEquals(Long.valueOf(1250L), observer.getFilesScanned());
+		assertEquals(Long.valueOf(5000L), observer.getTotalFiles());
+
+		event.clear();
+		event.put("Percent Complete", "30.5");
+		observer.update(null, event);
+		assertEquals(Integer.valueOf(30), observer.getPercentComplete());
+		assertEquals(Long.valueOf(1250L), observer.getFilesScanned());
+	}
+
+	@Test
+	public void testOtherEventsAreNotSent() {
+		final JenkinsProtexProgressObserver observer = new JenkinsProtexProgressObserver(logger, listener, 0L);
+		observer.update(null, "Connecting to the server");
+		observer.update(null, new Object());
+		observer.flush();
+		assertEquals(0, listener.updates.size());
+		assertNull(observer.getPercentComplete());
+	}
+
+	@Test
+	public void testFailingListenerDoesNotStopTheScan() {
+		final JenkinsProtexProgressObserver observer = new JenkinsProtexProgressObserver(logger, new ProtexScanProgressListener() {
+			@Override
+			public void progressChanged(final Integer percentComplete, final Long filesScanned, final Long totalFiles) {
+				throw new IllegalStateException("channel closed");
+			}
+		}, 0L);
+		observer.update(null, "10%");
+		observer.update(null, "20%");
+		assertEquals(0, observer.getSentCount());
+		assertEquals(Integer.valueOf(20), observer.getPercentComplete());
+	}
+
+	private static class RecordingListener implements ProtexScanProgressListener {
+		private final List<Object[]> updates = new ArrayList<Object[]>();
+
+		@Override
+		public void progressChanged(final Integer percentComplete, final Long filesScanned, final Long totalFiles) {
+			updates.add(new Object[] { percentComplete, filesScanned, totalFiles });
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import hudson.model.Cause;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.Result;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.model.Jenkins;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.protex.helper.TestHelper;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider.UserFacingAction;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+
+/**
+ * Runs several builds of the same job at the same time against a stubbed Protex server, to make sure the Protex steps
+ * do not share any per build state.
+ */
+public class PostBuildProtexScanConcurrencyTest {
+
+	private static final int BUILDS = 4;
+
+	/**
+	 * Every scan waits here until all of the builds are scanning, so the test only passes if the scans overlap.
+	 */
+	private static CountDownLatch scansRunning;
+
+	/**
+	 * Protex project name to the Java the scan of that project was started with.
+	 */
+	private static final Map<String, String> scannedProjects = new ConcurrentHashMap<String, String>();
+
+	@Rule
+	public JenkinsRule j = new JenkinsRule();
+
+	public static class StubPostBuildProtexScan extends PostBuildProtexScan {
+		public StubPostBuildProtexScan(final String protexServerId, final String protexPostCredentials, final String protexPostProjectName) {
+			super(protexServerId, protexPostCredentials, protexPostProjectName, null, "", 2.0, null);
+		}
+
+		@Override
+		public PostBuildProtexScanDescriptor getDescriptor() {
+			return Jenkins.getInstance().getDescriptorByType(PostBuildProtexScanDescriptor.class);
+		}
+
+		@Override
+		public ProtexFacade getProtexFacade(final IntLogger logger) {
+			// Stands in for the Protex server, one per build like the pool would hand out
+			final ProtexFacade facade = Mockito.mock(ProtexFacade.class);
+			try {
+				Mockito.when(facade.checkProjectExists(Mockito.anyString())).thenReturn(true);
+				Mockito.when(facade.getProtexProjectId(Mockito.anyString())).thenReturn("c_stub_project");
+				Mockito.when(facade.getServerUrl()).thenReturn("http://protex.test");
+			} catch (final Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return facade;
+		}
+
+		@Override
+		public ProtexScanner createProtexScanner(final String javaPath, final String protexUrl, final String projectId, final String projectName,
+				final String sourcePath, final String bdsToolJavaOptions, final ProtexJenkinsLogger logger) {
+			return new StubScanner(javaPath, protexUrl, getProtexUsernamePassword(), projectName, sourcePath, projectId);
+		}
+	}
+
+	public static class StubScanner extends ProtexScanner {
+		private final String javaPath;
+
+		private final String projectName;
+
+		public StubScanner(final String javaPath, final String protexUrl, final UsernamePasswordCredentialsImpl protexCredentials, final String projectName,
+				final String sourcePath, final String projectId) {
+			super(javaPath, protexUrl, protexCredentials, projectName, sourcePath, projectId);
+			this.javaPath = javaPath;
+			this.projectName = projectName;
+		}
+
+		@Override
+		public ProtexScanStatistics call() throws InterruptedException {
+			scansRunning.countDown();
+			if (!scansRunning.await(2, TimeUnit.MINUTES)) {
+				return null;
+			}
+			scannedProjects.put(projectName, javaPath);
+			return new ProtexScanStatistics();
+		}
+	}
+
+	@Test
+	public void testConcurrentBuildsOfOneJob() throws Exception {
+		scansRunning = new CountDownLatch(BUILDS);
+		scannedProjects.clear();
+		j.jenkins.setNumExecutors(BUILDS);
+
+		final String uuid = UUID.randomUUID().toString();
+		final String credentials = TestHelper.addCredentialsToStore(new UserFacingAction(), "TestUser", "TestPassword");
+		final PostBuildProtexScanDescriptor desc = j.jenkins.getDescriptorByType(PostBuildProtexScanDescriptor.class);
+		desc.getProtexServers().add(new ProtexServerInfo("Protex Stub", "http://protex.test", "100", uuid));
+
+		final FreeStyleProject proj = j.createFreeStyleProject("concurrent");
+		proj.setConcurrentBuild(true);
+		proj.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("RUN", "")));
+		proj.getPublishersList().add(new StubPostBuildProtexScan(uuid, credentials, "Project-${RUN}"));
+		proj.getPublishersList().add(new ProtexFailureStep(true, true));
+
+		final List<Future<FreeStyleBuild>> builds = new ArrayList<Future<FreeStyleBuild>>();
+		for (int i = 0; i < BUILDS; i++) {
+			// Different parameters so the queue does not merge the builds
+			builds.add(proj.scheduleBuild2(0, new Cause.UserIdCause(), new ParametersAction(new StringParameterValue("RUN", String.valueOf(i)))));
+		}
+
+		for (int i = 0; i < BUILDS; i++) {
+			final FreeStyleBuild build = builds.get(i).get(5, TimeUnit.MINUTES);
+			final String log = build.getLog();
+			j.assertBuildStatus(Result.SUCCESS, build);
+			assertTrue(log, log.contains("Using Protex Project Name : Project-" + i));
+			assertTrue(log, log.contains("Finished running Protex Failure Conditions."));
+		}
+
+		assertEquals(BUILDS, scannedProjects.size());
+		for (int i = 0; i < BUILDS; i++) {
+			assertNotNull(scannedProjects.get("Project-" + i));
+		}
+	}
+
+}
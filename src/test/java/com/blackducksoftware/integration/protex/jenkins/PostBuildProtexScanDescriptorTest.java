@@ -44,6 +44,7 @@ import org.kohsuke.stapler.StaplerRequest;
 
 import com.blackducksoftware.integration.protex.ProtexServerInfo;
 import com.blackducksoftware.integration.protex.helper.TestHelper;
+import com.blackducksoftware.integration.suite.sdk.logging.LogLevel;
 import com.cloudbees.plugins.credentials.SystemCredentialsProvider.UserFacingAction;
 
 import hudson.model.Descriptor.FormException;
@@ -564,4 +565,39 @@ public class PostBuildProtexScanDescriptorTest {
 
 	}
 
+	@Test
+	public void testConfigureLogLevel() throws FormException {
+		final PostBuildProtexScanDescriptor descriptor = j.jenkins.getDescriptorByType(PostBuildProtexScanDescriptor.class);
+		assertEquals(LogLevel.INFO, descriptor.getLogLevel());
+
+		final JSONObject json = new JSONObject();
+		json.element("protexLogLevel", "DEBUG");
+		descriptor.configure(null, json);
+		assertEquals("DEBUG", descriptor.getProtexLogLevel());
+		assertEquals(LogLevel.DEBUG, descriptor.getLogLevel());
+
+		// The job uses the global log level unless it sets its own
+		final PostBuildProtexScan inherited = new PostBuildProtexScan(null, null, null, null, null, 2.0, null);
+		assertEquals(LogLevel.DEBUG, inherited.getLogLevel());
+		final PostBuildProtexScan own = new PostBuildProtexScan(null, null, null, null, null, 2.0, null, null, null, null, null, null, null, null, "ERROR");
+		assertEquals(LogLevel.ERROR, own.getLogLevel());
+
+		json.element("protexLogLevel", "");
+		descriptor.configure(null, json);
+		assertNull(descriptor.getProtexLogLevel());
+		assertEquals(LogLevel.INFO, inherited.getLogLevel());
+	}
+
+	@Test
+	public void testDoFillProtexLogLevelItems() {
+		final PostBuildProtexScanDescriptor descriptor = new PostBuildProtexScanDescriptor();
+		final ListBoxModel boxModel = descriptor.doFillProtexLogLevelItems();
+		assertEquals("", boxModel.get(0).value);
+		for (int i = 1; i < boxModel.size(); i++) {
+			assertEquals(boxModel.get(i).value, PostBuildProtexScanDescriptor.toLogLevel(boxModel.get(i).value).name());
+		}
+		assertNull(PostBuildProtexScanDescriptor.toLogLevel("NOT A LEVEL"));
+		assertEquals(LogLevel.TRACE, PostBuildProtexScanDescriptor.toLogLevel(" trace "));
+	}
+
 }
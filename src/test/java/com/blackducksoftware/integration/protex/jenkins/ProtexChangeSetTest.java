@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProtexChangeSetTest {
+
+	private static final String WORKSPACE = File.separator + "jenkins" + File.separator + "workspace";
+
+	private ProtexChangeSet getChangeSet(final String... paths) {
+		return new ProtexChangeSet(Arrays.asList(paths), 0);
+	}
+
+	@Test
+	public void testRelativePath() {
+		assertEquals("", ProtexChangeSet.getRelativePath(WORKSPACE, WORKSPACE));
+		assertEquals("src/main", ProtexChangeSet.getRelativePath(WORKSPACE, WORKSPACE + File.separator + "src" + File.separator + "main"));
+		assertNull(ProtexChangeSet.getRelativePath(WORKSPACE, File.separator + "other"));
+	}
+
+	@Test
+	public void testWholeWorkspaceMatchesEverything() {
+		final List<String> paths = getChangeSet("README.md", "src/main/java/Foo.java").getChangedPathsUnder(WORKSPACE, WORKSPACE);
+		assertEquals(2, paths.size());
+	}
+
+	@Test
+	public void testChangesUnderSourcePath() {
+		final String target = WORKSPACE + File.separator + "src" + File.separator + "main";
+		final List<String> paths = getChangeSet("README.md", "src/main/java/Foo.java", "src/mainframe/Bar.java", "trunk/src/main/Baz.java")
+				.getChangedPathsUnder(WORKSPACE, target);
+		assertEquals(Arrays.asList("src/main/java/Foo.java", "trunk/src/main/Baz.java"), paths);
+	}
+
+	@Test
+	public void testNoChangesUnderSourcePath() {
+		final String target = WORKSPACE + File.separator + "src";
+		assertTrue(getChangeSet("docs/index.html", "pom.xml").getChangedPathsUnder(WORKSPACE, target).isEmpty());
+	}
+
+}
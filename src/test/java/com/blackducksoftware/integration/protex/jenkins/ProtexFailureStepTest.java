@@ -29,7 +29,15 @@ import static org.junit.Assert.assertTrue;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
@@ -48,6 +56,9 @@ import com.blackducksoftware.integration.protex.ProtexFacade;
 import com.blackducksoftware.integration.protex.helper.TestBuildListener;
 import com.blackducksoftware.integration.protex.helper.TestHelper;
 import com.blackducksoftware.integration.protex.jenkins.action.ScanRunAction;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexCallBudget;
+import com.blackducksoftware.integration.protex.jenkins.facade.ProtexFacadeKey;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexScanStatistics;
 import com.cloudbees.plugins.credentials.SystemCredentialsProvider.UserFacingAction;
 
 import hudson.model.AbstractBuild;
@@ -284,6 +295,164 @@ public class ProtexFailureStepTest {
 		assertTrue(output.contains("Failing the Build because there are  : 10, License Violation(s)"));
 	}
 
+	@WithoutJenkins
+	@Test
+	public void testGetFailureConditions() {
+		assertTrue(new ProtexFailureStep(false, false).getFailureConditions().isEmpty());
+		assertEquals(Arrays.asList(ProtexFailureCondition.PENDING_IDS, ProtexFailureCondition.LICENSE_VIOLATIONS),
+				new ProtexFailureStep(true, true).getFailureConditions());
+		assertFalse(new ProtexFailureStep(true, true).getBuildFailFast());
+		assertTrue(new ProtexFailureStep(true, true, true).getBuildFailFast());
+	}
+
+	@Test
+	public void testCheckProtexFailConditionsFailFast() throws Exception {
+		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true, true);
+		final TestBuildListener listener = new TestBuildListener(currStream);
+		final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(listener);
+		assertFalse(failureStep.checkProtexFailConditions(getMockedFacade(10, 10), logger, ""));
+
+		final String output = byteOutput.toString("UTF-8");
+		String split[] = null;
+		split = output.split("\\n");
+		assertEquals(1, split.length);
+		assertTrue(output, output.contains("Failing the Build because there are  : 10, "));
+	}
+
+	private ProtexFacadeKey getFacadeKey() {
+		return new ProtexFacadeKey("server", "http://protex.test", 300L, "credentialsId", "user", "password", null, 0, null, null);
+	}
+
+	@Test
+	public void testCheckProtexFailConditionsConcurrently() throws Exception {
+		final TestBuildListener listener = new TestBuildListener(currStream);
+		final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(listener);
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		final ProtexFacade facade = Mockito.mock(ProtexFacade.class);
+		final ProtexFacade otherFacade = Mockito.mock(ProtexFacade.class);
+		final Answer<Integer> waitForOther = new Answer<Integer>() {
+			@Override
+			public Integer answer(final InvocationOnMock invocation) throws Throwable {
+				// Only returns if the other query is running at the same time
+				bothStarted.countDown();
+				assertTrue(bothStarted.await(30, TimeUnit.SECONDS));
+				return 10;
+			}
+		};
+		Mockito.doAnswer(waitForOther).when(facade).getPendingIds(Mockito.anyString());
+		Mockito.doAnswer(waitForOther).when(facade).getViolationCount(Mockito.anyString());
+		Mockito.doAnswer(waitForOther).when(otherFacade).getPendingIds(Mockito.anyString());
+		Mockito.doAnswer(waitForOther).when(otherFacade).getViolationCount(Mockito.anyString());
+		final List<ProtexFacade> borrowed = new ArrayList<ProtexFacade>();
+		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true) {
+			@Override
+			protected ProtexFacade borrowFacade(final ProtexFacadeKey facadeKey, final ProtexJenkinsLogger logger) {
+				borrowed.add(otherFacade);
+				return otherFacade;
+			}
+		};
+
+		assertFalse(failureStep.checkProtexFailConditions(facade, getFacadeKey(), logger, "", null));
+
+		final String output = byteOutput.toString("UTF-8");
+		assertTrue(output, output.contains("Failing the Build because there are  : 10, File(s) Pending Id"));
+		assertTrue(output, output.contains("Failing the Build because there are  : 10, License Violation(s)"));
+		// Each query ran on its own facade
+		assertEquals(1, borrowed.size());
+	}
+
+	@Test
+	public void testCheckProtexFailConditionsShareOneFacade() throws Exception {
+		final TestBuildListener listener = new TestBuildListener(currStream);
+		final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(listener);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final ProtexFacade facade = Mockito.mock(ProtexFacade.class);
+		final Answer<Integer> query = new Answer<Integer>() {
+			@Override
+			public Integer answer(final InvocationOnMock invocation) throws Throwable {
+				maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+				Thread.sleep(100);
+				running.decrementAndGet();
+				return 10;
+			}
+		};
+		Mockito.doAnswer(query).when(facade).getPendingIds(Mockito.anyString());
+		Mockito.doAnswer(query).when(facade).getViolationCount(Mockito.anyString());
+		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true) {
+			@Override
+			protected ProtexFacade borrowFacade(final ProtexFacadeKey facadeKey, final ProtexJenkinsLogger logger) {
+				// The pool could not create another facade
+				return null;
+			}
+		};
+
+		assertFalse(failureStep.checkProtexFailConditions(facade, getFacadeKey(), logger, "", null));
+		assertFalse(failureStep.checkProtexFailConditions(facade, logger, ""));
+
+		// The queries never used the facade at the same time
+		assertEquals(1, maxRunning.get());
+		Mockito.verify(facade, Mockito.times(2)).getPendingIds(Mockito.anyString());
+		Mockito.verify(facade, Mockito.times(2)).getViolationCount(Mockito.anyString());
+	}
+
+	@Test
+	public void testCheckProtexFailConditionsChargeTheBudget() throws Exception {
+		final TestBuildListener listener = new TestBuildListener(currStream);
+		final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(listener);
+		final List<ProtexCallBudget> budgets = new ArrayList<ProtexCallBudget>();
+		final ProtexFacade facade = Mockito.mock(ProtexFacade.class);
+		final Answer<Integer> query = new Answer<Integer>() {
+			@Override
+			public Integer answer(final InvocationOnMock invocation) throws Throwable {
+				synchronized (budgets) {
+					budgets.add(ProtexCallBudget.current());
+				}
+				return 0;
+			}
+		};
+		Mockito.doAnswer(query).when(facade).getPendingIds(Mockito.anyString());
+		Mockito.doAnswer(query).when(facade).getViolationCount(Mockito.anyString());
+		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true);
+
+		final ProtexCallBudget budget = ProtexCallBudget.start(60000L);
+		try {
+			assertTrue(failureStep.checkProtexFailConditions(facade, logger, ""));
+		} finally {
+			ProtexCallBudget.end();
+		}
+		// The queries ran on the executor threads, charged to the budget of the build thread
+		assertEquals(Arrays.asList(budget, budget), budgets);
+
+		budgets.clear();
+		assertTrue(failureStep.checkProtexFailConditions(facade, logger, ""));
+		assertEquals(Arrays.asList(null, null), budgets);
+	}
+
+	@Test
+	public void testCheckProtexFailConditionsUsesScanStatistics() throws Exception {
+		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true);
+		final TestBuildListener listener = new TestBuildListener(currStream);
+		final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(listener);
+		final ProtexFacade facade = getMockedFacade(0, 0);
+
+		final Map<String, Object> messages = new HashMap<String, Object>();
+		messages.put("Pending Identification", "10");
+		final ProtexScanStatistics statistics = new ProtexScanStatistics();
+		statistics.update(messages);
+		final ScanRunAction scanAction = new ScanRunAction();
+		scanAction.setScanStatistics(statistics);
+
+		assertFalse(failureStep.checkProtexFailConditions(facade, logger, "", scanAction));
+
+		final String output = byteOutput.toString("UTF-8");
+		assertTrue(output, output.contains("Failing the Build because there are  : 10, File(s) Pending Id"));
+		Mockito.verify(facade, Mockito.never()).getPendingIds(Mockito.anyString());
+		Mockito.verify(facade).getViolationCount(Mockito.anyString());
+		assertEquals(Long.valueOf(10), scanAction.getConditionCount(ProtexFailureCondition.PENDING_IDS));
+		assertEquals(Long.valueOf(0), scanAction.getConditionCount(ProtexFailureCondition.LICENSE_VIOLATIONS));
+	}
+
 	@Test
 	public void testPerformBuildFailed() throws Exception {
 		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true);
@@ -378,4 +547,29 @@ public class ProtexFailureStepTest {
 		assertTrue(output, output.contains("There was a problem creating the ProtexFacade"));
 	}
 
+	@Test
+	public void testPerformReusesScanSession() throws Exception {
+		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true);
+		final TestBuildListener listener = new TestBuildListener(currStream);
+
+		final AbstractBuild build = getMockedAbstractBuild(Result.SUCCESS,
+				new PostBuildProtexScan("Fake id", "Fake id", "FakeProjectName", "", "", 2.0, null), true, failureStep);
+
+		final ProtexFacade facade = getMockedFacade(0, 0);
+		final ProtexBuildSession session = new ProtexBuildSession(facade, null, "FakeProjectName", "c_fakeprojectname");
+		Mockito.when(build.getAction(ProtexBuildSession.class)).thenReturn(session);
+
+		assertTrue(failureStep.perform(build, null, listener));
+
+		final String output = byteOutput.toString("UTF-8");
+		orgStream.println(output);
+		assertFalse(output, output.contains("There was a problem creating the ProtexFacade"));
+		assertTrue(output, output.contains("Checking the scan results against the Failure Conditions"));
+		Mockito.verify(facade, Mockito.never()).getProtexProjectId(Mockito.anyString());
+		Mockito.verify(facade).getPendingIds("c_fakeprojectname");
+		Mockito.verify(facade).getViolationCount("c_fakeprojectname");
+		// The session still owns the facade until the build completes
+		assertTrue(session.isOpen());
+	}
+
 }
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import hudson.model.JDK;
+import hudson.remoting.VirtualChannel;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ProtexJavaCacheTest {
+
+	@Test
+	public void testJavaIsCachedPerChannelAndJdk() throws Exception {
+		final ProtexJavaCache cache = new ProtexJavaCache();
+		final VirtualChannel channel = Mockito.mock(VirtualChannel.class);
+		final VirtualChannel otherChannel = Mockito.mock(VirtualChannel.class);
+
+		final String key = ProtexJavaCache.getKey(new JDK("jdk6", "/opt/jdk6"));
+		assertNull(cache.get(channel, key));
+
+		cache.put(channel, key, new ProtexJavaCache.ResolvedJava("jdk6", "/opt/jdk6/bin/java"));
+		assertEquals("jdk6", cache.get(channel, key).getJavaName());
+		assertEquals("/opt/jdk6/bin/java", cache.get(channel, key).getJavaPath());
+
+		assertNull(cache.get(otherChannel, key));
+		assertNull(cache.get(channel, ProtexJavaCache.getKey(new JDK("jdk6", "/opt/other/jdk6"))));
+		assertNull(cache.get(channel, ProtexJavaCache.getKey(null)));
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		final ProtexJavaCache cache = new ProtexJavaCache();
+		final VirtualChannel channel = Mockito.mock(VirtualChannel.class);
+		final VirtualChannel otherChannel = Mockito.mock(VirtualChannel.class);
+
+		cache.put(channel, "jdk6", new ProtexJavaCache.ResolvedJava("jdk6", "/opt/jdk6/bin/java"));
+		cache.put(channel, "jdk7", new ProtexJavaCache.ResolvedJava("jdk7", "/opt/jdk7/bin/java"));
+		cache.put(otherChannel, "jdk6", new ProtexJavaCache.ResolvedJava("jdk6", "/opt/jdk6/bin/java"));
+		assertEquals(3, cache.size());
+
+		cache.invalidate(channel);
+		assertNull(cache.get(channel, "jdk6"));
+		assertEquals(1, cache.size());
+
+		cache.clear();
+		assertNull(cache.get(otherChannel, "jdk6"));
+		assertEquals(0, cache.size());
+	}
+
+}
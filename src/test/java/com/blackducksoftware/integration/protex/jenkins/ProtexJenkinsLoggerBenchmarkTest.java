@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hudson.model.StreamBuildListener;
+import hudson.remoting.Callable;
+import hudson.remoting.Channel;
+import hudson.remoting.FastPipedInputStream;
+import hudson.remoting.FastPipedOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexConsoleLogSink;
+import com.blackducksoftware.integration.protex.jenkins.remote.ProtexLogSink;
+
+/**
+ * Compares the lines per second the ProtexJenkinsLogger can send from a Node to the build console, writing each line
+ * to the remote BuildListener against sending them in batched chunks. Both Nodes run in this JVM over a pipe, so the
+ * numbers only show the difference in remoting overhead. It only runs with -DProtexJenkinsLoggerBenchmarkTest.run=true,
+ * use -DProtexJenkinsLoggerBenchmarkTest.lines to change the number of lines.
+ */
+public class ProtexJenkinsLoggerBenchmarkTest {
+
+	private static final String PREFIX = ProtexJenkinsLoggerBenchmarkTest.class.getSimpleName();
+
+	private static final int LINES = Integer.getInteger(PREFIX + ".lines", 20000);
+
+	private ExecutorService executor;
+
+	private Channel master;
+
+	private Channel node;
+
+	@Before
+	public void setUp() throws Exception {
+		Assume.assumeTrue(Boolean.getBoolean(PREFIX + ".run"));
+		executor = Executors.newCachedThreadPool();
+		final FastPipedInputStream masterIn = new FastPipedInputStream();
+		final FastPipedOutputStream nodeOut = new FastPipedOutputStream(masterIn);
+		final FastPipedInputStream nodeIn = new FastPipedInputStream();
+		final FastPipedOutputStream masterOut = new FastPipedOutputStream(nodeIn);
+
+		// Both ends wait for each other while connecting
+		final Future<Channel> nodeChannel = executor.submit(new java.util.concurrent.Callable<Channel>() {
+			@Override
+			public Channel call() throws Exception {
+				return new Channel("node", executor, nodeIn, nodeOut);
+			}
+		});
+		master = new Channel("master", executor, masterIn, masterOut);
+		node = nodeChannel.get(30, TimeUnit.SECONDS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (master == null) {
+			return;
+		}
+		master.close();
+		node.close();
+		master.join(10000);
+		node.join(10000);
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testLinesPerSecond() throws Exception {
+		final ByteArrayOutputStream directConsole = new ByteArrayOutputStream();
+		final long directMillis = logLines(directConsole, null);
+
+		final ByteArrayOutputStream batchedConsole = new ByteArrayOutputStream();
+		final ProtexConsoleLogSink sink = new ProtexConsoleLogSink(batchedConsole);
+		final long batchedMillis = logLines(batchedConsole, master.export(ProtexLogSink.class, sink));
+
+		final String timings = "Protex log lines per second from a Node, one call per line : " + linesPerSecond(directMillis)
+				+ ", batched : " + linesPerSecond(batchedMillis) + ", in " + sink.getChunkCount() + " chunks";
+
+		assertEquals(timings, directConsole.toString("UTF-8"), batchedConsole.toString("UTF-8"));
+		assertTrue(timings, sink.getChunkCount() > 0);
+		assertTrue(timings, sink.getChunkCount() < LINES);
+	}
+
+	/**
+	 * @return the milliseconds until every line was in the console
+	 */
+	private long logLines(final ByteArrayOutputStream console, final ProtexLogSink sink) throws Exception {
+		final String lastLine = "[INFO] line " + (LINES - 1);
+		final long start = System.nanoTime();
+		master.call(new LogLines(new ProtexJenkinsLogger(new StreamBuildListener(console)), sink));
+		// The lines written to the remote BuildListener arrive asynchronously
+		final long deadline = System.currentTimeMillis() + 60000;
+		while (!console.toString("UTF-8").contains(lastLine) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(console.toString("UTF-8").contains(lastLine));
+		return millis;
+	}
+
+	private long linesPerSecond(final long millis) {
+		return LINES * 1000L / Math.max(1L, millis);
+	}
+
+	private static class LogLines implements Callable<Void, IOException> {
+		private static final long serialVersionUID = 1L;
+
+		private final ProtexJenkinsLogger logger;
+
+		private final ProtexLogSink sink;
+
+		public LogLines(final ProtexJenkinsLogger logger, final ProtexLogSink sink) {
+			this.logger = logger;
+			this.sink = sink;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			logger.startBatching(sink);
+			try {
+				for (int i = 0; i < LINES; i++) {
+					logger.info("line " + i);
+				}
+			} finally {
+				logger.stopBatching();
+			}
+			return null;
+		}
+	}
+
+}
@@ -329,4 +329,39 @@ public class ProtexJenkinsLoggerTest {
         assertEquals("[WARN] WARN MESSAGE", systemOutput.toString().trim());
         assertTrue(listenerOutput.size() == 0);
     }
+
+    @Test
+    public void testFormattedLogging() {
+        logger = new ProtexJenkinsLogger(listener);
+        logger.setLogLevel(LogLevel.DEBUG);
+        logger.debug("Checking %s took %d ms", "License Violation(s)", 12L);
+        assertEquals("[DEBUG] Checking License Violation(s) took 12 ms", listenerOutput.toString().trim());
+        assertTrue(logger.isDebugEnabled());
+        assertTrue(!logger.isTraceEnabled());
+    }
+
+    @Test
+    public void testFormattedLoggingIgnored() {
+        logger = new ProtexJenkinsLogger(listener);
+        logger.setLogLevel(LogLevel.INFO);
+        // The arguments are not turned into a String when the level is off
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("The message should not be formatted");
+            }
+        };
+        logger.debug("DEBUG MESSAGE %s", argument);
+        logger.trace("TRACE MESSAGE %s", argument);
+        assertTrue(listenerOutput.size() == 0);
+        assertTrue(systemOutput.size() == 0);
+    }
+
+    @Test
+    public void testFormattedLoggingWithThrowableUsesTheStackTrace() {
+        logger = new ProtexJenkinsLogger(listener);
+        logger.setLogLevel(LogLevel.INFO);
+        logger.error("ERROR MESSAGE", new IllegalStateException("cause"));
+        assertTrue(listenerOutput.toString().contains("java.lang.IllegalStateException: cause"));
+    }
 }
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ProtexPhoneHomeTest {
+
+	private static class TestPhoneHome extends ProtexPhoneHome {
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private final CountDownLatch called = new CountDownLatch(1);
+
+		public TestPhoneHome(final long interval) {
+			super(interval);
+		}
+
+		@Override
+		protected void callHome(final String protexHostName, final String protexVersion, final String thirdPartyVersion,
+				final String pluginVersion) throws Exception {
+			called.countDown();
+			// Simulates a phone-home server that does not answer
+			release.await(30, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testPhoneHomeDoesNotBlock() throws Exception {
+		final TestPhoneHome phoneHome = new TestPhoneHome(TimeUnit.DAYS.toMillis(1));
+
+		assertTrue(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+		assertTrue(phoneHome.called.await(30, TimeUnit.SECONDS));
+		// The first call is still hanging, the next one is only queued
+		assertTrue(phoneHome.phoneHome("other.protex.test", "7.0", "1.509.4", "1.0.0"));
+		phoneHome.release.countDown();
+	}
+
+	@Test
+	public void testDroppedCallIsNotRecorded() throws Exception {
+		final TestPhoneHome phoneHome = new TestPhoneHome(TimeUnit.DAYS.toMillis(1));
+
+		assertTrue(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+		assertTrue(phoneHome.called.await(30, TimeUnit.SECONDS));
+		// Fills the queue behind the hanging call
+		int queued = 0;
+		while (phoneHome.phoneHome("queued" + queued + ".protex.test", "7.0", "1.509.4", "1.0.0")) {
+			queued++;
+			assertTrue(queued < 100);
+		}
+		final String dropped = "queued" + queued + ".protex.test";
+
+		// The dropped call is made once there is room again
+		phoneHome.release.countDown();
+		final long deadline = System.currentTimeMillis() + 30000;
+		boolean accepted = false;
+		while (!accepted && System.currentTimeMillis() < deadline) {
+			accepted = phoneHome.phoneHome(dropped, "7.0", "1.509.4", "1.0.0");
+			Thread.sleep(10);
+		}
+		assertTrue(accepted);
+	}
+
+	@Test
+	public void testFailedCallIsNotRetried() throws Exception {
+		final CountDownLatch failed = new CountDownLatch(1);
+		final ProtexPhoneHome phoneHome = new ProtexPhoneHome(TimeUnit.DAYS.toMillis(1)) {
+			@Override
+			protected void callHome(final String protexHostName, final String protexVersion, final String thirdPartyVersion,
+					final String pluginVersion) throws Exception {
+				failed.countDown();
+				throw new IllegalStateException("Phone-home server not reachable");
+			}
+		};
+
+		assertTrue(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+		assertTrue(failed.await(30, TimeUnit.SECONDS));
+		final long deadline = System.currentTimeMillis() + 30000;
+		while (phoneHome.getFailureCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, phoneHome.getFailureCount());
+		assertFalse(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+	}
+
+	@Test
+	public void testPhoneHomeOncePerInterval() throws Exception {
+		final TestPhoneHome phoneHome = new TestPhoneHome(TimeUnit.DAYS.toMillis(1));
+		phoneHome.release.countDown();
+
+		assertTrue(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+		assertFalse(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+		// A new Protex or plugin version is reported again
+		assertTrue(phoneHome.phoneHome("protex.test", "7.1", "1.509.4", "1.0.0"));
+		assertTrue(phoneHome.phoneHome("protex.test", "7.1", "1.509.4", "1.0.1"));
+
+		assertFalse(phoneHome.phoneHome(null, "7.0", "1.509.4", "1.0.0"));
+		assertFalse(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", ""));
+	}
+
+	@Test
+	public void testPhoneHomeAfterInterval() throws Exception {
+		final TestPhoneHome phoneHome = new TestPhoneHome(0L);
+		phoneHome.release.countDown();
+
+		assertTrue(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+		assertTrue(phoneHome.phoneHome("protex.test", "7.0", "1.509.4", "1.0.0"));
+	}
+
+	@Test
+	public void testProtexVersionCache() throws Exception {
+		final ProtexPhoneHome phoneHome = new ProtexPhoneHome(TimeUnit.DAYS.toMillis(1));
+		assertNull(phoneHome.getProtexVersion("protex.test"));
+		phoneHome.setProtexVersion("protex.test", "7.0");
+		assertEquals("7.0", phoneHome.getProtexVersion("protex.test"));
+		assertNull(phoneHome.getProtexVersion("other.protex.test"));
+
+		final ProtexPhoneHome expired = new ProtexPhoneHome(0L);
+		expired.setProtexVersion("protex.test", "7.0");
+		assertNull(expired.getProtexVersion("protex.test"));
+	}
+
+}
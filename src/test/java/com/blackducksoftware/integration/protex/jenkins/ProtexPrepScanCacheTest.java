@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+
+public class ProtexPrepScanCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ProtexFacade getFacade(final String serverUrl) {
+		final ProtexFacade facade = Mockito.mock(ProtexFacade.class);
+		Mockito.when(facade.getServerUrl()).thenReturn(serverUrl);
+		return facade;
+	}
+
+	@Test
+	public void testUnchangedLocationIsPrepared() throws Exception {
+		final ProtexPrepScanCache cache = new ProtexPrepScanCache(60000L, null);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		assertFalse(cache.isPrepared(facade, "c_project", "host", "/workspace"));
+		cache.setPrepared(facade, "c_project", "host", "/workspace");
+		assertTrue(cache.isPrepared(facade, "c_project", "host", "/workspace"));
+
+		assertFalse(cache.isPrepared(facade, "c_project", "otherHost", "/workspace"));
+		assertFalse(cache.isPrepared(facade, "c_project", "host", "/workspace/other"));
+		assertFalse(cache.isPrepared(facade, "c_other", "host", "/workspace"));
+		assertFalse(cache.isPrepared(getFacade("http://other.test"), "c_project", "host", "/workspace"));
+	}
+
+	@Test
+	public void testOldLocationIsNotPrepared() throws Exception {
+		final ProtexPrepScanCache cache = new ProtexPrepScanCache(0L, null);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		cache.setPrepared(facade, "c_project", "host", "/workspace");
+		assertFalse(cache.isPrepared(facade, "c_project", "host", "/workspace"));
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		final ProtexPrepScanCache cache = new ProtexPrepScanCache(60000L, null);
+		final ProtexFacade facade = getFacade("http://protex.test");
+		final ProtexFacade otherFacade = getFacade("http://other.test");
+
+		cache.setPrepared(facade, "c_project", "host", "/workspace");
+		cache.setPrepared(facade, "c_other", "host", "/workspace");
+		cache.setPrepared(otherFacade, "c_project", "host", "/workspace");
+
+		cache.invalidate(facade, "c_project");
+		assertFalse(cache.isPrepared(facade, "c_project", "host", "/workspace"));
+		assertTrue(cache.isPrepared(facade, "c_other", "host", "/workspace"));
+
+		cache.invalidateServer(facade);
+		assertFalse(cache.isPrepared(facade, "c_other", "host", "/workspace"));
+		assertTrue(cache.isPrepared(otherFacade, "c_project", "host", "/workspace"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLocationsSurviveRestart() throws Exception {
+		final File file = new File(folder.getRoot(), ProtexPrepScanCache.FILE_NAME);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		final ProtexPrepScanCache cache = new ProtexPrepScanCache(60000L, file);
+		cache.setPrepared(facade, "c_project", "host", "/workspace");
+		assertTrue(file.exists());
+
+		final ProtexPrepScanCache restarted = new ProtexPrepScanCache(60000L, file);
+		assertTrue(restarted.isPrepared(facade, "c_project", "host", "/workspace"));
+
+		restarted.invalidate(facade, "c_project");
+		assertFalse(new ProtexPrepScanCache(60000L, file).isPrepared(facade, "c_project", "host", "/workspace"));
+	}
+
+}
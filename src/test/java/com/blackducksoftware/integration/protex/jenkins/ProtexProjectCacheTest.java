@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.ProtexFacadeException;
+import com.blackducksoftware.integration.protex.helper.TestLogger;
+
+public class ProtexProjectCacheTest {
+
+	private ProtexFacade getFacade(final String serverUrl) throws Exception {
+		final ProtexFacade facade = Mockito.mock(ProtexFacade.class);
+		Mockito.when(facade.getServerUrl()).thenReturn(serverUrl);
+		Mockito.when(facade.checkProjectExists("Existing")).thenReturn(true);
+		Mockito.when(facade.getProtexProjectId("Existing")).thenReturn("c_existing");
+		return facade;
+	}
+
+	@Test
+	public void testProjectIdIsCached() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		assertEquals("c_existing", cache.getProjectId(facade, "Existing"));
+		assertEquals("c_existing", cache.getProjectId(facade, "Existing"));
+		assertEquals("c_existing", cache.getProjectId(facade, "Existing"));
+
+		Mockito.verify(facade, Mockito.times(1)).checkProjectExists("Existing");
+		Mockito.verify(facade, Mockito.times(1)).getProtexProjectId("Existing");
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testMissingProjectIsCached() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		assertNull(cache.getProjectId(facade, "Missing"));
+		assertNull(cache.getProjectId(facade, "Missing"));
+
+		Mockito.verify(facade, Mockito.times(1)).checkProjectExists("Missing");
+		Mockito.verify(facade, Mockito.never()).getProtexProjectId("Missing");
+	}
+
+	@Test
+	public void testInvalidateAfterTheProjectIsCreated() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		assertNull(cache.getProjectId(facade, "Created"));
+		Mockito.when(facade.checkProjectExists("Created")).thenReturn(true);
+		Mockito.when(facade.getProtexProjectId("Created")).thenReturn("c_created");
+		// Still the cached missing entry
+		assertNull(cache.getProjectId(facade, "Created"));
+
+		cache.invalidate(facade, "Created");
+		assertEquals("c_created", cache.getProjectId(facade, "Created"));
+	}
+
+	@Test
+	public void testEntriesExpire() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(0L, 0L);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		cache.getProjectId(facade, "Existing");
+		cache.getProjectId(facade, "Existing");
+
+		Mockito.verify(facade, Mockito.times(2)).getProtexProjectId("Existing");
+	}
+
+	@Test
+	public void testServersAreCachedSeparately() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade first = getFacade("http://first.test");
+		final ProtexFacade second = getFacade("http://second.test");
+		Mockito.when(second.getProtexProjectId("Existing")).thenReturn("c_second");
+
+		assertEquals("c_existing", cache.getProjectId(first, "Existing"));
+		assertEquals("c_second", cache.getProjectId(second, "Existing"));
+
+		cache.invalidateServer(first);
+		cache.getProjectId(first, "Existing");
+		cache.getProjectId(second, "Existing");
+		Mockito.verify(first, Mockito.times(2)).getProtexProjectId("Existing");
+		Mockito.verify(second, Mockito.times(1)).getProtexProjectId("Existing");
+	}
+
+	@Test
+	public void testCreateOrGetExistingProject() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade facade = getFacade("http://protex.test");
+
+		assertEquals("c_existing", cache.createOrGetProject(facade, "Existing", "", new TestLogger()));
+		Mockito.verify(facade, Mockito.never()).createProtexProject(Mockito.anyString(), Mockito.anyString());
+	}
+
+	@Test
+	public void testCreateOrGetNewProject() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade facade = getCreatingFacade(new AtomicBoolean(), 0L);
+
+		assertEquals("c_new", cache.createOrGetProject(facade, "New", "Template", new TestLogger()));
+		Mockito.verify(facade, Mockito.times(1)).createProtexProject("New", "Template");
+		// Cached for the next build
+		assertEquals("c_new", cache.createOrGetProject(facade, "New", "Template", new TestLogger()));
+		Mockito.verify(facade, Mockito.times(1)).getProtexProjectId("New");
+	}
+
+	@Test
+	public void testCreateOrGetProjectCreatedElsewhere() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade facade = getFacade("http://protex.test");
+		final ProtexFacadeException alreadyExists = Mockito.mock(ProtexFacadeException.class);
+		Mockito.when(alreadyExists.getMessage()).thenReturn("The project 'Other' already exists");
+		// Another master creates the project between the check and the create
+		final AtomicBoolean created = new AtomicBoolean();
+		Mockito.when(facade.checkProjectExists("Other")).thenAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(final InvocationOnMock invocation) throws Throwable {
+				return created.get();
+			}
+		});
+		Mockito.when(facade.getProtexProjectId("Other")).thenReturn("c_other");
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(final InvocationOnMock invocation) throws Throwable {
+				created.set(true);
+				throw alreadyExists;
+			}
+		}).when(facade).createProtexProject("Other", "");
+
+		assertEquals("c_other", cache.createOrGetProject(facade, "Other", "", new TestLogger()));
+	}
+
+	@Test
+	public void testConcurrentBuildsCreateTheProjectOnce() throws Exception {
+		final ProtexProjectCache cache = new ProtexProjectCache(60000L, 60000L);
+		final ProtexFacade facade = getCreatingFacade(new AtomicBoolean(), 50L);
+
+		final int builds = 4;
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(builds);
+		try {
+			final List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < builds; i++) {
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						start.await();
+						return cache.createOrGetProject(facade, "New", "", new TestLogger());
+					}
+				}));
+			}
+			start.countDown();
+			for (final Future<String> result : results) {
+				assertEquals("c_new", result.get(30, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		Mockito.verify(facade, Mockito.times(1)).createProtexProject("New", "");
+	}
+
+	/**
+	 * @return a facade where the project "New" exists once it was created
+	 */
+	private ProtexFacade getCreatingFacade(final AtomicBoolean created, final long createMillis) throws Exception {
+		final ProtexFacade facade = getFacade("http://protex.test");
+		Mockito.when(facade.checkProjectExists("New")).thenAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(final InvocationOnMock invocation) throws Throwable {
+				return created.get();
+			}
+		});
+		Mockito.when(facade.getProtexProjectId("New")).thenReturn("c_new");
+		Mockito.doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(final InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(createMillis);
+				created.set(true);
+				return null;
+			}
+		}).when(facade).createProtexProject(Mockito.eq("New"), Mockito.anyString());
+		return facade;
+	}
+
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import hudson.Util;
+import hudson.model.AbstractBuild;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.security.MessageDigest;
+
+import junit.framework.Assert;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.jenkins.action.ProtexReportAction;
+
+public class ProtexReportActionTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReportIsStoredInBuildDirectory() throws Exception {
+        final File buildDir = folder.newFolder("build");
+        final AbstractBuild<?, ?> build = Mockito.mock(AbstractBuild.class);
+        Mockito.when(build.getRootDir()).thenReturn(buildDir);
+
+        final String html = "<html><body>Protex Report \u00e9</body></html>";
+        final byte[] bytes = html.getBytes("UTF-8");
+
+        final ProtexReportAction action = ProtexReportAction.create(build, new ByteArrayInputStream(bytes));
+
+        Assert.assertEquals(new File(buildDir, ProtexReportAction.REPORT_FILE_NAME), action.getReportFile());
+        Assert.assertTrue(action.getReportFile().isFile());
+        Assert.assertEquals(bytes.length, action.getReportSize());
+        Assert.assertEquals(Util.toHexString(MessageDigest.getInstance("SHA-256").digest(bytes)), action.getReportDigest());
+        Assert.assertEquals(html, action.getReportHtmlContent());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Assert.assertTrue(action.writeReport(output));
+        Assert.assertEquals(html, output.toString("UTF-8"));
+    }
+
+    @Test
+    public void testMissingReportFile() throws Exception {
+        final File buildDir = folder.newFolder("build");
+        final AbstractBuild<?, ?> build = Mockito.mock(AbstractBuild.class);
+        Mockito.when(build.getRootDir()).thenReturn(buildDir);
+
+        final ProtexReportAction action = new ProtexReportAction(build, ProtexReportAction.REPORT_FILE_NAME, 0, null);
+        Assert.assertNull(action.getReportHtmlContent());
+        Assert.assertFalse(action.writeReport(new ByteArrayOutputStream()));
+
+        final StaplerResponse rsp = Mockito.mock(StaplerResponse.class);
+        action.doReport(Mockito.mock(StaplerRequest.class), rsp);
+        Mockito.verify(rsp).setStatus(StaplerResponse.SC_NOT_FOUND);
+        Mockito.verify(rsp, Mockito.never()).getOutputStream();
+    }
+
+}
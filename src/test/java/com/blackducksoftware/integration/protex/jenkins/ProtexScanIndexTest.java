@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.jenkins.ProtexScanIndex.Lease;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+
+public class ProtexScanIndexTest {
+
+	private static final String URL = "http://protex.test";
+
+	@Test
+	public void testScannedRevisionCoversLaterBuilds() throws Exception {
+		final ProtexScanIndex index = new ProtexScanIndex(TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+
+		final Lease first = index.begin(URL, "c_project", "rev1", "verify #1", Mockito.mock(IntLogger.class));
+		assertFalse(first.isCovered());
+		first.complete(true);
+
+		final Lease second = index.begin(URL, "c_project", "rev1", "merge #1", Mockito.mock(IntLogger.class));
+		assertTrue(second.isCovered());
+		assertEquals("verify #1", second.getCoveringScan().getOwner());
+
+		// Another project or another revision has to scan
+		assertFalse(index.begin(URL, "c_other", "rev1", "nightly #1", Mockito.mock(IntLogger.class)).isCovered());
+		final Lease third = index.begin(URL, "c_project", "rev2", "verify #2", Mockito.mock(IntLogger.class));
+		assertFalse(third.isCovered());
+		third.complete(true);
+
+		// rev2 is now the state of the project on the server
+		assertFalse(index.begin(URL, "c_project", "rev1", "merge #2", Mockito.mock(IntLogger.class)).isCovered());
+	}
+
+	@Test
+	public void testFailedScanDoesNotCover() throws Exception {
+		final ProtexScanIndex index = new ProtexScanIndex(TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+
+		index.begin(URL, "c_project", "rev1", "verify #1", Mockito.mock(IntLogger.class)).complete(false);
+		assertFalse(index.begin(URL, "c_project", "rev1", "merge #1", Mockito.mock(IntLogger.class)).isCovered());
+	}
+
+	@Test
+	public void testExpiredScanDoesNotCover() throws Exception {
+		final ProtexScanIndex index = new ProtexScanIndex(0L, TimeUnit.MINUTES.toMillis(1));
+
+		index.begin(URL, "c_project", "rev1", "verify #1", Mockito.mock(IntLogger.class)).complete(true);
+		assertFalse(index.begin(URL, "c_project", "rev1", "merge #1", Mockito.mock(IntLogger.class)).isCovered());
+	}
+
+	@Test
+	public void testWaitsForTheScanInFlight() throws Exception {
+		final ProtexScanIndex index = new ProtexScanIndex(TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+		final Lease inFlight = index.begin(URL, "c_project", "rev1", "verify #1", Mockito.mock(IntLogger.class));
+
+		final AtomicReference<Lease> waited = new AtomicReference<Lease>();
+		final CountDownLatch done = new CountDownLatch(1);
+		final Thread waiter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					waited.set(index.begin(URL, "c_project", "rev1", "merge #1", Mockito.mock(IntLogger.class)));
+				} catch (final InterruptedException e) {
+					// the test fails on the latch
+				}
+				done.countDown();
+			}
+		});
+		waiter.start();
+
+		assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+		inFlight.complete(true);
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		assertTrue(waited.get().isCovered());
+	}
+
+	@Test
+	public void testUnknownRevisionScanClearsTheProject() throws Exception {
+		final ProtexScanIndex index = new ProtexScanIndex(TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+		index.begin(URL, "c_project", "rev1", "verify #1", Mockito.mock(IntLogger.class)).complete(true);
+
+		// ex: a build without a SCM revision and without the source digest
+		final Lease unknown = index.begin(URL, "c_project", null, "manual #1", Mockito.mock(IntLogger.class));
+		assertFalse(unknown.isCovered());
+		// Already changing the results while it runs
+		assertFalse(index.begin(URL, "c_project", "rev1", "merge #1", Mockito.mock(IntLogger.class)).isCovered());
+	}
+
+	@Test
+	public void testOnlyTheLastStartedScanIsRecorded() throws Exception {
+		final ProtexScanIndex index = new ProtexScanIndex(TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+		final Lease first = index.begin(URL, "c_project", "rev1", "verify #1", Mockito.mock(IntLogger.class));
+		final Lease unknown = index.begin(URL, "c_project", null, "manual #1", Mockito.mock(IntLogger.class));
+		unknown.complete(true);
+		first.complete(true);
+
+		// The unknown scan ran after rev1 was scanned, the project does not hold rev1 anymore
+		assertFalse(index.begin(URL, "c_project", "rev1", "merge #1", Mockito.mock(IntLogger.class)).isCovered());
+	}
+
+	@Test
+	public void testSourceDigestOfTheLastScan() throws Exception {
+		final ProtexScanIndex index = new ProtexScanIndex(TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+		assertNull(index.getSourceDigest(URL, "c_project"));
+
+		index.begin(URL, "c_project", "rev1", "digest1", "verify #1", Mockito.mock(IntLogger.class)).complete(true);
+		assertEquals("digest1", index.getSourceDigest(URL, "c_project"));
+		assertNull(index.getSourceDigest(URL, "c_other"));
+
+		// Another job scans another tree into the same project
+		final Lease other = index.begin(URL, "c_project", "rev2", null, "nightly #1", Mockito.mock(IntLogger.class));
+		assertNull(index.getSourceDigest(URL, "c_project"));
+		other.complete(true);
+		assertNull(index.getSourceDigest(URL, "c_project"));
+
+		index.begin(URL, "c_project", null, "digest2", "verify #2", Mockito.mock(IntLogger.class)).complete(true);
+		assertEquals("digest2", index.getSourceDigest(URL, "c_project"));
+		index.begin(URL, "c_project", "rev3", "digest3", "verify #3", Mockito.mock(IntLogger.class)).complete(false);
+		assertNull(index.getSourceDigest(URL, "c_project"));
+	}
+
+	@Test
+	public void testGetRevision() {
+		final Map<String, String> variables = new HashMap<String, String>();
+		assertNull(ProtexScanIndex.getRevision(variables, "/ws", "/ws/src", null));
+		assertEquals("digest:abc", ProtexScanIndex.getRevision(variables, "/ws", "/ws/src", "abc"));
+
+		variables.put("GIT_COMMIT", "0123abcd");
+		assertEquals("GIT_COMMIT:0123abcd:src", ProtexScanIndex.getRevision(variables, "/ws", "/ws/src", "abc"));
+		assertEquals("GIT_COMMIT:0123abcd:", ProtexScanIndex.getRevision(variables, "/ws", "/ws", null));
+	}
+
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+import com.blackducksoftware.integration.protex.jenkins.ProtexScanLimiter.Permit;
+import com.blackducksoftware.integration.protex.jenkins.ProtexScanLimiter.ServerLimiter;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+
+public class ProtexScanLimiterTest {
+
+	private ServerLimiter getLimiter(final ProtexScanLimiter limiter, final ProtexServerInfo server) {
+		for (final ServerLimiter serverLimiter : limiter.getLimiters()) {
+			if (serverLimiter.getServerName().equals(server.getProtexPostServerName())) {
+				return serverLimiter;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testNoLimit() throws Exception {
+		final ProtexScanLimiter limiter = new ProtexScanLimiter();
+		final ProtexServerInfo server = new ProtexServerInfo("No Limit", "http://protex.test", "300", null, null);
+
+		final Permit first = limiter.acquire(server, "first", Mockito.mock(IntLogger.class));
+		final Permit second = limiter.acquire(server, "second", Mockito.mock(IntLogger.class));
+		first.release();
+		second.release();
+		assertTrue(limiter.getLimiters().isEmpty());
+	}
+
+	@Test
+	public void testWaitersAreQueued() throws Exception {
+		final ProtexScanLimiter limiter = new ProtexScanLimiter();
+		final ProtexServerInfo server = new ProtexServerInfo("Limited " + UUID.randomUUID(), "http://protex.test", "300", null, "1");
+
+		final Permit first = limiter.acquire(server, "first", Mockito.mock(IntLogger.class));
+		final ServerLimiter serverLimiter = getLimiter(limiter, server);
+		assertEquals(1, serverLimiter.getHolderCount());
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		final Thread waiter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final Permit second = limiter.acquire(server, "second", Mockito.mock(IntLogger.class));
+					acquired.countDown();
+					second.release();
+				} catch (final InterruptedException e) {
+					// the test fails on the latch
+				}
+			}
+		});
+		waiter.start();
+
+		final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while (serverLimiter.getWaiters().isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, serverLimiter.getWaiters().size());
+		assertEquals("second", serverLimiter.getWaiters().get(0).getOwner());
+		assertEquals("first", serverLimiter.getHolders().get(0).getOwner());
+
+		first.release();
+		// Releasing twice does not give out an extra permit
+		first.release();
+		assertTrue(acquired.await(10, TimeUnit.SECONDS));
+		waiter.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertTrue(serverLimiter.getWaiters().isEmpty());
+		assertEquals(0, serverLimiter.getHolderCount());
+	}
+
+	@Test
+	public void testLimitChangeKeepsTheRunningScans() throws Exception {
+		final ProtexScanLimiter limiter = new ProtexScanLimiter();
+		final String serverName = "Limited " + UUID.randomUUID();
+		final ProtexServerInfo server = new ProtexServerInfo(serverName, "http://protex.test", "300", "serverId", "2");
+
+		final Permit first = limiter.acquire(server, "first", Mockito.mock(IntLogger.class));
+		final Permit second = limiter.acquire(server, "second", Mockito.mock(IntLogger.class));
+
+		// Lowered while both scans run, a third scan has to wait for both of them
+		final ProtexServerInfo lowered = new ProtexServerInfo(serverName, "http://protex.test", "300", "serverId", "1");
+		final CountDownLatch acquired = new CountDownLatch(1);
+		final Thread waiter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					limiter.acquire(lowered, "third", Mockito.mock(IntLogger.class)).release();
+					acquired.countDown();
+				} catch (final InterruptedException e) {
+					// the test fails on the latch
+				}
+			}
+		});
+		waiter.start();
+
+		final ServerLimiter serverLimiter = getLimiter(limiter, server);
+		assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+		first.release();
+		assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+		second.release();
+		assertTrue(acquired.await(10, TimeUnit.SECONDS));
+		waiter.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertEquals(1, limiter.getLimiters().size());
+		assertEquals(1, serverLimiter.getMaxConcurrentScans());
+	}
+
+	@Test
+	public void testResizableSemaphore() throws Exception {
+		final ResizableSemaphore semaphore = new ResizableSemaphore(2);
+		semaphore.acquire(2);
+		semaphore.resize(1);
+		assertEquals(1, semaphore.getPermits());
+		semaphore.release(2);
+		assertEquals(1, semaphore.availablePermits());
+		semaphore.resize(3);
+		assertEquals(3, semaphore.availablePermits());
+	}
+
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import hudson.model.AbstractBuild;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.jenkins.action.ProtexTimingAction;
+
+public class ProtexTimingActionTest {
+
+	@Test
+	public void testPhasesAreRecordedInOrder() throws Exception {
+		final ProtexTimingAction timing = new ProtexTimingAction();
+		long start = ProtexTimingAction.start();
+		Thread.sleep(5);
+		timing.stop(ProtexTimingAction.PHASE_FACADE, start);
+		start = ProtexTimingAction.start();
+		timing.stop(ProtexTimingAction.PHASE_SCAN, start);
+
+		final Map<String, Long> durations = timing.getPhaseDurations();
+		assertEquals(Arrays.asList(ProtexTimingAction.PHASE_FACADE, ProtexTimingAction.PHASE_SCAN), new ArrayList<String>(durations.keySet()));
+		assertTrue(durations.get(ProtexTimingAction.PHASE_FACADE) >= 5);
+		assertEquals(durations.get(ProtexTimingAction.PHASE_FACADE) + durations.get(ProtexTimingAction.PHASE_SCAN), timing.getTotalDuration());
+		assertNull(timing.getPhaseDuration(ProtexTimingAction.PHASE_REPORT));
+	}
+
+	@Test
+	public void testRepeatedPhaseAddsUp() throws Exception {
+		final ProtexTimingAction timing = new ProtexTimingAction();
+		long start = ProtexTimingAction.start();
+		Thread.sleep(5);
+		timing.stop(ProtexTimingAction.PHASE_PROJECT, start);
+		final long first = timing.getPhaseDuration(ProtexTimingAction.PHASE_PROJECT);
+		start = ProtexTimingAction.start();
+		Thread.sleep(5);
+		timing.stop(ProtexTimingAction.PHASE_PROJECT, start);
+
+		assertEquals(1, timing.getPhaseDurations().size());
+		assertTrue(timing.getPhaseDuration(ProtexTimingAction.PHASE_PROJECT) >= first + 5);
+	}
+
+	@Test
+	public void testGetTimingActionIsSharedByTheBuild() throws Exception {
+		final AbstractBuild<?, ?> build = Mockito.mock(AbstractBuild.class);
+		final ProtexTimingAction timing = ProtexTimingAction.getTimingAction(build);
+		Mockito.verify(build).addAction(timing);
+
+		Mockito.when(build.getAction(ProtexTimingAction.class)).thenReturn(timing);
+		assertSame(timing, ProtexTimingAction.getTimingAction(build));
+		Mockito.verify(build, Mockito.times(1)).addAction(Mockito.any(ProtexTimingAction.class));
+	}
+
+}
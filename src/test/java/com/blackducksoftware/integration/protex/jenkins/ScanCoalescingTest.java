@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.jenkins.action.ScanMode;
+import com.blackducksoftware.integration.protex.jenkins.action.ScanRunAction;
+import com.blackducksoftware.integration.suite.sdk.logging.IntLogger;
+
+public class ScanCoalescingTest {
+
+	private static final long NOW = System.currentTimeMillis();
+
+	private PostBuildProtexScan getScan(final Integer coalesceMinutes, final Integer coalesceBuilds) {
+		return new PostBuildProtexScan("id", "credentials", "Project", null, "", 2.0, null, null, null, null, null, null, coalesceMinutes,
+				coalesceBuilds);
+	}
+
+	private AbstractBuild getBuild(final int number, final long minutesAgo, final ScanRunAction scanRun, final AbstractBuild previousBuild) {
+		final AbstractBuild build = Mockito.mock(AbstractBuild.class);
+		Mockito.when(build.getNumber()).thenReturn(number);
+		Mockito.when(build.getTimeInMillis()).thenReturn(NOW - TimeUnit.MINUTES.toMillis(minutesAgo));
+		Mockito.when(build.getAction(ScanRunAction.class)).thenReturn(scanRun);
+		Mockito.doReturn(previousBuild).when(build).getPreviousBuild();
+		return build;
+	}
+
+	private ScanRunAction getScanRun(final ScanMode mode, final String projectName) {
+		final ScanRunAction scanRun = new ScanRunAction(mode, 0, 0);
+		scanRun.setProjectName(projectName);
+		return scanRun;
+	}
+
+	@Test
+	public void testCoalescingOff() {
+		final AbstractBuild scanned = getBuild(1, 1, getScanRun(ScanMode.FULL, "Project"), null);
+		final AbstractBuild build = getBuild(2, 0, null, scanned);
+		final ScanRunAction scanRun = new ScanRunAction();
+
+		assertSame(scanRun, getScan(null, null).checkCoalescing(build, Mockito.mock(IntLogger.class), "Project", false, scanRun));
+	}
+
+	@Test
+	public void testCoalescedWithinWindow() {
+		final AbstractBuild scanned = getBuild(1, 5, getScanRun(ScanMode.FULL, "Project"), null);
+		final AbstractBuild build = getBuild(2, 0, null, scanned);
+
+		final ScanRunAction coalesced = getScan(10, null).checkCoalescing(build, Mockito.mock(IntLogger.class), "Project", false, new ScanRunAction());
+		assertEquals(ScanMode.COALESCED, coalesced.getScanMode());
+		assertTrue(coalesced.getScanMode().isScanSkipped());
+		assertEquals(Integer.valueOf(1), coalesced.getCoveringBuildNumber());
+		assertEquals("Project", coalesced.getProjectName());
+
+		// Outside of the window, a full scan requested or another project scans
+		final ScanRunAction scanRun = new ScanRunAction();
+		assertSame(scanRun, getScan(3, null).checkCoalescing(build, Mockito.mock(IntLogger.class), "Project", false, scanRun));
+		assertSame(scanRun, getScan(10, null).checkCoalescing(build, Mockito.mock(IntLogger.class), "Project", true, scanRun));
+		assertSame(scanRun, getScan(10, null).checkCoalescing(build, Mockito.mock(IntLogger.class), "Other Project", false, scanRun));
+	}
+
+	@Test
+	public void testCoalescedEveryNthBuild() {
+		final AbstractBuild scanned = getBuild(1, 60, getScanRun(ScanMode.FULL, "Project"), null);
+		final ScanRunAction firstCoalesced = getScanRun(ScanMode.COALESCED, "Project");
+		firstCoalesced.setCoveringBuildNumber(1);
+		final AbstractBuild second = getBuild(2, 50, firstCoalesced, scanned);
+		final AbstractBuild third = getBuild(3, 0, null, second);
+
+		final ScanRunAction coalesced = getScan(null, 3).checkCoalescing(third, Mockito.mock(IntLogger.class), "Project", false, new ScanRunAction());
+		assertEquals(ScanMode.COALESCED, coalesced.getScanMode());
+		assertEquals(Integer.valueOf(1), coalesced.getCoveringBuildNumber());
+
+		// Build 1 and the 2 coalesced builds make 3, the next one scans
+		final AbstractBuild thirdCoalesced = getBuild(3, 40, coalesced, second);
+		final AbstractBuild fourth = getBuild(4, 0, null, thirdCoalesced);
+		final ScanRunAction scanRun = new ScanRunAction();
+		assertSame(scanRun, getScan(null, 3).checkCoalescing(fourth, Mockito.mock(IntLogger.class), "Project", false, scanRun));
+	}
+
+	@Test
+	public void testFailureConditionsUseTheCoveringScan() {
+		final ScanRunAction coveringScan = getScanRun(ScanMode.FULL, "Project");
+		final AbstractBuild covering = getBuild(1, 5, coveringScan, null);
+		final AbstractProject project = Mockito.mock(AbstractProject.class);
+		Mockito.doReturn(covering).when(project).getBuildByNumber(1);
+
+		final ScanRunAction coalesced = getScanRun(ScanMode.COALESCED, "Project");
+		coalesced.setCoveringBuildNumber(1);
+		final AbstractBuild build = getBuild(2, 0, coalesced, covering);
+		Mockito.doReturn(project).when(build).getProject();
+
+		final ProtexFailureStep failureStep = new ProtexFailureStep(true, true);
+		final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(null);
+
+		// The covering build did not check the conditions, the server has to be asked
+		assertNull(failureStep.checkCoveringScanConditions(build, logger, coalesced));
+
+		coveringScan.setConditionCount(ProtexFailureCondition.PENDING_IDS, 0);
+		assertNull(failureStep.checkCoveringScanConditions(build, logger, coalesced));
+
+		coveringScan.setConditionCount(ProtexFailureCondition.LICENSE_VIOLATIONS, 0);
+		assertTrue(failureStep.checkCoveringScanConditions(build, logger, coalesced));
+
+		coveringScan.setConditionCount(ProtexFailureCondition.LICENSE_VIOLATIONS, 3);
+		assertFalse(failureStep.checkCoveringScanConditions(build, logger, coalesced));
+	}
+
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins;
+
+import static org.junit.Assert.assertEquals;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.ChangeLogSet.AffectedFile;
+import hudson.scm.EditType;
+import hudson.scm.SCM;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.jenkins.action.ScanMode;
+import com.blackducksoftware.integration.protex.jenkins.action.ScanRunAction;
+
+public class ScanPlanTest {
+
+	private static final String WORKSPACE = File.separator + "jenkins" + File.separator + "workspace";
+
+	private static final String TARGET = WORKSPACE + File.separator + "src";
+
+	private final ProtexJenkinsLogger logger = new ProtexJenkinsLogger(null);
+
+	private PostBuildProtexScan getScan() {
+		return new PostBuildProtexScan("id", "credentials", "Project", null, "src", 2.0, null, true, null, 5, null, null, null, null, null);
+	}
+
+	private AbstractBuild getBuild(final ScanRunAction scanRun, final AbstractBuild previousBuild, final String... changedPaths) {
+		final List<ChangeLogSet.Entry> entries = new ArrayList<ChangeLogSet.Entry>();
+		if (changedPaths.length > 0) {
+			final List<AffectedFile> files = new ArrayList<AffectedFile>();
+			for (final String path : changedPaths) {
+				final AffectedFile file = Mockito.mock(AffectedFile.class);
+				Mockito.when(file.getPath()).thenReturn(path);
+				Mockito.when(file.getEditType()).thenReturn(EditType.EDIT);
+				files.add(file);
+			}
+			final ChangeLogSet.Entry entry = Mockito.mock(ChangeLogSet.Entry.class);
+			Mockito.doReturn(files).when(entry).getAffectedFiles();
+			entries.add(entry);
+		}
+		final ChangeLogSet changeSet = Mockito.mock(ChangeLogSet.class);
+		Mockito.when(changeSet.isEmptySet()).thenReturn(entries.isEmpty());
+		Mockito.when(changeSet.iterator()).thenReturn(entries.iterator());
+
+		final AbstractProject project = Mockito.mock(AbstractProject.class);
+		Mockito.when(project.getScm()).thenReturn(Mockito.mock(SCM.class));
+
+		final AbstractBuild build = Mockito.mock(AbstractBuild.class);
+		Mockito.doReturn(project).when(build).getProject();
+		Mockito.doReturn(changeSet).when(build).getChangeSet();
+		Mockito.when(build.getAction(ScanRunAction.class)).thenReturn(scanRun);
+		Mockito.doReturn(previousBuild).when(build).getPreviousBuild();
+		return build;
+	}
+
+	private ScanRunAction getScanRun(final ScanMode mode, final int incrementalRunCount, final String projectName, final String sourcePath) {
+		final ScanRunAction scanRun = new ScanRunAction(mode, incrementalRunCount, 0);
+		scanRun.setProjectName(projectName);
+		scanRun.setSourcePath(sourcePath);
+		return scanRun;
+	}
+
+	@Test
+	public void testIncremental() {
+		final AbstractBuild previous = getBuild(getScanRun(ScanMode.FULL, 0, "Project", "src"), null);
+
+		final AbstractBuild changed = getBuild(null, previous, "src/Foo.java", "README.md");
+		final ScanRunAction incremental = getScan().planScan(changed, logger, "Project", WORKSPACE, TARGET, false);
+		assertEquals(ScanMode.INCREMENTAL, incremental.getScanMode());
+		assertEquals(1, incremental.getIncrementalRunCount());
+		assertEquals(1, incremental.getChangedPathCount());
+
+		final AbstractBuild unchanged = getBuild(null, previous, "README.md");
+		assertEquals(ScanMode.SKIPPED, getScan().planScan(unchanged, logger, "Project", WORKSPACE, TARGET, false).getScanMode());
+	}
+
+	@Test
+	public void testOtherProjectRunsFullScan() {
+		// ex: the project name comes from $BRANCH_NAME
+		final AbstractBuild previous = getBuild(getScanRun(ScanMode.FULL, 0, "Project-master", "src"), null);
+		final AbstractBuild build = getBuild(null, previous, "README.md");
+		assertEquals(ScanMode.FULL, getScan().planScan(build, logger, "Project-feature", WORKSPACE, TARGET, false).getScanMode());
+	}
+
+	@Test
+	public void testOtherSourcePathRunsFullScan() {
+		final AbstractBuild previous = getBuild(getScanRun(ScanMode.FULL, 0, "Project", "docs"), null);
+		final AbstractBuild build = getBuild(null, previous, "README.md");
+		assertEquals(ScanMode.FULL, getScan().planScan(build, logger, "Project", WORKSPACE, TARGET, false).getScanMode());
+
+		// Builds from older versions of the plugin did not record the source path
+		final AbstractBuild older = getBuild(getScanRun(ScanMode.FULL, 0, "Project", null), null);
+		final AbstractBuild next = getBuild(null, older, "README.md");
+		assertEquals(ScanMode.FULL, getScan().planScan(next, logger, "Project", WORKSPACE, TARGET, false).getScanMode());
+	}
+
+	@Test
+	public void testFullScanInterval() {
+		final AbstractBuild previous = getBuild(getScanRun(ScanMode.INCREMENTAL, 4, "Project", "src"), null);
+		final AbstractBuild build = getBuild(null, previous, "src/Foo.java");
+		assertEquals(ScanMode.FULL, getScan().planScan(build, logger, "Project", WORKSPACE, TARGET, false).getScanMode());
+	}
+
+	@Test
+	public void testCoalescedBuildChangesAreScanned() {
+		final AbstractBuild scanned = getBuild(getScanRun(ScanMode.INCREMENTAL, 2, "Project", "src"), null);
+		final AbstractBuild coalesced = getBuild(getScanRun(ScanMode.COALESCED, 0, "Project", "src"), scanned, "src/Foo.java");
+		final AbstractBuild build = getBuild(null, coalesced, "README.md");
+
+		final ScanRunAction scanRun = getScan().planScan(build, logger, "Project", WORKSPACE, TARGET, false);
+		assertEquals(ScanMode.INCREMENTAL, scanRun.getScanMode());
+		// Goes on from the count of the covering scan
+		assertEquals(3, scanRun.getIncrementalRunCount());
+		assertEquals(1, scanRun.getChangedPathCount());
+	}
+
+	@Test
+	public void testCoalescedBuildsKeepTheFullScanInterval() {
+		final AbstractBuild scanned = getBuild(getScanRun(ScanMode.INCREMENTAL, 4, "Project", "src"), null);
+		final AbstractBuild coalesced = getBuild(getScanRun(ScanMode.COALESCED, 0, "Project", "src"), scanned, "README.md");
+		final AbstractBuild build = getBuild(null, coalesced, "README.md");
+		assertEquals(ScanMode.FULL, getScan().planScan(build, logger, "Project", WORKSPACE, TARGET, false).getScanMode());
+	}
+
+	@Test
+	public void testNoChangeSetRunsFullScan() {
+		final AbstractBuild previous = getBuild(getScanRun(ScanMode.FULL, 0, "Project", "src"), null);
+		final AbstractBuild build = getBuild(null, previous);
+		assertEquals(ScanMode.FULL, getScan().planScan(build, logger, "Project", WORKSPACE, TARGET, false).getScanMode());
+		assertEquals(ScanMode.FULL, getScan().planScan(build, logger, "Project", WORKSPACE, TARGET, true).getScanMode());
+	}
+
+}
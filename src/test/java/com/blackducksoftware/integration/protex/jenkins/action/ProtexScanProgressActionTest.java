@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.action;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ProtexScanProgressActionTest {
+
+	@Test
+	public void testRateAndRemainingFromFiles() {
+		final ProtexScanProgressAction progress = new ProtexScanProgressAction(null, 0L);
+		assertNull(progress.getFilesPerSecond());
+		assertNull(progress.getRemainingMillis());
+
+		progress.progressChanged(25, 100L, 400L, 10000L);
+		assertTrue(progress.isRunning());
+		assertEquals(10.0, progress.getFilesPerSecond(), 0.001);
+		assertEquals(Long.valueOf(30000L), progress.getRemainingMillis());
+	}
+
+	@Test
+	public void testRemainingFromPercent() {
+		final ProtexScanProgressAction progress = new ProtexScanProgressAction(null, 0L);
+		progress.progressChanged(40, null, null, 20000L);
+		assertNull(progress.getFilesPerSecond());
+		assertEquals(Long.valueOf(30000L), progress.getRemainingMillis());
+	}
+
+	@Test
+	public void testMissingValuesKeepThePreviousProgress() {
+		final ProtexScanProgressAction progress = new ProtexScanProgressAction(null, 0L);
+		progress.progressChanged(10, 50L, 500L, 1000L);
+		progress.progressChanged(20, null, null, 2000L);
+		assertEquals(Integer.valueOf(20), progress.getPercentComplete());
+		assertEquals(Long.valueOf(50L), progress.getFilesScanned());
+		assertEquals(Long.valueOf(500L), progress.getTotalFiles());
+	}
+
+	@Test
+	public void testFinish() {
+		final ProtexScanProgressAction progress = new ProtexScanProgressAction(null, 0L);
+		progress.progressChanged(90, 450L, 500L, 9000L);
+		progress.finish(true, 10000L);
+		assertFalse(progress.isRunning());
+		assertTrue(progress.isCompleted());
+		assertEquals(Integer.valueOf(100), progress.getPercentComplete());
+		assertEquals(Long.valueOf(500L), progress.getFilesScanned());
+		assertEquals(10000L, progress.getElapsedMillis());
+		assertNull(progress.getRemainingMillis());
+
+		// Late updates from the Node are ignored
+		progress.progressChanged(95, 475L, 500L, 11000L);
+		assertEquals(Integer.valueOf(100), progress.getPercentComplete());
+	}
+
+	@Test
+	public void testFinishWithoutCompleting() {
+		final ProtexScanProgressAction progress = new ProtexScanProgressAction(null, 0L);
+		progress.progressChanged(30, null, null, 3000L);
+		progress.finish(false, 4000L);
+		assertFalse(progress.isRunning());
+		assertFalse(progress.isCompleted());
+		assertEquals(Integer.valueOf(30), progress.getPercentComplete());
+	}
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ProtexCallBudgetTest {
+
+	@After
+	public void tearDown() {
+		ProtexCallBudget.end();
+	}
+
+	@Test
+	public void testCharge() throws Exception {
+		final ProtexCallBudget budget = new ProtexCallBudget(1000L);
+		assertEquals(1000L, budget.getRemaining());
+		assertFalse(budget.isExhausted());
+
+		budget.charge(400L);
+		budget.charge(500L);
+		assertEquals(900L, budget.getSpent());
+		assertEquals(100L, budget.getRemaining());
+		assertFalse(budget.isExhausted());
+
+		budget.charge(200L);
+		assertEquals(0L, budget.getRemaining());
+		assertTrue(budget.isExhausted());
+	}
+
+	@Test
+	public void testCurrent() throws Exception {
+		assertNull(ProtexCallBudget.current());
+		final ProtexCallBudget budget = ProtexCallBudget.start(1000L);
+		assertSame(budget, ProtexCallBudget.current());
+
+		final ProtexCallBudget[] other = new ProtexCallBudget[1];
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				other[0] = ProtexCallBudget.current();
+			}
+		};
+		thread.start();
+		thread.join();
+		// Only the thread that started the budget is charged
+		assertNull(other[0]);
+
+		ProtexCallBudget.end();
+		assertNull(ProtexCallBudget.current());
+	}
+
+	@Test
+	public void testSet() throws Exception {
+		final ProtexCallBudget budget = ProtexCallBudget.start(1000L);
+		ProtexCallBudget.end();
+
+		// A worker thread is charged to the budget of the step it works for
+		final ProtexCallBudget[] other = new ProtexCallBudget[1];
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				ProtexCallBudget.set(budget);
+				other[0] = ProtexCallBudget.current();
+				ProtexCallBudget.current().charge(400L);
+				ProtexCallBudget.end();
+			}
+		};
+		thread.start();
+		thread.join();
+		assertSame(budget, other[0]);
+		assertEquals(400L, budget.getSpent());
+
+		ProtexCallBudget.set(budget);
+		assertSame(budget, ProtexCallBudget.current());
+		ProtexCallBudget.set(null);
+		assertNull(ProtexCallBudget.current());
+	}
+
+}
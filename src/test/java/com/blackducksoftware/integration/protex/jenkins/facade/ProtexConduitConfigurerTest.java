@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.apache.cxf.configuration.jsse.TLSClientParameters;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.ProtexServerInfo;
+
+public class ProtexConduitConfigurerTest {
+
+	private ProtexServerInfo getServer(final String maxConnections, final Boolean keepAlive, final String connectTimeout) {
+		return new ProtexServerInfo("Server", "https://protex.test", "300", "serverId", null, connectTimeout, maxConnections, keepAlive, "100", null, null, null);
+	}
+
+	@Test
+	public void testConduitSettings() throws Exception {
+		final ProtexConduitConfigurer configurer = new ProtexConduitConfigurer();
+		final ProtexServerInfo server = getServer(null, Boolean.FALSE, "10");
+		final HTTPClientPolicy policy = new HTTPClientPolicy();
+		final HTTPConduit conduit = Mockito.mock(HTTPConduit.class);
+		Mockito.when(conduit.getClient()).thenReturn(policy);
+
+		configurer.configure(conduit, "https://protex.test/protex-sdk/v7_0/project", server, configurer.getConnections(server));
+
+		assertEquals(ConnectionType.CLOSE, policy.getConnection());
+		assertEquals(10000L, policy.getConnectionTimeout());
+		assertEquals(300000L, policy.getReceiveTimeout());
+		Mockito.verify(conduit).setTlsClientParameters(Mockito.any(TLSClientParameters.class));
+	}
+
+	@Test
+	public void testConduitDefaults() throws Exception {
+		final ProtexConduitConfigurer configurer = new ProtexConduitConfigurer();
+		final ProtexServerInfo server = new ProtexServerInfo("Server", "http://protex.test", "300", "serverId");
+		final HTTPClientPolicy policy = new HTTPClientPolicy();
+		final HTTPConduit conduit = Mockito.mock(HTTPConduit.class);
+		Mockito.when(conduit.getClient()).thenReturn(policy);
+
+		configurer.configure(conduit, "http://protex.test/protex-sdk/v7_0/project", server, configurer.getConnections(server));
+
+		assertEquals(ConnectionType.KEEP_ALIVE, policy.getConnection());
+		// The connect timeout does not fall back on the SDK timeout
+		assertEquals(TimeUnit.SECONDS.toMillis(ProtexServerInfo.DEFAULT_CONNECT_TIMEOUT), policy.getConnectionTimeout());
+		assertEquals(300000L, policy.getReceiveTimeout());
+		Mockito.verify(conduit, Mockito.never()).setTlsClientParameters(Mockito.any(TLSClientParameters.class));
+	}
+
+	@Test
+	public void testServerAddress() throws Exception {
+		assertTrue(ProtexConduitConfigurer.isServerAddress("https://protex", "https://protex/protex-sdk/v7_0/project"));
+		assertTrue(ProtexConduitConfigurer.isServerAddress("https://protex/", "https://protex/protex-sdk/v7_0/project"));
+		assertTrue(ProtexConduitConfigurer.isServerAddress("https://protex", "HTTPS://PROTEX"));
+		assertFalse(ProtexConduitConfigurer.isServerAddress("https://protex", "https://protex.example.com2/protex-sdk/v7_0/project"));
+		assertFalse(ProtexConduitConfigurer.isServerAddress("https://protex", "https://protex:8443/protex-sdk/v7_0/project"));
+		assertFalse(ProtexConduitConfigurer.isServerAddress("", "https://protex/protex-sdk/v7_0/project"));
+		assertFalse(ProtexConduitConfigurer.isServerAddress("https://protex", null));
+	}
+
+	@Test
+	public void testConnectionLimit() throws Exception {
+		final ProtexConduitConfigurer configurer = new ProtexConduitConfigurer();
+		assertNull(configurer.getConnections(getServer(null, null, null)).getLimit());
+
+		final ProtexConduitConfigurer.ServerConnections connections = configurer.getConnections(getServer("2", null, null));
+		assertEquals(2, connections.getLimit().availablePermits());
+		assertSame(connections.getLimit(), configurer.getConnections(getServer("2", null, null)).getLimit());
+		assertEquals(1, configurer.getServerConnections().size());
+	}
+
+	@Test
+	public void testConnectionLimitRefresh() throws Exception {
+		final ProtexConduitConfigurer configurer = new ProtexConduitConfigurer();
+		final ProtexConduitConfigurer.ServerConnections connections = configurer.getConnections(getServer("2", null, null));
+		final Semaphore limit = connections.getLimit();
+		limit.acquire(2);
+
+		// The calls in flight count against the lowered limit
+		configurer.refresh(Collections.singletonList(getServer("1", null, null)));
+		assertSame(limit, connections.getLimit());
+		assertEquals(1, connections.getMaxConnections());
+		limit.release();
+		assertEquals(0, limit.availablePermits());
+		limit.release();
+		assertEquals(1, limit.availablePermits());
+
+		configurer.refresh(Collections.singletonList(getServer(null, null, null)));
+		assertNull(connections.getLimit());
+	}
+
+	@Test
+	public void testDefaultSocketFactory() throws Exception {
+		final ProtexConduitConfigurer configurer = new ProtexConduitConfigurer();
+		final ProtexConduitConfigurer.ServerConnections connections = configurer.getConnections(getServer(null, null, null));
+
+		// Without a session cache size the JVM default factory is wrapped, not replaced
+		final SSLSocketFactory socketFactory = connections.getSocketFactory(0);
+		assertTrue(socketFactory instanceof CountingSocketFactory);
+		assertSame(socketFactory, connections.getSocketFactory(0));
+		assertNotSame(socketFactory, connections.getSocketFactory(100));
+	}
+
+	@Test
+	public void testConnectionReuse() throws Exception {
+		final ProtexConduitConfigurer configurer = new ProtexConduitConfigurer();
+		final ProtexConduitConfigurer.ServerConnections connections = configurer.getConnections(getServer(null, null, null));
+		assertEquals("", connections.getReusedPercent());
+
+		final SSLSocketFactory socketFactory = connections.getSocketFactory(100);
+		assertNotNull(socketFactory);
+		assertSame(socketFactory, connections.getSocketFactory(100));
+
+		for (int i = 0; i < 4; i++) {
+			connections.countRequest();
+		}
+		connections.countConnection(new Socket());
+		assertEquals(4, connections.getRequestCount());
+		assertEquals(1, connections.getConnectionCount());
+		assertEquals(String.format("%.1f", 75.0), connections.getReusedPercent());
+
+		final SSLSession session = Mockito.mock(SSLSession.class);
+		connections.countHandshake(session);
+		connections.countHandshake(session);
+		connections.countHandshake(Mockito.mock(SSLSession.class));
+		assertEquals(2, connections.getFullHandshakeCount());
+		assertEquals(1, connections.getResumedHandshakeCount());
+	}
+
+	@Test
+	public void testCallTimeout() throws Exception {
+		assertNull(ProtexConduitConfigurer.getCallTimeout(getServer(null, null, null), "getProjectById", null));
+
+		final ProtexServerInfo server = new ProtexServerInfo("Server", "https://protex.test", "300", "serverId", null, null, null, null,
+				null, "60", "generateProjectReport=900\n\ngetProjects = 120\n", null);
+		assertEquals(Long.valueOf(60000L), ProtexConduitConfigurer.getCallTimeout(server, "getProjectById", null));
+		assertEquals(Long.valueOf(60000L), ProtexConduitConfigurer.getCallTimeout(server, null, null));
+		assertEquals(Long.valueOf(900000L), ProtexConduitConfigurer.getCallTimeout(server, "generateProjectReport", null));
+		assertEquals(Long.valueOf(120000L), ProtexConduitConfigurer.getCallTimeout(server, "getprojects", null));
+
+		// The budget left is shorter than the operation timeout
+		final ProtexCallBudget budget = new ProtexCallBudget(100000L);
+		budget.charge(70000L);
+		assertEquals(Long.valueOf(30000L), ProtexConduitConfigurer.getCallTimeout(server, "generateProjectReport", budget));
+		assertEquals(Long.valueOf(30000L), ProtexConduitConfigurer.getCallTimeout(getServer(null, null, null), "getProjectById", budget));
+	}
+
+	@Test
+	public void testInvalidOperationTimeouts() throws Exception {
+		final ProtexServerInfo server = new ProtexServerInfo("Server", "https://protex.test", "300", "serverId", null, null, null, null,
+				null, "60", "generateProjectReport\n", null);
+		// The invalid overrides are ignored, the operation timeout applies
+		assertEquals(Long.valueOf(60000L), ProtexConduitConfigurer.getCallTimeout(server, "generateProjectReport", null));
+	}
+
+}
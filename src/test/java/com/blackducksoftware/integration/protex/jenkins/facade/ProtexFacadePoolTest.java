@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.jenkins.ProtexJenkinsLogger;
+
+public class ProtexFacadePoolTest {
+
+	private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+	private ProtexFacadeKey getKey(final String serverId, final String userName) {
+		return new ProtexFacadeKey(serverId, "http://protex.test", 300L, "credentialsId", userName, "password", null, 0, null, null);
+	}
+
+	private static class MockedFacadePool extends ProtexFacadePool {
+		private boolean valid = true;
+
+		public MockedFacadePool(final int maxSize, final long idleTimeout, final long revalidateAfter) {
+			super(maxSize, idleTimeout, revalidateAfter);
+		}
+
+		@Override
+		protected ProtexFacade createFacade(final ProtexFacadeKey key) {
+			return Mockito.mock(ProtexFacade.class);
+		}
+
+		@Override
+		protected boolean revalidate(final ProtexFacadeKey key, final ProtexFacade facade) {
+			return valid;
+		}
+	}
+
+	@Test
+	public void testBorrowReusesReleasedFacade() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool(4, HOUR, HOUR);
+		final ProtexFacadeKey key = getKey("server", "user");
+
+		final ProtexFacade first = pool.borrow(key, new ProtexJenkinsLogger(null));
+		assertEquals(1, pool.getBorrowedCount());
+		pool.release(first);
+		assertEquals(0, pool.getBorrowedCount());
+		assertEquals(1, pool.getIdleCount());
+
+		final ProtexFacade second = pool.borrow(getKey("server", "user"), new ProtexJenkinsLogger(null));
+		assertSame(first, second);
+		assertEquals(1, pool.getHitCount());
+		assertEquals(1, pool.getMissCount());
+	}
+
+	@Test
+	public void testBorrowedFacadeIsNotShared() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool(4, HOUR, HOUR);
+		final ProtexFacadeKey key = getKey("server", "user");
+
+		final ProtexFacade first = pool.borrow(key, new ProtexJenkinsLogger(null));
+		final ProtexFacade second = pool.borrow(key, new ProtexJenkinsLogger(null));
+		assertNotSame(first, second);
+		assertEquals(2, pool.getMissCount());
+	}
+
+	@Test
+	public void testDifferentCredentialsUseDifferentFacades() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool(4, HOUR, HOUR);
+
+		final ProtexFacade first = pool.borrow(getKey("server", "user"), new ProtexJenkinsLogger(null));
+		pool.release(first);
+		final ProtexFacade second = pool.borrow(getKey("server", "otherUser"), new ProtexJenkinsLogger(null));
+		assertNotSame(first, second);
+		assertEquals(0, pool.getHitCount());
+	}
+
+	@Test
+	public void testIdleFacadesAreEvicted() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool(4, 0, HOUR);
+		final ProtexFacadeKey key = getKey("server", "user");
+
+		final ProtexFacade first = pool.borrow(key, new ProtexJenkinsLogger(null));
+		pool.release(first);
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(1, pool.getEvictionCount());
+	}
+
+	@Test
+	public void testPoolIsBounded() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool(1, HOUR, HOUR);
+
+		final ProtexFacade first = pool.borrow(getKey("server1", "user"), new ProtexJenkinsLogger(null));
+		final ProtexFacade second = pool.borrow(getKey("server2", "user"), new ProtexJenkinsLogger(null));
+		pool.release(first);
+		pool.release(second);
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(1, pool.getEvictionCount());
+	}
+
+	@Test
+	public void testRevalidationFailure() throws Exception {
+		final MockedFacadePool pool = new MockedFacadePool(4, HOUR, 0);
+		final ProtexFacadeKey key = getKey("server", "user");
+
+		final ProtexFacade first = pool.borrow(key, new ProtexJenkinsLogger(null));
+		pool.release(first);
+		pool.valid = false;
+		final ProtexFacade second = pool.borrow(key, new ProtexJenkinsLogger(null));
+		assertNotSame(first, second);
+		assertEquals(1, pool.getRevalidationFailureCount());
+		assertEquals(0, pool.getHitCount());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool(4, HOUR, HOUR);
+		final ProtexFacadeKey key = getKey("server", "user");
+
+		final ProtexFacade first = pool.borrow(key, new ProtexJenkinsLogger(null));
+		pool.invalidate(first);
+		pool.release(first);
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(0, pool.getBorrowedCount());
+
+		final ProtexFacade second = pool.borrow(key, new ProtexJenkinsLogger(null));
+		pool.release(second);
+		pool.invalidateServer("server");
+		assertEquals(0, pool.getIdleCount());
+
+		// Borrowed while the server configuration changed
+		final ProtexFacade third = pool.borrow(key, new ProtexJenkinsLogger(null));
+		final ProtexFacade other = pool.borrow(getKey("other", "user"), new ProtexJenkinsLogger(null));
+		pool.invalidateServer("server");
+		pool.release(third);
+		pool.release(other);
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(0, pool.getBorrowedCount());
+	}
+
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+import com.blackducksoftware.integration.protex.jenkins.ProtexJenkinsLogger;
+
+/**
+ * Compares how long the first SDK call of a build takes with a cold facade, created and logged in by the build, against
+ * a facade the {@link ProtexFacadeWarmup} left in the pool. It also times a new facade once the JVM is warm, to tell the
+ * CXF and JAXB start up apart from the login. Run it in a fresh JVM against a Protex server with
+ * -DProtexFacadeWarmupBenchmarkTest.url, .user and .password, it is skipped without them.
+ */
+public class ProtexFacadeWarmupBenchmarkTest {
+
+	private static final String PREFIX = ProtexFacadeWarmupBenchmarkTest.class.getSimpleName();
+
+	private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+	private ProtexFacadeKey getKey() {
+		final String url = System.getProperty(PREFIX + ".url");
+		Assume.assumeTrue(url != null);
+		return new ProtexFacadeKey("benchmark", url, 300L, "credentialsId", System.getProperty(PREFIX + ".user"),
+				System.getProperty(PREFIX + ".password"), null, 0, null, null);
+	}
+
+	@Test
+	public void testColdAndWarmFacade() throws Exception {
+		final ProtexFacadeKey key = getKey();
+
+		// The first facade of the JVM pays for the CXF clients, the JAXB contexts and the login
+		final ProtexFacadePool coldPool = new ProtexFacadePool(4, HOUR, HOUR);
+		final ProtexFacadeWarmup warmup = new ProtexFacadeWarmup(coldPool);
+		warmup.warmUp(Collections.singletonList(key));
+		assertNull(warmup.getResults().get(0).getError());
+		final long coldMillis = warmup.getResults().get(0).getMillis();
+
+		// What a build gets once the warm-up ran
+		final long warmMillis = borrowAndValidate(coldPool, key);
+		assertEquals(1, coldPool.getHitCount());
+
+		// A facade the pool did not have, in a warm JVM
+		final long newFacadeMillis = borrowAndValidate(new ProtexFacadePool(4, HOUR, HOUR), key);
+
+		System.out.println("First Protex SDK call, cold JVM and new facade  : " + coldMillis + " ms");
+		System.out.println("First Protex SDK call, warm JVM and new facade  : " + newFacadeMillis + " ms");
+		System.out.println("First Protex SDK call, warmed up pooled facade  : " + warmMillis + " ms");
+	}
+
+	/**
+	 * @return the milliseconds to borrow a facade and make one SDK call with it
+	 */
+	private long borrowAndValidate(final ProtexFacadePool pool, final ProtexFacadeKey key) throws Exception {
+		final long start = System.nanoTime();
+		final ProtexFacade facade = pool.borrow(key, new ProtexJenkinsLogger(null));
+		try {
+			facade.validateConnection();
+		} finally {
+			pool.release(facade);
+		}
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.blackducksoftware.integration.protex.ProtexFacade;
+
+public class ProtexFacadeWarmupTest {
+
+	private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+	private ProtexFacadeKey getKey(final String serverUrl, final String userName) {
+		return new ProtexFacadeKey("server", serverUrl, 300L, "credentialsId", userName, "password", null, 0, null, null);
+	}
+
+	private static class MockedFacadePool extends ProtexFacadePool {
+
+		public MockedFacadePool() {
+			super(4, HOUR, HOUR);
+		}
+
+		@Override
+		protected ProtexFacade createFacade(final ProtexFacadeKey key) {
+			final ProtexFacade facade = Mockito.mock(ProtexFacade.class);
+			if ("bad".equals(key.getUsername())) {
+				Mockito.doThrow(new IllegalStateException("Invalid credentials")).when(facade).validateConnection();
+			}
+			return facade;
+		}
+	}
+
+	@Test
+	public void testWarmedUpFacadesAreIdleInThePool() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool();
+		final ProtexFacadeWarmup warmup = new ProtexFacadeWarmup(pool);
+
+		warmup.warmUp(Arrays.asList(getKey("http://protex.test", "user"), getKey("http://other.test", "user")));
+
+		final List<ProtexFacadeWarmup.WarmupResult> results = warmup.getResults();
+		assertEquals(2, results.size());
+		assertEquals("http://protex.test", results.get(0).getServerUrl());
+		assertNull(results.get(0).getError());
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(0, pool.getBorrowedCount());
+
+		// The first build borrows the warmed up facade
+		pool.borrow(getKey("http://protex.test", "user"), null);
+		assertEquals(1, pool.getHitCount());
+	}
+
+	@Test
+	public void testFailedFacadeIsNotPooled() throws Exception {
+		final ProtexFacadePool pool = new MockedFacadePool();
+		final ProtexFacadeWarmup warmup = new ProtexFacadeWarmup(pool);
+
+		warmup.warmUp(Arrays.asList(getKey("http://protex.test", "bad")));
+
+		final List<ProtexFacadeWarmup.WarmupResult> results = warmup.getResults();
+		assertEquals(1, results.size());
+		assertNotNull(results.get(0).getError());
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(0, pool.getBorrowedCount());
+	}
+
+}
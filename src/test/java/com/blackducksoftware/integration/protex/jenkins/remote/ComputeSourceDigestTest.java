@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ComputeSourceDigestTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createSource() throws IOException {
+        File source = folder.newFolder("source");
+        FileUtils.writeStringToFile(new File(source, "src/main/Foo.java"), "class Foo {}", "UTF-8");
+        FileUtils.writeStringToFile(new File(source, "src/main/Bar.java"), "class Bar {}", "UTF-8");
+        FileUtils.writeStringToFile(new File(source, "README"), "readme", "UTF-8");
+        return source;
+    }
+
+    @Test
+    public void testDigestIsStable() throws IOException {
+        File source = createSource();
+        String first = new ComputeSourceDigest(source.getCanonicalPath(), true).call();
+        String second = new ComputeSourceDigest(source.getCanonicalPath(), true).call();
+        Assert.assertNotNull(first);
+        Assert.assertEquals(first, second);
+    }
+
+    @Test
+    public void testDigestChangesWithContent() throws IOException {
+        File source = createSource();
+        File foo = new File(source, "src/main/Foo.java");
+        String before = new ComputeSourceDigest(source.getCanonicalPath(), true).call();
+
+        long lastModified = foo.lastModified();
+        FileUtils.writeStringToFile(foo, "class Baz {}", "UTF-8");
+        Assert.assertTrue(foo.setLastModified(lastModified));
+
+        Assert.assertFalse(before.equals(new ComputeSourceDigest(source.getCanonicalPath(), true).call()));
+    }
+
+    @Test
+    public void testDigestChangesWithNewFile() throws IOException {
+        File source = createSource();
+        String before = new ComputeSourceDigest(source.getCanonicalPath(), false).call();
+
+        FileUtils.writeStringToFile(new File(source, "src/main/New.java"), "class New {}", "UTF-8");
+
+        Assert.assertFalse(before.equals(new ComputeSourceDigest(source.getCanonicalPath(), false).call()));
+    }
+
+    @Test
+    public void testIgnoredPathsAreNotIncluded() throws IOException {
+        File source = createSource();
+        FileUtils.writeStringToFile(new File(source, ".bdsignore"), ".*generated.*", "UTF-8");
+        String before = new ComputeSourceDigest(source.getCanonicalPath(), false).call();
+
+        FileUtils.writeStringToFile(new File(source, "BDSToolLog/bdstool.log"), "log", "UTF-8");
+        FileUtils.writeStringToFile(new File(source, "src/generated/Gen.java"), "class Gen {}", "UTF-8");
+
+        Assert.assertEquals(before, new ComputeSourceDigest(source.getCanonicalPath(), false).call());
+    }
+
+    private void link(File target, File link) throws Exception {
+        Assume.assumeTrue(File.separatorChar == '/');
+        Process process = new ProcessBuilder("ln", "-s", target.getAbsolutePath(), link.getAbsolutePath()).start();
+        Assert.assertEquals(0, process.waitFor());
+    }
+
+    @Test
+    public void testDigestChangesInLinkedDirectory() throws Exception {
+        File source = createSource();
+        File shared = folder.newFolder("shared");
+        FileUtils.writeStringToFile(new File(shared, "Shared.java"), "class Shared {}", "UTF-8");
+        link(shared, new File(source, "src/shared"));
+        String before = new ComputeSourceDigest(source.getCanonicalPath(), false).call();
+
+        FileUtils.writeStringToFile(new File(shared, "New.java"), "class New {}", "UTF-8");
+
+        Assert.assertFalse(before.equals(new ComputeSourceDigest(source.getCanonicalPath(), false).call()));
+    }
+
+    @Test
+    public void testLinkToParentDirectory() throws Exception {
+        File source = createSource();
+        link(new File(source, "src"), new File(source, "src/main/loop"));
+        String before = new ComputeSourceDigest(source.getCanonicalPath(), false).call();
+
+        // The loop is not followed, the digest still covers the rest of the tree
+        FileUtils.writeStringToFile(new File(source, "src/main/New.java"), "class New {}", "UTF-8");
+
+        Assert.assertFalse(before.equals(new ComputeSourceDigest(source.getCanonicalPath(), false).call()));
+    }
+
+    @Test
+    public void testMissingSourcePath() throws IOException {
+        Assert.assertNull(new ComputeSourceDigest(new File(folder.getRoot(), "missing").getPath(), false).call());
+    }
+
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import hudson.remoting.Callable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HostIdentityResolverTest {
+
+    @After
+    public void tearDown() {
+        HostIdentityResolver.clearLocalHost();
+    }
+
+    private static Callable<String, IOException> answer(final String hostName, final long delay) {
+        return new Callable<String, IOException>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String call() throws IOException {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return hostName;
+            }
+        };
+    }
+
+    private static Callable<String, IOException> failure() {
+        return new Callable<String, IOException>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String call() throws IOException {
+                throw new IOException("No host name");
+            }
+        };
+    }
+
+    @Test
+    public void testFastestStrategyWins() {
+        List<Callable<String, IOException>> strategies = new ArrayList<Callable<String, IOException>>();
+        strategies.add(answer("slowHost", 10000));
+        strategies.add(answer("fastHost", 0));
+
+        HostIdentityResolver resolver = new HostIdentityResolver(strategies, 5000);
+        Assert.assertEquals("fastHost", resolver.resolve());
+        Assert.assertTrue(resolver.getResolutionMillis() < 5000);
+    }
+
+    @Test
+    public void testFailedAndBlankStrategiesAreSkipped() {
+        List<Callable<String, IOException>> strategies = new ArrayList<Callable<String, IOException>>();
+        strategies.add(failure());
+        strategies.add(answer(" ", 0));
+        strategies.add(answer("host", 100));
+
+        Assert.assertEquals("host", new HostIdentityResolver(strategies, 5000).resolve());
+    }
+
+    @Test
+    public void testResolutionIsBoundedInTime() {
+        List<Callable<String, IOException>> strategies = new ArrayList<Callable<String, IOException>>();
+        strategies.add(answer("slowHost", 10000));
+
+        HostIdentityResolver resolver = new HostIdentityResolver(strategies, 200);
+        Assert.assertNull(resolver.resolve());
+        Assert.assertTrue(resolver.getResolutionMillis() < 5000);
+    }
+
+    @Test
+    public void testNoHostName() {
+        List<Callable<String, IOException>> strategies = new ArrayList<Callable<String, IOException>>();
+        strategies.add(failure());
+
+        Assert.assertNull(new HostIdentityResolver(strategies, 5000).resolve());
+    }
+
+    @Test
+    public void testLocalFailureIsCached() {
+        final AtomicInteger calls = new AtomicInteger();
+        List<Callable<String, IOException>> strategies = new ArrayList<Callable<String, IOException>>();
+        strategies.add(new Callable<String, IOException>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String call() throws IOException {
+                calls.incrementAndGet();
+                throw new IOException("No host name");
+            }
+        });
+        HostIdentityResolver resolver = new HostIdentityResolver(strategies, 5000);
+
+        Assert.assertNull(HostIdentityResolver.resolveLocalHost(resolver, 60000));
+        Assert.assertNull(HostIdentityResolver.resolveLocalHost(resolver, 60000));
+        Assert.assertEquals(1, calls.get());
+
+        // Once the failure expired the host name is resolved again
+        Assert.assertNull(HostIdentityResolver.resolveLocalHost(resolver, 0));
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testStuckLookupsAreBounded() throws Exception {
+        final CountDownLatch dnsAnswers = new CountDownLatch(1);
+        final Callable<String, IOException> stuck = new Callable<String, IOException>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String call() throws IOException {
+                // Like a DNS lookup, does not give up when interrupted
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        dnsAnswers.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return "stuckHost";
+            }
+        };
+        try {
+            List<Callable<String, IOException>> strategies = new ArrayList<Callable<String, IOException>>();
+            for (int i = 0; i < HostIdentityResolver.MAX_THREADS; i++) {
+                strategies.add(stuck);
+            }
+            Assert.assertNull(new HostIdentityResolver(strategies, 100).resolve());
+
+            // The earlier lookups still hold all of the threads, the new one is skipped instead of adding a thread
+            strategies = new ArrayList<Callable<String, IOException>>();
+            strategies.add(answer("host", 0));
+            Assert.assertNull(new HostIdentityResolver(strategies, 5000).resolve());
+        } finally {
+            dnsAnswers.countDown();
+            // Waits for the threads to be free again for the other tests
+            List<Callable<String, IOException>> strategies = new ArrayList<Callable<String, IOException>>();
+            strategies.add(answer("host", 0));
+            for (int i = 0; i < 100 && new HostIdentityResolver(strategies, 5000).resolve() == null; i++) {
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    public void testLocalHostIsCached() {
+        String hostName = HostIdentityResolver.resolveLocalHost();
+        Assert.assertNotNull(hostName);
+        Assert.assertSame(hostName, HostIdentityResolver.resolveLocalHost());
+    }
+
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class NodeFactsCacheTest {
+
+    private static NodeProbeResult result(String hostName) {
+        NodeFacts nodeFacts = new NodeFacts(hostName, "/java", "50.0", "amd64", "Linux", "/java/bin/java", true, 10L);
+        return new NodeProbeResult(nodeFacts, "/workspace", "/workspace", true, false);
+    }
+
+    @Test
+    public void testFailedHostNameIsNotCached() throws Exception {
+        VirtualChannel channel = Mockito.mock(VirtualChannel.class);
+        Mockito.doReturn(result(null)).doReturn(result("host")).doReturn(new NodeProbeResult(null, "/workspace", "/workspace", true, false))
+                .when(channel).call(Mockito.any(Callable.class));
+
+        // The Node could not resolve its host name, the next build asks again
+        Assert.assertNull(NodeFactsCache.probe(channel, "/workspace", null).getNodeFacts().getHostName());
+        Assert.assertNull(NodeFactsCache.get(channel));
+
+        Assert.assertEquals("host", NodeFactsCache.probe(channel, "/workspace", null).getNodeFacts().getHostName());
+        Assert.assertEquals("host", NodeFactsCache.get(channel).getHostName());
+
+        // Only the workspace is probed once the NodeFacts are cached
+        Assert.assertEquals("host", NodeFactsCache.probe(channel, "/workspace", null).getNodeFacts().getHostName());
+        Mockito.verify(channel, Mockito.times(3)).call(Mockito.any(Callable.class));
+    }
+
+    @Test
+    public void testFailedProbeDropsTheNodeFacts() throws Exception {
+        VirtualChannel channel = Mockito.mock(VirtualChannel.class);
+        Mockito.doReturn(result("host")).doThrow(new IOException("Channel closed")).when(channel).call(Mockito.any(Callable.class));
+
+        NodeFactsCache.probe(channel, "/workspace", null);
+        Assert.assertNotNull(NodeFactsCache.get(channel));
+        try {
+            NodeFactsCache.probe(channel, "/workspace", null);
+            Assert.fail("The probe should have failed");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertNull(NodeFactsCache.get(channel));
+    }
+
+}
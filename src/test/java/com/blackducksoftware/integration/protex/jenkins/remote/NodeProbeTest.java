@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NodeProbeTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testProbeWorkspace() throws IOException {
+        File workspace = folder.newFolder("workspace");
+        NodeProbeResult result = new NodeProbe(workspace.getPath(), null, true).call();
+
+        Assert.assertEquals(workspace.getCanonicalPath(), result.getWorkspacePath());
+        Assert.assertEquals(workspace.getCanonicalPath(), result.getTargetPath());
+        Assert.assertTrue(result.isTargetExists());
+        Assert.assertFalse(result.isBdsIgnoreExists());
+
+        NodeFacts nodeFacts = result.getNodeFacts();
+        Assert.assertNotNull(nodeFacts);
+        Assert.assertEquals(System.getProperty("java.home"), nodeFacts.getJavaHome());
+        Assert.assertEquals(System.getProperty("java.class.version"), nodeFacts.getJavaClassVersion());
+        Assert.assertEquals(System.getProperty("os.arch"), nodeFacts.getOsArch());
+        Assert.assertEquals(System.getProperty("os.name"), nodeFacts.getOsName());
+        Assert.assertTrue(nodeFacts.isJavaExecutableExists());
+    }
+
+    @Test
+    public void testProbeRelativeSourcePath() throws IOException {
+        File workspace = folder.newFolder("workspace");
+        File source = new File(workspace, "src");
+        Assert.assertTrue(source.mkdir());
+        Assert.assertTrue(new File(workspace, ".bdsignore").createNewFile());
+
+        NodeProbeResult result = new NodeProbe(workspace.getPath(), "src", false).call();
+
+        Assert.assertNull(result.getNodeFacts());
+        Assert.assertEquals(source.getCanonicalPath(), result.getTargetPath());
+        Assert.assertTrue(result.isTargetExists());
+        Assert.assertTrue(result.isBdsIgnoreExists());
+    }
+
+    @Test
+    public void testProbeMissingSourcePath() throws IOException {
+        File workspace = folder.newFolder("workspace");
+
+        NodeProbeResult result = new NodeProbe(workspace.getPath(), "does/not/exist", false).call();
+
+        Assert.assertFalse(result.isTargetExists());
+    }
+
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProtexBatchingLogStreamTest {
+    @Test
+    public void testLinesAreSentInChunksInOrder() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ProtexConsoleLogSink sink = new ProtexConsoleLogSink(console);
+        ProtexBatchingLogStream stream = new ProtexBatchingLogStream(sink, new ByteArrayOutputStream(), 1024, 60000L);
+        PrintStream printStream = new PrintStream(stream, false, "UTF-8");
+        for (int i = 0; i < 1000; i++) {
+            printStream.println("line " + i);
+        }
+        printStream.flush();
+        stream.close();
+
+        Assert.assertEquals(expectedOutput(0, 1000), console.toString("UTF-8"));
+        Assert.assertTrue(sink.getChunkCount() > 1);
+        Assert.assertTrue(sink.getChunkCount() < 100);
+        Assert.assertEquals(sink.getChunkCount(), stream.getChunkCount());
+    }
+
+    @Test
+    public void testOutputIsSentAfterTheDelay() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ProtexConsoleLogSink sink = new ProtexConsoleLogSink(console);
+        ProtexBatchingLogStream stream = new ProtexBatchingLogStream(sink, new ByteArrayOutputStream(), 1024 * 1024, 50L);
+        try {
+            stream.write("line 0\n".getBytes("UTF-8"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sink.getChunkCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("line 0\n", console.toString("UTF-8"));
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void testNoLinesAreLostWhenTheSinkFails() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        FailingSink sink = new FailingSink(console, 2);
+        ByteArrayOutputStream fallback = new ByteArrayOutputStream();
+        ProtexBatchingLogStream stream = new ProtexBatchingLogStream(sink, fallback, 100, 60000L);
+        PrintStream printStream = new PrintStream(stream, false, "UTF-8");
+        for (int i = 0; i < 100; i++) {
+            printStream.println("line " + i);
+        }
+        printStream.flush();
+        stream.close();
+        printStream.println("after close");
+        printStream.flush();
+
+        Assert.assertTrue(stream.isSinkFailed());
+        Assert.assertEquals(expectedOutput(0, 100) + "after close" + System.getProperty("line.separator"), console.toString("UTF-8") + fallback.toString("UTF-8"));
+    }
+
+    private String expectedOutput(int from, int to) {
+        StringBuilder expected = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            expected.append("line ").append(i).append(System.getProperty("line.separator"));
+        }
+        return expected.toString();
+    }
+
+    private static class FailingSink implements ProtexLogSink {
+        private final ProtexConsoleLogSink console;
+
+        private final List<byte[]> chunks = new ArrayList<byte[]>();
+
+        private final int failAfter;
+
+        public FailingSink(ByteArrayOutputStream console, int failAfter) {
+            this.console = new ProtexConsoleLogSink(console);
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public void write(byte[] chunk) throws IOException {
+            if (chunks.size() == failAfter) {
+                throw new IOException("channel closed");
+            }
+            chunks.add(chunk);
+            console.write(chunk);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *******************************************************************************/
+package com.blackducksoftware.integration.protex.jenkins.remote;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProtexScanStatisticsTest {
+    @Test
+    public void testUpdateFromEndOfScanMessages() {
+        Map<String, Object> messages = new HashMap<String, Object>();
+        messages.put("Files Analyzed", "1,234 files");
+        messages.put("Pending Identification", 17);
+        messages.put("Files Skipped", "3");
+        messages.put("Elapsed Time", "0:02:05");
+        messages.put("Server", "http://protex.test");
+
+        ProtexScanStatistics statistics = new ProtexScanStatistics();
+        statistics.update(messages);
+
+        Assert.assertEquals(Long.valueOf(1234), statistics.getFilesAnalyzed());
+        Assert.assertEquals(Long.valueOf(17), statistics.getPendingIds());
+        Assert.assertEquals(Long.valueOf(3), statistics.getFilesSkipped());
+        Assert.assertEquals(Long.valueOf(125000), statistics.getElapsedMillis());
+    }
+
+    @Test
+    public void testMissingStatisticsStayNull() {
+        Map<String, Object> messages = new HashMap<String, Object>();
+        messages.put("Pending Identification", "none");
+
+        ProtexScanStatistics statistics = new ProtexScanStatistics();
+        statistics.update(messages);
+
+        Assert.assertNull(statistics.getPendingIds());
+        Assert.assertNull(statistics.getFilesAnalyzed());
+        Assert.assertNull(statistics.getElapsedMillis());
+    }
+
+    @Test
+    public void testSeveralPendingCountsAskTheServer() {
+        Map<String, Object> messages = new HashMap<String, Object>();
+        messages.put("Pending Identification (Code Matches)", "12");
+        messages.put("Pending Identification (String Searches)", "0");
+
+        ProtexScanStatistics statistics = new ProtexScanStatistics();
+        statistics.update(messages);
+
+        // Whichever key came last must not decide the count
+        Assert.assertNull(statistics.getPendingIds());
+
+        // The same key reported again is still one count
+        ProtexScanStatistics single = new ProtexScanStatistics();
+        Map<String, Object> first = new HashMap<String, Object>();
+        first.put("Pending Identification", "5");
+        single.update(first);
+        single.update(first);
+        Assert.assertEquals(Long.valueOf(5), single.getPendingIds());
+    }
+
+    @Test
+    public void testParseDuration() {
+        Assert.assertEquals(Long.valueOf(3723000), ProtexScanStatistics.parseDuration("01:02:03", null));
+        Assert.assertEquals(Long.valueOf(62000), ProtexScanStatistics.parseDuration("1:02", null));
+        Assert.assertEquals(Long.valueOf(450), ProtexScanStatistics.parseDuration("450 ms", null));
+        Assert.assertEquals(Long.valueOf(12000), ProtexScanStatistics.parseDuration("12 seconds", null));
+        // No unit, keeps what was there
+        Assert.assertEquals(Long.valueOf(5), ProtexScanStatistics.parseDuration("42", 5L));
+    }
+}